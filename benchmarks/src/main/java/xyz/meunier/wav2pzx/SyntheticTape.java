@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2016, Fredrick Meunier
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package xyz.meunier.wav2pzx;
+
+import xyz.meunier.wav2pzx.generator.LoaderTimings;
+import xyz.meunier.wav2pzx.generator.TapeGenerator;
+import xyz.meunier.wav2pzx.pulselist.PulseList;
+import xyz.meunier.wav2pzx.pulselist.PulseListBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * A deterministic synthetic tape for benchmarking: a ROM style header and 6912 byte screen block, with the pulses,
+ * the 8 bit mono audio they would be recorded as and the raw pulses of the data block.
+ *
+ * @author Fredrick Meunier
+ */
+public final class SyntheticTape {
+
+    /**
+     * The styles of recording available
+     */
+    public enum Style {
+        /** Clean recording with the standard ROM timings */
+        ROM(TapeGenerator::new),
+        /** Clean recording of a loader with standard pilot and sync pulses and data bits at twice ROM speed */
+        TURBO(() -> new TapeGenerator().withTimings(LoaderTimings.TURBO)),
+        /** ROM timings with pulse jitter and a noisy audio signal */
+        NOISY(() -> new TapeGenerator().withJitter(0.03).withNoise(12));
+
+        private final Supplier<TapeGenerator> generator;
+
+        Style(Supplier<TapeGenerator> generator) {
+            this.generator = generator;
+        }
+    }
+
+    public static final float SAMPLE_RATE = 44100;
+
+    private static final long SEED = 0x5EC7A9E;
+
+    private final TapeGenerator generator;
+    private final PulseList pulseList;
+    private final PulseList dataBlockPulseList;
+    private final byte[] samples;
+
+    /**
+     * Construct a new SyntheticTape, the same style always produces the same tape.
+     *
+     * @param style the style of recording
+     */
+    public SyntheticTape(Style style) {
+        generator = style.generator.get().withSampleRate(SAMPLE_RATE).withSeed(SEED);
+
+        PulseListBuilder builder = new PulseListBuilder();
+        List<byte[]> blocks = generator.generate(builder);
+        pulseList = builder.build();
+
+        // Leading silence, header pilot, sync, data, tail and pause, then the data block pilot
+        int dataBlockStart = 1 + LoaderTimings.ROM_HEADER_PILOT_COUNT + 2 + blocks.get(0).length * 16 + 2 +
+                LoaderTimings.ROM_DATA_PILOT_COUNT;
+        int dataBlockEnd = dataBlockStart + 2 + blocks.get(1).length * 16 + 1;
+        dataBlockPulseList = pulseList.subList(dataBlockStart, dataBlockEnd);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            generator.writeSamples(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        samples = out.toByteArray();
+    }
+
+    /**
+     * @return the pulses of the whole tape
+     */
+    public PulseList getPulseList() {
+        return pulseList;
+    }
+
+    /**
+     * @return the sync, data and tail pulses of the data block
+     */
+    public PulseList getDataBlockPulseList() {
+        return dataBlockPulseList;
+    }
+
+    /**
+     * @return the tape as unsigned 8 bit samples at {@link #SAMPLE_RATE}
+     */
+    public byte[] getSamples() {
+        return samples.clone();
+    }
+
+    /**
+     * Write the tape as an 8 bit mono WAV file
+     *
+     * @param wavFile the destination file
+     * @throws IOException if the file could not be written
+     */
+    public void writeWav(Path wavFile) throws IOException {
+        generator.writeWav(wavFile);
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2016, Fredrick Meunier
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package xyz.meunier.wav2pzx.blocks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import xyz.meunier.wav2pzx.SyntheticTape;
+import xyz.meunier.wav2pzx.pulselist.PulseList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures encoding the pulses of a tape into PULS block bytes with PZXEncodeUtils.addBytesFor and with a reused
+ * PZXBlockEncoder
+ *
+ * @author Fredrick Meunier
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PulseEncodingBenchmark {
+
+    @Param({"ROM", "TURBO", "NOISY"})
+    public SyntheticTape.Style style;
+
+    // Run length encoded pulses of the tape
+    private long[] pulses;
+    private long[] counts;
+    private int numRuns;
+
+    private final PZXBlockEncoder encoder = new PZXBlockEncoder();
+
+    @Setup
+    public void setUp() {
+        PulseList pulseList = new SyntheticTape(style).getPulseList();
+        pulses = new long[pulseList.size()];
+        counts = new long[pulseList.size()];
+        for (int i = 0; i < pulseList.size(); i++) {
+            long pulse = pulseList.get(i);
+            if (numRuns > 0 && pulses[numRuns - 1] == pulse) {
+                counts[numRuns - 1]++;
+            } else {
+                pulses[numRuns] = pulse;
+                counts[numRuns++] = 1;
+            }
+        }
+    }
+
+    @Benchmark
+    public List<Byte> addBytesFor() {
+        List<Byte> output = new ArrayList<>();
+        for (int i = 0; i < numRuns; i++) {
+            PZXEncodeUtils.addBytesFor(pulses[i], counts[i], output);
+        }
+        return output;
+    }
+
+    @Benchmark
+    public int blockEncoder() {
+        encoder.clear().startBlock("PULS");
+        for (int i = 0; i < numRuns; i++) {
+            encoder.putPulses(pulses[i], counts[i]);
+        }
+        return encoder.endBlock().size();
+    }
+}
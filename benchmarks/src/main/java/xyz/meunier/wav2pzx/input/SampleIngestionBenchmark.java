@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2016, Fredrick Meunier
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package xyz.meunier.wav2pzx.input;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import xyz.meunier.wav2pzx.SyntheticTape;
+import xyz.meunier.wav2pzx.input.triggers.Bistable;
+import xyz.meunier.wav2pzx.input.triggers.SchmittTrigger;
+import xyz.meunier.wav2pzx.pulselist.PulseList;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures converting 8 bit samples into a PulseList with AudioSamplePulseListBuilder.addSample and with the bulk
+ * full scale AudioSamplePulseListBuilder.addSamples that AudioFileTape uses
+ *
+ * @author Fredrick Meunier
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SampleIngestionBenchmark {
+
+    private static final float TARGET_HZ = 3500000;
+
+    @Param({"ROM", "TURBO", "NOISY"})
+    public SyntheticTape.Style style;
+
+    private int[] samples;
+    private int[] fullScaleSamples;
+
+    @Setup
+    public void setUp() {
+        byte[] bytes = new SyntheticTape(style).getSamples();
+        samples = new int[bytes.length];
+        fullScaleSamples = new int[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            samples[i] = bytes[i] & 0xff;
+            // As AudioFileTape passes samples to the builder
+            fullScaleSamples[i] = (samples[i] - 128) << Bistable.UNSIGNED_BYTE_SHIFT;
+        }
+    }
+
+    @Benchmark
+    public PulseList addSamples() {
+        AudioSamplePulseListBuilder builder =
+                new AudioSamplePulseListBuilder(SyntheticTape.SAMPLE_RATE, TARGET_HZ, new SchmittTrigger());
+        for (int sample : samples) {
+            builder.addSample(sample);
+        }
+        return builder.build();
+    }
+
+    @Benchmark
+    public PulseList addSamplesBulk() {
+        AudioSamplePulseListBuilder builder =
+                new AudioSamplePulseListBuilder(SyntheticTape.SAMPLE_RATE, TARGET_HZ, new SchmittTrigger());
+        for (int off = 0; off < fullScaleSamples.length; off += AudioFileTape.DEFAULT_BUFFER_SIZE) {
+            builder.addSamples(fullScaleSamples, off,
+                    Math.min(AudioFileTape.DEFAULT_BUFFER_SIZE, fullScaleSamples.length - off));
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2016, Fredrick Meunier
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package xyz.meunier.wav2pzx.input.triggers;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import xyz.meunier.wav2pzx.SyntheticTape;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures edge detection of unsigned 8 bit samples with the SchmittTrigger, AdaptiveSchmittTrigger and
+ * SimpleBistable
+ *
+ * @author Fredrick Meunier
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TriggerBenchmark {
+
+    @Param({"ROM", "TURBO", "NOISY"})
+    public SyntheticTape.Style style;
+
+    private int[] samples;
+
+    @Setup
+    public void setUp() {
+        byte[] bytes = new SyntheticTape(style).getSamples();
+        samples = new int[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            samples[i] = bytes[i] & 0xff;
+        }
+    }
+
+    @Benchmark
+    public int schmittTrigger() {
+        return countEdges(new SchmittTrigger());
+    }
+
+    @Benchmark
+    public int adaptiveSchmittTrigger() {
+        return countEdges(new AdaptiveSchmittTrigger());
+    }
+
+    @Benchmark
+    public int simpleBistable() {
+        return countEdges(new SimpleBistable());
+    }
+
+    private int countEdges(Bistable trigger) {
+        int edges = 0;
+        int lastLevel = 0;
+        for (int sample : samples) {
+            int level = trigger.getNewLevel(sample);
+            edges += level ^ lastLevel;
+            lastLevel = level;
+        }
+        return edges;
+    }
+}
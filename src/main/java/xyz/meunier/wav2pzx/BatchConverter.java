@@ -0,0 +1,289 @@
+/*
+ * Copyright (c) 2016, Fredrick Meunier
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package xyz.meunier.wav2pzx;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Converts a batch of tape files to PZX files using a fixed pool of worker threads. A failure converting one file is
+ * reported and does not affect the conversion of the other files.
+ *
+ * @author Fredrick Meunier
+ */
+final class BatchConverter {
+
+    /**
+     * Converts a single tape file to a PZX file
+     */
+    @FunctionalInterface
+    interface TapeConverter {
+        /**
+         * @param tapeFile the source tape file
+         * @param pzxFile  the destination PZX file
+         * @return the length of the tape in seconds
+         * @throws Exception if the file could not be converted
+         */
+        double convert(Path tapeFile, Path pzxFile) throws Exception;
+    }
+
+    private final int numThreads;
+    private final TapeConverter converter;
+
+    /**
+     * Construct a new BatchConverter.
+     *
+     * @param numThreads the number of files to convert at the same time
+     * @param converter  converts each file
+     * @throws IllegalArgumentException if numThreads is less than 1
+     * @throws NullPointerException     if converter is null
+     */
+    BatchConverter(int numThreads, TapeConverter converter) {
+        checkArgument(numThreads > 0, "numThreads must be greater than 0");
+        this.numThreads = numThreads;
+        this.converter = checkNotNull(converter, "converter must not be null");
+    }
+
+    /**
+     * Find the tape files named by a directory or a glob pattern. All tape files directly in a directory are returned,
+     * a glob is matched against paths below the last directory before the first glob character.
+     *
+     * @param directoryOrGlob the directory containing the tape files or a glob pattern matching them
+     * @param isTapeFile      determines whether a file name is a supported tape file
+     * @return the tape files found in name order
+     * @throws IOException if there is an error reading the directories
+     */
+    static List<Path> findTapeFiles(String directoryOrGlob, Predicate<String> isTapeFile) throws IOException {
+        checkNotNull(directoryOrGlob, "directoryOrGlob must not be null");
+        checkNotNull(isTapeFile, "isTapeFile must not be null");
+
+        int firstGlobCharacter = indexOfGlobCharacter(directoryOrGlob);
+        if (firstGlobCharacter == -1) {
+            return findTapeFiles(Paths.get(directoryOrGlob), 1, path -> true, isTapeFile);
+        }
+
+        // Search from the deepest directory that does not contain a glob character
+        int lastSeparator = Math.max(directoryOrGlob.lastIndexOf('/', firstGlobCharacter),
+                directoryOrGlob.lastIndexOf(File.separatorChar, firstGlobCharacter));
+        Path directory = lastSeparator == -1 ? Paths.get(".") :
+                Paths.get(directoryOrGlob.substring(0, lastSeparator + 1));
+        String glob = directoryOrGlob.substring(lastSeparator + 1);
+
+        int maxDepth = glob.contains("**") ? Integer.MAX_VALUE : glob.split("/").length;
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+
+        return findTapeFiles(directory, maxDepth, path -> matcher.matches(directory.relativize(path)), isTapeFile);
+    }
+
+    private static List<Path> findTapeFiles(Path directory, int maxDepth, Predicate<Path> matcher,
+                                            Predicate<String> isTapeFile) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory, maxDepth)) {
+            return paths
+                    .filter(Files::isRegularFile)
+                    .filter(matcher)
+                    .filter(path -> isTapeFile.test(path.getFileName().toString()))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static int indexOfGlobCharacter(String directoryOrGlob) {
+        for (int i = 0; i < directoryOrGlob.length(); i++) {
+            if ("*?[{".indexOf(directoryOrGlob.charAt(i)) != -1) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get the name of the PZX file for a tape file, which replaces the extension of the tape file with .pzx
+     *
+     * @param tapeFile        the source tape file
+     * @param outputDirectory the directory for the PZX file, the directory of the tape file is used if null
+     * @return the PZX file
+     */
+    static Path getPzxFile(Path tapeFile, Path outputDirectory) {
+        String fileName = tapeFile.getFileName().toString();
+        int extension = fileName.lastIndexOf('.');
+        String pzxFileName = (extension > 0 ? fileName.substring(0, extension) : fileName) + ".pzx";
+        return outputDirectory != null ? outputDirectory.resolve(pzxFileName) : tapeFile.resolveSibling(pzxFileName);
+    }
+
+    /**
+     * Convert each of the tape files, reporting the result of each conversion as it completes.
+     *
+     * @param tapeFiles       the source tape files
+     * @param outputDirectory the directory for the PZX files, each is written next to its tape file if null
+     * @return the summary of the batch
+     */
+    Summary convert(List<Path> tapeFiles, Path outputDirectory) {
+        checkNotNull(tapeFiles, "tapeFiles must not be null");
+
+        long startTime = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            CompletionService<Double> completionService = new ExecutorCompletionService<>(executor);
+            for (Path tapeFile : tapeFiles) {
+                Path pzxFile = getPzxFile(tapeFile, outputDirectory);
+                completionService.submit(() -> {
+                    try {
+                        double tapeLength = converter.convert(tapeFile, pzxFile);
+                        System.out.println("Converted " + tapeFile + " to " + pzxFile);
+                        return tapeLength;
+                    } catch (Exception e) {
+                        throw new BatchConversionException(tapeFile, e);
+                    }
+                });
+            }
+
+            int numConverted = 0;
+            double tapeSeconds = 0;
+            for (int i = 0; i < tapeFiles.size(); i++) {
+                try {
+                    tapeSeconds += completionService.take().get();
+                    numConverted++;
+                } catch (ExecutionException e) {
+                    reportFailure(e.getCause());
+                }
+            }
+
+            return new Summary(tapeFiles.size(), numConverted, tapeSeconds, System.nanoTime() - startTime);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while converting files", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void reportFailure(Throwable failure) {
+        if (failure instanceof BatchConversionException) {
+            BatchConversionException batchConversionException = (BatchConversionException) failure;
+            System.err.println("Error converting " + batchConversionException.tapeFile + ": " +
+                    batchConversionException.getCause().toString());
+        } else {
+            System.err.println("Error converting file: " + failure.toString());
+        }
+        Logger.getLogger(BatchConverter.class.getName()).log(Level.FINE, failure.toString(), failure);
+    }
+
+    private static final class BatchConversionException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        // Path isn't Serializable, the exception never leaves this class so it doesn't need to survive serialisation
+        private final transient Path tapeFile;
+
+        BatchConversionException(Path tapeFile, Throwable cause) {
+            super(cause);
+            this.tapeFile = tapeFile;
+        }
+    }
+
+    /**
+     * The outcome of converting a batch of files.
+     */
+    static final class Summary {
+        private final int numFiles;
+        private final int numConverted;
+        private final double tapeSeconds;
+        private final long elapsedNanos;
+
+        Summary(int numFiles, int numConverted, double tapeSeconds, long elapsedNanos) {
+            this.numFiles = numFiles;
+            this.numConverted = numConverted;
+            this.tapeSeconds = tapeSeconds;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * @return the number of files in the batch
+         */
+        int getNumFiles() {
+            return numFiles;
+        }
+
+        /**
+         * @return the number of files converted without error
+         */
+        int getNumConverted() {
+            return numConverted;
+        }
+
+        /**
+         * @return the total length of the converted tapes in seconds
+         */
+        double getTapeSeconds() {
+            return tapeSeconds;
+        }
+
+        /**
+         * @return the time taken to convert the batch in seconds
+         */
+        double getElapsedSeconds() {
+            return elapsedNanos / 1e9;
+        }
+
+        /**
+         * @return the number of files converted per second
+         */
+        double getFilesPerSecond() {
+            return elapsedNanos == 0 ? 0 : numConverted / getElapsedSeconds();
+        }
+
+        /**
+         * @return the seconds of tape converted per second
+         */
+        double getTapeSecondsPerSecond() {
+            return elapsedNanos == 0 ? 0 : tapeSeconds / getElapsedSeconds();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Converted %d of %d files in %.2f s: %.2f files/s, %.2f audio-seconds/s",
+                    numConverted, numFiles, getElapsedSeconds(), getFilesPerSecond(), getTapeSecondsPerSecond());
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2016, Fredrick Meunier
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package xyz.meunier.wav2pzx;
+
+import xyz.meunier.wav2pzx.blocks.PZXBlock;
+import xyz.meunier.wav2pzx.blocks.PZXDataBlock;
+import xyz.meunier.wav2pzx.generaldecoder.PZXBuilder;
+import xyz.meunier.wav2pzx.pulselist.PulseList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Decodes the pulses of the same recording produced by different triggers and combines the results, taking each
+ * data block from a decode whose checksum passes where possible.
+ * <p>
+ * The decode with the most passing checksums is used as the basis of the tape. Each of its data blocks with a failed
+ * checksum is replaced by a data block with a passing checksum from the same point in another decode, trying the
+ * decodes in the order they were supplied.
+ *
+ * @author Fredrick Meunier
+ */
+final class MultiTriggerDecoder {
+
+    private static final Logger LOGGER = Logger.getLogger(MultiTriggerDecoder.class.getName());
+
+    private MultiTriggerDecoder() {
+    }
+
+    /**
+     * Analyse the PulseLists in parallel on the common fork/join pool and combine the resulting tapes.
+     *
+     * @param pulseLists the pulses of the same recording from each trigger, in order of preference
+     * @return the combined PZX tape
+     * @throws NullPointerException if pulseLists is null
+     * @throws IllegalArgumentException if pulseLists is empty
+     */
+    static List<PZXBlock> decode(List<PulseList> pulseLists) {
+        checkNotNull(pulseLists, "pulseLists must not be null");
+        checkArgument(!pulseLists.isEmpty(), "At least one PulseList is required");
+
+        // Decode on the common fork/join pool shared with the segmented decoders rather than a pool of our own
+        List<List<PZXBlock>> tapes = pulseLists.parallelStream()
+                .map(PZXBuilder::buildPZXTapeList)
+                .collect(toList());
+        return selectBlocks(tapes);
+    }
+
+    /**
+     * Combine the decodes of the same recording, see {@link MultiTriggerDecoder}.
+     *
+     * @param tapes the decodes of the same recording, in order of preference
+     * @return the combined PZX tape
+     * @throws NullPointerException if tapes is null
+     * @throws IllegalArgumentException if tapes is empty
+     */
+    static List<PZXBlock> selectBlocks(List<List<PZXBlock>> tapes) {
+        checkNotNull(tapes, "tapes must not be null");
+        checkArgument(!tapes.isEmpty(), "At least one tape is required");
+
+        int best = 0;
+        int bestPassed = -1;
+        for (int i = 0; i < tapes.size(); i++) {
+            int passed = countPassingChecksums(tapes.get(i));
+            if (passed > bestPassed) {
+                best = i;
+                bestPassed = passed;
+            }
+        }
+
+        List<long[]> startTimes = new ArrayList<>(tapes.size());
+        for (List<PZXBlock> tape : tapes) {
+            startTimes.add(getStartTimes(tape));
+        }
+
+        List<PZXBlock> baseTape = tapes.get(best);
+        long[] baseStartTimes = startTimes.get(best);
+        List<PZXBlock> result = new ArrayList<>(baseTape);
+        int replaced = 0;
+        for (int i = 0; i < baseTape.size(); i++) {
+            PZXBlock block = baseTape.get(i);
+            if (!(block instanceof PZXDataBlock) || ((PZXDataBlock) block).checkChecksum()) continue;
+
+            PZXBlock replacement =
+                    findPassingBlock(tapes, startTimes, best, baseStartTimes[i], baseStartTimes[i + 1]);
+            if (replacement != null) {
+                result.set(i, replacement);
+                replaced++;
+            }
+        }
+
+        LOGGER.log(Level.FINE, String.format("Decode %d of %d had %d passing checksums, replaced %d failed blocks",
+                best + 1, tapes.size(), bestPassed, replaced));
+
+        return result;
+    }
+
+    private static int countPassingChecksums(List<PZXBlock> tape) {
+        int passed = 0;
+        for (PZXBlock block : tape) {
+            if (block instanceof PZXDataBlock && ((PZXDataBlock) block).checkChecksum()) {
+                passed++;
+            }
+        }
+        return passed;
+    }
+
+    // The start time of each block in T states, with the end of the tape as the final entry
+    private static long[] getStartTimes(List<PZXBlock> tape) {
+        long[] startTimes = new long[tape.size() + 1];
+        long time = 0;
+        for (int i = 0; i < tape.size(); i++) {
+            startTimes[i] = time;
+            time += tape.get(i).getPulseRuns().getTotalDuration();
+        }
+        startTimes[tape.size()] = time;
+        return startTimes;
+    }
+
+    // Find a data block with a passing checksum whose midpoint lies within the supplied span
+    private static PZXBlock findPassingBlock(List<List<PZXBlock>> tapes, List<long[]> startTimes, int skip,
+                                             long start, long end) {
+        for (int i = 0; i < tapes.size(); i++) {
+            if (i == skip) continue;
+
+            List<PZXBlock> tape = tapes.get(i);
+            long[] times = startTimes.get(i);
+            for (int j = 0; j < tape.size() && times[j] < end; j++) {
+                PZXBlock block = tape.get(j);
+                long midpoint = times[j] + (times[j + 1] - times[j]) / 2;
+                if (midpoint >= start && midpoint < end && block instanceof PZXDataBlock &&
+                        ((PZXDataBlock) block).checkChecksum()) {
+                    return block;
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -26,13 +26,19 @@
 package xyz.meunier.wav2pzx;
 
 import xyz.meunier.wav2pzx.blocks.PZXBlock;
+import xyz.meunier.wav2pzx.blocks.PZXTableOfContents;
 import xyz.meunier.wav2pzx.generaldecoder.PZXBuilder;
+import xyz.meunier.wav2pzx.generaldecoder.PulseQuantizer;
+import xyz.meunier.wav2pzx.generaldecoder.StreamingPZXBuilder;
+import xyz.meunier.wav2pzx.input.AudioFileOptions;
 import xyz.meunier.wav2pzx.input.AudioFileTape;
 import xyz.meunier.wav2pzx.input.TextFileTape;
+import xyz.meunier.wav2pzx.input.triggers.AdaptiveSchmittTrigger;
 import xyz.meunier.wav2pzx.input.triggers.Bistable;
 import xyz.meunier.wav2pzx.input.triggers.SchmittTrigger;
 import xyz.meunier.wav2pzx.input.triggers.SimpleBistable;
 import xyz.meunier.wav2pzx.pulselist.PulseList;
+import xyz.meunier.wav2pzx.pulselist.PulseRuns;
 import xyz.meunier.wav2pzx.romdecoder.LoaderContextImpl;
 
 import javax.sound.sampled.UnsupportedAudioFileException;
@@ -40,12 +46,21 @@ import java.io.BufferedOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import static com.google.common.base.Preconditions.checkState;
 
 /**
  * Classic 8 bit Sinclair computers like the ZX Spectrum store program data on
@@ -57,7 +72,9 @@ import java.util.logging.Logger;
  * The specification is at the <a href="http://zxds.raxoft.cz/pzx.html">PZX home page</a>
  * <p>
  * This program reads a WAV format audio sample of a tape recording for these
- * machines and converts it to the efficient PZX format.
+ * machines and converts it to the efficient PZX format. WAV files are converted
+ * as they are read, writing each PZX block as soon as it is complete, so long
+ * recordings can be converted without holding the whole tape in memory.
  *
  * @author Fredrick Meunier
  */
@@ -72,12 +89,31 @@ public class WAV2PZX {
 
     private enum Trigger {
         SIMPLE,
-        SCHMITT
+        SCHMITT,
+        ADAPTIVE,
+        BEST
     }
 
     private static final EncodingVersion version = EncodingVersion.V20;
 
-    private static final Trigger triggerType = Trigger.SCHMITT;
+    private static final String TRIGGER_OPTION = "--trigger=";
+
+    private static Trigger triggerType = Trigger.SCHMITT;
+
+    private static final String QUANTIZE_OPTION = "--quantize=";
+
+    // The most each pulse in a pulse block may be moved by to make runs of equal pulses, 0 to keep them exact
+    private static long maxQuantizeError = 0;
+
+    private static final String INTERPOLATE_OPTION = "--interpolate";
+
+    // Whether to time edges between samples rather than at the sample that switched level
+    private static boolean interpolateEdges = false;
+
+    private static final String FILTER_OPTION = "--filter";
+
+    // Whether to filter WAV samples to the band used by tape loaders before the trigger sees them
+    private static boolean filterSamples = false;
 
     /*
      * Any durations are expressed in T cycles of standard 48k Spectrum CPU.
@@ -88,10 +124,58 @@ public class WAV2PZX {
     /**
      * Main entry point for WAV2PZX. Two arguments are expected, first the
      * source WAV filename and second the destination PZX file name.
+     * <p>
+     * Alternatively the first argument can be --batch, followed by a directory or
+     * glob naming the source files and optionally the directory for the PZX files.
+     * <p>
+     * Either form can be preceded by --trigger=simple, schmitt or adaptive to choose
+     * how samples are converted to levels, the default is schmitt. --trigger=best
+     * converts WAV files with several triggers at once and keeps the data blocks
+     * whose checksums pass.
+     * <p>
+     * --quantize=n replaces pulses in pulse blocks that are within n T-states of
+     * each other by their average to shrink the PZX file, no pulse is moved by
+     * more than n T-states.
+     * <p>
+     * --interpolate times each edge where the signal crossed the trigger's
+     * threshold, interpolated between the samples either side of it, rather than
+     * at the sample that switched level. The adaptive trigger always uses whole
+     * samples.
+     * <p>
+     * --filter passes WAV samples through a band-pass filter tuned to the
+     * frequencies used by tape loaders before the trigger sees them, removing
+     * the hiss that produces spurious short pulses in noisy recordings.
      *
      * @param args program arguments, two are expected - the source WAV and the destination PZX file names
      */
     public static void main(String[] args) {
+        while (args.length > 0 && (args[0].startsWith(TRIGGER_OPTION) || args[0].startsWith(QUANTIZE_OPTION)
+                || args[0].equals(INTERPOLATE_OPTION) || args[0].equals(FILTER_OPTION))) {
+            try {
+                if (args[0].equals(INTERPOLATE_OPTION)) {
+                    interpolateEdges = true;
+                } else if (args[0].equals(FILTER_OPTION)) {
+                    filterSamples = true;
+                } else if (args[0].startsWith(TRIGGER_OPTION)) {
+                    triggerType = Trigger.valueOf(args[0].substring(TRIGGER_OPTION.length()).toUpperCase());
+                } else {
+                    maxQuantizeError = Long.parseLong(args[0].substring(QUANTIZE_OPTION.length()));
+                    if (maxQuantizeError < 0) {
+                        throw new IllegalArgumentException("Quantize error must not be negative");
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                usage();
+                return;
+            }
+            args = Arrays.copyOfRange(args, 1, args.length);
+        }
+
+        if (args.length > 0 && args[0].equals("--batch")) {
+            batch(args);
+            return;
+        }
+
         if (args.length < 2) {
             usage();
             return;
@@ -100,37 +184,13 @@ public class WAV2PZX {
         final String fileIn = args[0];
         final String pzxFileOut = args[1];
 
-        if (fileIn.isEmpty() || pzxFileOut.isEmpty()) {
+        if (fileIn.isEmpty() || pzxFileOut.isEmpty() || !isSupportedTapeFile(fileIn)) {
             usage();
             return;
         }
 
         try {
-            // Read and convert the source WAV file from samples to a list of 0/1 pulses in units of TARGET_HZ
-            PulseList pulseList;
-            if (fileIn.toLowerCase().endsWith(".wav")) {
-                // TODO Allow selection of Bistable on the command line
-                Bistable trigger = triggerType == Trigger.SIMPLE ? new SimpleBistable() : new SchmittTrigger();
-                // Read and convert the source WAV file from samples to a list of 0/1 pulses in units of TARGET_HZ
-                pulseList = AudioFileTape.buildPulseList(fileIn, TARGET_HZ, trigger);
-            } else if (fileIn.toLowerCase().endsWith(".txt")) {
-                pulseList = TextFileTape.buildPulseList(fileIn);
-            } else {
-                usage();
-                return;
-            }
-
-            // Analyse the source data and translate into an equivalent list of PZX tape blocks
-            List<PZXBlock> pzxTape =
-                    version == EncodingVersion.V20 ?
-                            PZXBuilder.buildPZXTapeList(pulseList) :
-                            LoaderContextImpl.buildPZXTapeList(pulseList);
-
-            if (dumpPulses) {
-                dumpPulses(pzxTape);
-            }
-
-            writePzxFile(pzxFileOut, pzxTape);
+            convert(fileIn, pzxFileOut, true);
         } catch (FileNotFoundException e) {
             System.err.println("Error opening file " + fileIn + ": " + e.getMessage());
             usage();
@@ -140,35 +200,232 @@ public class WAV2PZX {
         } catch (IOException e) {
             System.err.println("Error with file " + fileIn + ": " + e.toString());
             Logger.getLogger(WAV2PZX.class.getName()).log(Level.FINE, e.toString(), e);
+        } catch (UncheckedIOException ex) {
+            System.err.println("Error writing file " + pzxFileOut + ": " + ex.getCause().getMessage());
+            Logger.getLogger(WAV2PZX.class.getName()).log(Level.FINE, ex.toString(), ex);
+        }
+    }
+
+    private static void batch(String[] args) {
+        if (args.length < 2 || args.length > 3 || args[1].isEmpty()) {
+            usage();
+            return;
+        }
+
+        try {
+            List<Path> tapeFiles = BatchConverter.findTapeFiles(args[1], WAV2PZX::isSupportedTapeFile);
+            Path outputDirectory = args.length > 2 ? Paths.get(args[2]) : null;
+
+            BatchConverter batchConverter =
+                    new BatchConverter(Runtime.getRuntime().availableProcessors(),
+                            (tapeFile, pzxFile) -> convert(tapeFile.toString(), pzxFile.toString(), false));
+            BatchConverter.Summary summary = batchConverter.convert(tapeFiles, outputDirectory);
+
+            System.out.println(summary);
+        } catch (IOException e) {
+            System.err.println("Error finding files " + args[1] + ": " + e.toString());
+            Logger.getLogger(WAV2PZX.class.getName()).log(Level.FINE, e.toString(), e);
+        }
+    }
+
+    private static boolean isSupportedTapeFile(String fileName) {
+        String lowerCaseFileName = fileName.toLowerCase();
+        return lowerCaseFileName.endsWith(".wav") || lowerCaseFileName.endsWith(".txt");
+    }
+
+    /*
+     * Convert a single tape file to a PZX file, returning the length of the tape in seconds. Errors writing the
+     * PZX file are reported with an UncheckedIOException.
+     */
+    private static double convert(String fileIn, String pzxFileOut, boolean printSummaries)
+            throws IOException, UnsupportedAudioFileException {
+        if (fileIn.toLowerCase().endsWith(".wav") && triggerType == Trigger.BEST) {
+            return convertWithBestTriggers(fileIn, pzxFileOut, printSummaries);
+        }
+
+        // WAV files are always streamed through the V20 decoder
+        if (fileIn.toLowerCase().endsWith(".wav")) {
+            return streamPzxFile(fileIn, pzxFileOut, printSummaries);
+        }
+
+        // Read the source text file of pulses in units of TARGET_HZ
+        PulseList pulseList = TextFileTape.buildPulseList(fileIn);
+
+        // Analyse the source data and translate into an equivalent list of PZX tape blocks
+        List<PZXBlock> pzxTape = quantize(
+                version == EncodingVersion.V20 ?
+                        PZXBuilder.buildPZXTapeList(pulseList) :
+                        LoaderContextImpl.buildPZXTapeList(pulseList));
+
+        if (dumpPulses) {
+            dumpPulses(pzxTape);
+        }
+
+        writePzxFile(pzxFileOut, pzxTape, printSummaries);
+
+        return getTapeLength(pulseList);
+    }
+
+    // The pulses are in T-states, so their total is the length of the tape in seconds once divided by TARGET_HZ
+    private static double getTapeLength(PulseList pulseList) {
+        return pulseList.stream().sum() / TARGET_HZ;
+    }
+
+    /*
+     * Convert a WAV file with each of the triggers from getBestTriggers, sharing one read of the file, and write
+     * the data blocks from whichever trigger passed their checksums.
+     */
+    private static double convertWithBestTriggers(String fileIn, String pzxFileOut, boolean printSummaries)
+            throws IOException, UnsupportedAudioFileException {
+        List<PulseList> pulseLists = AudioFileTape.buildPulseLists(fileIn, TARGET_HZ, getBestTriggers(),
+                getAudioFileOptions());
+
+        List<PZXBlock> pzxTape = quantize(MultiTriggerDecoder.decode(pulseLists));
+
+        if (dumpPulses) {
+            dumpPulses(pzxTape);
+        }
+
+        writePzxFile(pzxFileOut, pzxTape, printSummaries);
+
+        return getTapeLength(pulseLists.get(0));
+    }
+
+    // The triggers tried by --trigger=best, in order of preference
+    private static List<Bistable> getBestTriggers() {
+        return Arrays.asList(new SchmittTrigger(SchmittTrigger.DEFAULT_THRESHOLD, interpolateEdges),
+                new AdaptiveSchmittTrigger(), new SimpleBistable(interpolateEdges),
+                new SchmittTrigger(SchmittTrigger.DEFAULT_THRESHOLD / 2, interpolateEdges),
+                new SchmittTrigger(SchmittTrigger.DEFAULT_THRESHOLD * 2, interpolateEdges));
+    }
+
+    private static Bistable getTrigger() {
+        switch (triggerType) {
+            case SIMPLE:
+                return new SimpleBistable(interpolateEdges);
+            case ADAPTIVE:
+                return new AdaptiveSchmittTrigger();
+            default:
+                return new SchmittTrigger(SchmittTrigger.DEFAULT_THRESHOLD, interpolateEdges);
+        }
+    }
+
+    private static AudioFileOptions getAudioFileOptions() {
+        return AudioFileOptions.DEFAULT.withFilterSamples(filterSamples);
+    }
+
+    /*
+     * Read the source WAV file and write each PZX block to the destination file as soon as it is complete, so only
+     * the blocks still being analysed are held in memory.
+     */
+    private static double streamPzxFile(String fileIn, String pzxFileOut, boolean printSummaries)
+            throws IOException, UnsupportedAudioFileException {
+        Path pzxFile = Paths.get(pzxFileOut);
+        try {
+            return streamPzxFile(fileIn, pzxFile, printSummaries);
+        } catch (IOException | UnsupportedAudioFileException | RuntimeException e) {
+            // Don't leave a partial PZX file behind
+            Files.deleteIfExists(pzxFile);
+            throw e;
+        }
+    }
+
+    private static double streamPzxFile(String fileIn, Path pzxFile, boolean printSummaries)
+            throws IOException, UnsupportedAudioFileException {
+        try (FileChannel out = openPzxFile(pzxFile);
+             OutputStream pulses = dumpPulses ?
+                     new BufferedOutputStream(Files.newOutputStream(Paths.get("pulseDump.txt"))) : null) {
+            StreamingPZXBuilder pzxBuilder = new StreamingPZXBuilder(block -> {
+                try {
+                    PZXBlock quantizedBlock = PulseQuantizer.quantize(block, maxQuantizeError);
+                    writePzxBlock(out, quantizedBlock, printSummaries);
+                    if (pulses != null) {
+                        dumpPulses(pulses, quantizedBlock);
+                    }
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+
+            double tapeLength = AudioFileTape.streamPulses(fileIn, TARGET_HZ, getTrigger(), pzxBuilder,
+                    getAudioFileOptions());
+            pzxBuilder.complete();
+            return tapeLength;
         }
     }
 
     private static void dumpPulses(List<PZXBlock> pzxTape) throws IOException {
         try (OutputStream pulses = new BufferedOutputStream(Files.newOutputStream(Paths.get("pulseDump.txt")))) {
             for (PZXBlock block : pzxTape) {
-                for (Long pulse : block.getPulses()) {
-                    pulses.write(String.format("%d%n", pulse).getBytes());
-                }
+                dumpPulses(pulses, block);
             }
         }
     }
 
-    private static void writePzxFile(String pzxFileOut, Iterable<PZXBlock> pzxTape) {
+    private static void dumpPulses(OutputStream pulses, PZXBlock block) throws IOException {
+        PulseRuns runs = block.getPulseRuns();
+        for (int i = 0; i < runs.size(); i++) {
+            // Each pulse is written on its own line, so format the line once for the whole run
+            byte[] line = String.format("%d%n", runs.getDuration(i)).getBytes();
+            for (int j = 0; j < runs.getCount(i); j++) {
+                pulses.write(line);
+            }
+        }
+    }
+
+    // Quantize the blocks once so the same blocks are dumped and written
+    private static List<PZXBlock> quantize(List<PZXBlock> pzxTape) {
+        return pzxTape.stream()
+                .map(block -> PulseQuantizer.quantize(block, maxQuantizeError))
+                .collect(Collectors.toList());
+    }
+
+    /*
+     * Write a tape whose blocks are all known up front. The sizes of the blocks are worked out first so the contents
+     * can be listed and the file allocated at its final length before any block is written.
+     */
+    private static void writePzxFile(String pzxFileOut, List<PZXBlock> blocks, boolean printSummaries) {
         Path pzxFile = Paths.get(pzxFileOut);
+        PZXTableOfContents contents = new PZXTableOfContents(blocks);
+
+        if (printSummaries) {
+            System.out.println(contents);
+        }
 
         // Overwrite the destination file with the extracted PZX data
-        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(pzxFile))) {
-            for (PZXBlock block : pzxTape) {
-                System.out.println(block.getSummary());
-                out.write(block.getPZXBlockDiskRepresentation());
+        try (FileChannel out = openPzxFile(pzxFile)) {
+            if (contents.getTotalSize() > 0) {
+                // Extend the file to its final length with a write of its last byte
+                out.write(ByteBuffer.allocate(1), contents.getTotalSize() - 1);
             }
+            for (PZXBlock block : blocks) {
+                writePzxBlock(out, block, printSummaries);
+            }
+            checkState(out.position() == contents.getTotalSize(),
+                    "Wrote %s bytes, expected %s", out.position(), contents.getTotalSize());
         } catch (IOException ex) {
-            System.err.println("Error writing file " + pzxFileOut + ": " + ex.getMessage());
-            Logger.getLogger(WAV2PZX.class.getName()).log(Level.FINE, ex.toString(), ex);
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static FileChannel openPzxFile(Path pzxFile) throws IOException {
+        return FileChannel.open(pzxFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+    }
+
+    /*
+     * Stream the block straight to the channel, large blocks are written without building the whole block in memory.
+     */
+    private static void writePzxBlock(WritableByteChannel out, PZXBlock block, boolean printSummary)
+            throws IOException {
+        if (printSummary) {
+            System.out.println(block.getSummary());
         }
+        block.writeTo(out);
     }
 
     private static void usage() {
-        System.err.println("wav2pzx: usage: wav2pzx <infile.wav or txt> <outfile.pzx>");
+        System.err.println("wav2pzx: usage: wav2pzx [--trigger=simple|schmitt|adaptive|best] [--quantize=<max error>] [--interpolate] [--filter] <infile.wav or txt> <outfile.pzx>");
+        System.err.println("        wav2pzx [--trigger=simple|schmitt|adaptive|best] [--quantize=<max error>] [--interpolate] [--filter] --batch <directory or glob> [output directory]");
     }
 }
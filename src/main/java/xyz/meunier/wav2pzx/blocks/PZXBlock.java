@@ -25,6 +25,10 @@
  */
 package xyz.meunier.wav2pzx.blocks;
 
+import xyz.meunier.wav2pzx.pulselist.PulseRuns;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
 import java.util.List;
 
 /**
@@ -39,6 +43,36 @@ public interface PZXBlock {
      */
     byte[] getPZXBlockDiskRepresentation();
 
+    /**
+     * Return the exact size of the on-disk PZX format data for this block, including the block
+     * header, without encoding the block
+     * @return the size in bytes of the PZX disk format data
+     */
+    long getEncodedSize();
+
+    /**
+     * Encode the on-disk PZX format data for this block into the supplied encoder
+     * @param encoder the destination for the PZX disk format data
+     * @throws NullPointerException if encoder is null
+     */
+    default void encodeTo(PZXBlockEncoder encoder) {
+        encoder.putBytes(getPZXBlockDiskRepresentation());
+    }
+
+    /**
+     * Write the on-disk PZX format data for this block to the supplied channel. Blocks
+     * with large payloads write them directly rather than building the whole block in
+     * memory first.
+     * @param channel the destination for the PZX disk format data
+     * @throws IOException if there is an error writing to the channel
+     * @throws NullPointerException if channel is null
+     */
+    default void writeTo(WritableByteChannel channel) throws IOException {
+        PZXBlockEncoder encoder = new PZXBlockEncoder((int) getEncodedSize(), false);
+        encodeTo(encoder);
+        encoder.writeTo(channel);
+    }
+
     /**
      * Dump a user-readable summary of the block to a string
      * @return the user-readable summary of the tape block
@@ -51,6 +85,14 @@ public interface PZXBlock {
      */
     List<Long> getPulses();
 
+    /**
+     * Return the runs of equal pulses corresponding to the tape block
+     * @return the runs of equal pulses corresponding to the tape block
+     */
+    default PulseRuns getPulseRuns() {
+        return PulseRuns.of(getPulses());
+    }
+
     /**
      * @return the level (0 or 1) for the first pulse in the block
      */
@@ -0,0 +1,369 @@
+/*
+ * Copyright (c) 2016, Fredrick Meunier
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package xyz.meunier.wav2pzx.blocks;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Encodes PZX blocks directly into a reusable, growable ByteBuffer without boxing or intermediate copies.
+ * <p>
+ * A block is written by calling {@link #startBlock(String)}, adding its payload with the put methods and then
+ * calling {@link #endBlock()}, which fills in the size field reserved by startBlock. Any number of blocks can be
+ * encoded before the buffer is written out with {@link #writeTo(WritableByteChannel)} or copied with
+ * {@link #toByteArray()}.
+ *
+ * @author Fredrick Meunier
+ */
+public final class PZXBlockEncoder {
+
+    /**
+     * The default initial capacity of the buffer in bytes
+     */
+    public static final int DEFAULT_CAPACITY = 64 * 1024;
+
+    /**
+     * The size of the tag and size fields at the start of every block
+     */
+    public static final int BLOCK_HEADER_SIZE = 8;
+
+    // Mask for bottom 31 bits
+    private static final long LOW_31_BITS_MASK = 0x7fffffffL;
+    // High bit of a 16 bit integer
+    private static final int BIT_16_MASK = 0x8000;
+    // Mask for bottom 15 bits
+    private static final int LOW_15_BITS_MASK = 0x7fff;
+
+    private final boolean direct;
+    private ByteBuffer buffer;
+
+    // The position of the size field of the block being encoded, or -1 between blocks
+    private int sizePosition = -1;
+
+    /**
+     * Construct a new PZXBlockEncoder with a direct buffer of the default capacity.
+     */
+    public PZXBlockEncoder() {
+        this(DEFAULT_CAPACITY, true);
+    }
+
+    /**
+     * Construct a new PZXBlockEncoder.
+     * @param initialCapacity the initial size of the buffer in bytes, it grows as required
+     * @param direct whether to use a direct buffer, which is best for writing to channels
+     * @throws IllegalArgumentException if initialCapacity is less than 1
+     */
+    public PZXBlockEncoder(int initialCapacity, boolean direct) {
+        checkArgument(initialCapacity > 0, "initialCapacity must be greater than 0");
+        this.direct = direct;
+        this.buffer = allocate(initialCapacity);
+    }
+
+    private ByteBuffer allocate(int capacity) {
+        ByteBuffer newBuffer = direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+        return newBuffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // Make room for at least the supplied number of bytes after the current position
+    private void ensureRemaining(int needed) {
+        if (buffer.remaining() >= needed) return;
+
+        long required = (long) buffer.position() + needed;
+        checkState(required <= Integer.MAX_VALUE, "PZX output is too large to buffer");
+        int newCapacity = (int) Math.max(required, Math.min(2L * buffer.capacity(), Integer.MAX_VALUE - 8));
+        ByteBuffer newBuffer = allocate(newCapacity);
+        buffer.flip();
+        newBuffer.put(buffer);
+        buffer = newBuffer;
+    }
+
+    /**
+     * Start a new block, writing its tag and reserving space for its size.
+     * @param headerTag the four letter tag for the block
+     * @return this encoder
+     * @throws NullPointerException if headerTag is null
+     * @throws IllegalArgumentException if headerTag is not four ASCII characters
+     * @throws IllegalStateException if a block has been started and not ended
+     */
+    public PZXBlockEncoder startBlock(String headerTag) {
+        putBlockHeader(headerTag, 0);
+        sizePosition = buffer.position() - 4;
+        return this;
+    }
+
+    /**
+     * Write the tag and size of a block whose size is already known, for blocks whose payload is written
+     * separately.
+     * @param headerTag the four letter tag for the block
+     * @param size the size of the payload of the block in bytes
+     * @return this encoder
+     * @throws NullPointerException if headerTag is null
+     * @throws IllegalArgumentException if headerTag is not four ASCII characters
+     * @throws IllegalStateException if a block has been started and not ended
+     */
+    public PZXBlockEncoder putBlockHeader(String headerTag, int size) {
+        checkNotNull(headerTag, "headerTag must not be null");
+        checkArgument(headerTag.length() == 4, "headerTag must have 4 characters: " + headerTag);
+        checkState(sizePosition < 0, "Previous block has not been ended");
+
+        ensureRemaining(BLOCK_HEADER_SIZE);
+        for (int i = 0; i < 4; i++) {
+            char c = headerTag.charAt(i);
+            checkArgument(c < 0x80, "headerTag must be ASCII: " + headerTag);
+            buffer.put((byte) c);
+        }
+        buffer.putInt(size);
+        return this;
+    }
+
+    /**
+     * End the current block, filling in its size field.
+     * @return this encoder
+     * @throws IllegalStateException if no block has been started
+     */
+    public PZXBlockEncoder endBlock() {
+        checkState(sizePosition >= 0, "No block has been started");
+        buffer.putInt(sizePosition, buffer.position() - sizePosition - 4);
+        sizePosition = -1;
+        return this;
+    }
+
+    /**
+     * Encode a complete block with the supplied payload.
+     * @param headerTag the four letter tag for the block
+     * @param payload the data payload of the block
+     * @return this encoder
+     * @throws NullPointerException if headerTag or payload is null
+     * @throws IllegalStateException if a block has been started and not ended
+     */
+    public PZXBlockEncoder putBlock(String headerTag, byte[] payload) {
+        checkNotNull(payload, "payload must not be null");
+        return startBlock(headerTag).putBytes(payload).endBlock();
+    }
+
+    /**
+     * Add an 8 bit value to the current block.
+     * @param value the value to add, only the low 8 bits are used
+     * @return this encoder
+     */
+    public PZXBlockEncoder putUnsignedByte(int value) {
+        ensureRemaining(1);
+        buffer.put((byte) value);
+        return this;
+    }
+
+    /**
+     * Add an unsigned 16 bit value in little endian format to the current block.
+     * @param value the value to add, only the low 16 bits are used
+     * @return this encoder
+     */
+    public PZXBlockEncoder putUnsignedLittleEndianShort(int value) {
+        ensureRemaining(2);
+        buffer.putShort((short) value);
+        return this;
+    }
+
+    /**
+     * Add an unsigned 32 bit value in little endian format to the current block.
+     * @param value the value to add
+     * @return this encoder
+     */
+    public PZXBlockEncoder putUnsignedLittleEndianInt(int value) {
+        ensureRemaining(4);
+        buffer.putInt(value);
+        return this;
+    }
+
+    /**
+     * Add bytes to the current block.
+     * @param bytes the bytes to add
+     * @return this encoder
+     * @throws NullPointerException if bytes is null
+     */
+    public PZXBlockEncoder putBytes(byte[] bytes) {
+        checkNotNull(bytes, "bytes must not be null");
+        ensureRemaining(bytes.length);
+        buffer.put(bytes);
+        return this;
+    }
+
+    /**
+     * Add a run of pulses of the same length in the format of the PULS block to the current block. This is the
+     * same encoding as {@link PZXEncodeUtils#addBytesFor(long, long, java.util.List)} except that runs of more than
+     * 0x7fff pulses are split into as many records as are required.
+     * @param pulse the duration of the pulses
+     * @param count the number of pulses, nothing is added if this is less than 1
+     * @return this encoder
+     */
+    public PZXBlockEncoder putPulses(long pulse, long count) {
+        if (count < 1) return this;
+
+        if (pulse > LOW_31_BITS_MASK) {
+            // Encode as "very long pulse" - a stream of one count pulses
+            // interspersed with 1 count, 0 duration pulses to maintain the level
+            for (long i = 0; i < count; i++) {
+                for (long j = 0; j < pulse / LOW_31_BITS_MASK; j++) {
+                    putMultiCyclePulse(LOW_31_BITS_MASK, 1);
+                    putUnsignedLittleEndianShort(0);
+                }
+                if (pulse % LOW_31_BITS_MASK > 0) {
+                    putPulses(pulse % LOW_31_BITS_MASK, 1);
+                } else {
+                    // Remove the unneeded last 0 cycle bit flipper
+                    buffer.position(buffer.position() - 2);
+                }
+            }
+        } else if (count == 1 && pulse <= LOW_15_BITS_MASK) {
+            // can pack in 16 bits, bit 15 is 0 so there is no repeat count
+            putUnsignedLittleEndianShort((int) pulse);
+        } else {
+            for (long remaining = count; remaining > 0; remaining -= LOW_15_BITS_MASK) {
+                putMultiCyclePulse(pulse, (int) Math.min(remaining, LOW_15_BITS_MASK));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Calculate the number of bytes {@link #putPulses(long, long)} adds for a run of pulses without encoding them.
+     * @param pulse the duration of the pulses
+     * @param count the number of pulses
+     * @return the size of the encoded pulses in bytes
+     */
+    static long getPulsesSize(long pulse, long count) {
+        if (count < 1) return 0;
+
+        if (pulse > LOW_31_BITS_MASK) {
+            // Each full length part is a 6 byte pulse and a 2 byte bit flipper, the last flipper is replaced by
+            // the remainder of the pulse if there is one
+            long remainder = pulse % LOW_31_BITS_MASK;
+            long perPulse = pulse / LOW_31_BITS_MASK * 8 + (remainder > 0 ? getPulsesSize(remainder, 1) : -2);
+            return perPulse * count;
+        }
+        if (count == 1 && pulse <= LOW_15_BITS_MASK) return 2;
+
+        long records = (count + LOW_15_BITS_MASK - 1) / LOW_15_BITS_MASK;
+        return records * (pulse > LOW_15_BITS_MASK ? 6 : 4);
+    }
+
+    // Write a pulse with a repeat count and a duration of no more than 0x7fffffff cycles
+    private void putMultiCyclePulse(long duration, int count) {
+        ensureRemaining(6);
+        buffer.putShort((short) (BIT_16_MASK | count));
+        if (duration > LOW_15_BITS_MASK) {
+            buffer.putShort((short) ((duration >> 16) & LOW_15_BITS_MASK | BIT_16_MASK));
+            buffer.putShort((short) duration);
+        } else {
+            buffer.putShort((short) duration);
+        }
+    }
+
+    /**
+     * @return the number of bytes encoded
+     */
+    public int size() {
+        return buffer.position();
+    }
+
+    /**
+     * Discard everything that has been encoded, keeping the buffer for reuse.
+     * @return this encoder
+     */
+    public PZXBlockEncoder clear() {
+        buffer.clear();
+        sizePosition = -1;
+        return this;
+    }
+
+    /**
+     * @return a copy of the bytes encoded
+     * @throws IllegalStateException if a block has been started and not ended
+     */
+    public byte[] toByteArray() {
+        checkState(sizePosition < 0, "Block has not been ended");
+        byte[] bytes = new byte[buffer.position()];
+        ByteBuffer source = buffer.duplicate();
+        source.flip();
+        source.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Write everything encoded to the channel and clear the encoder.
+     * @param channel the destination for the encoded blocks
+     * @throws IOException if there is an error writing to the channel
+     * @throws NullPointerException if channel is null
+     * @throws IllegalStateException if a block has been started and not ended
+     */
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        checkNotNull(channel, "channel must not be null");
+        checkState(sizePosition < 0, "Block has not been ended");
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Write everything encoded followed by the supplied bytes to the channel and clear the encoder. This allows the
+     * fixed fields of a block to be encoded and then written together with a large payload without copying it,
+     * with a single gathering write when the channel supports it.
+     * @param channel the destination for the encoded blocks
+     * @param payload the bytes to write after the encoded data
+     * @throws IOException if there is an error writing to the channel
+     * @throws NullPointerException if channel or payload is null
+     * @throws IllegalStateException if a block has been started and not ended
+     */
+    public void writeTo(WritableByteChannel channel, byte[] payload) throws IOException {
+        checkNotNull(channel, "channel must not be null");
+        checkNotNull(payload, "payload must not be null");
+        checkState(sizePosition < 0, "Block has not been ended");
+        buffer.flip();
+        ByteBuffer payloadBuffer = ByteBuffer.wrap(payload);
+        if (channel instanceof GatheringByteChannel) {
+            ByteBuffer[] buffers = {buffer, payloadBuffer};
+            while (buffer.hasRemaining() || payloadBuffer.hasRemaining()) {
+                ((GatheringByteChannel) channel).write(buffers);
+            }
+        } else {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            while (payloadBuffer.hasRemaining()) {
+                channel.write(payloadBuffer);
+            }
+        }
+        buffer.clear();
+    }
+}
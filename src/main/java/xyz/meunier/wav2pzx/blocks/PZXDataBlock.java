@@ -27,10 +27,13 @@ package xyz.meunier.wav2pzx.blocks;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.primitives.Bytes;
+import xyz.meunier.wav2pzx.databuilder.DataBuilder;
 import xyz.meunier.wav2pzx.pulselist.PulseList;
+import xyz.meunier.wav2pzx.pulselist.PulseRuns;
 
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
@@ -40,7 +43,6 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.collect.ImmutableList.copyOf;
 import static com.google.common.primitives.Longs.asList;
 import static java.lang.Long.valueOf;
-import static xyz.meunier.wav2pzx.blocks.PZXEncodeUtils.*;
 import static xyz.meunier.wav2pzx.romdecoder.LoaderContext.*;
 
 /**
@@ -98,19 +100,65 @@ public final class PZXDataBlock implements PZXBlock {
      */
     public PZXDataBlock(PulseList newPulses, List<Long> zeroPulseLengths, List<Long> onePulseLengths, long tailLength,
                         int numBitsInLastByte, Collection<Byte> data) {
+        this(newPulses, zeroPulseLengths, onePulseLengths, tailLength, numBitsInLastByte,
+                Bytes.toArray(checkNotNull(data, "data must not be null")));
+    }
+
+    /**
+     * Constructs a new PZXDataBlock that takes ownership of the supplied data array without copying it.
+     * @param newPulses the original tape pulses that have been decoded into this block
+     * @param zeroPulseLengths the lengths of the zero pulses in the block
+     * @param onePulseLengths the lengths of the one pulses in the block
+     * @param tailLength the length of the tail pulse in the block
+     * @param numBitsInLastByte the number of bits used in the last byte of the data collection
+     * @param data the decoded data from the tape image, which must not be modified after the call
+     * @throws NullPointerException if newPulses or data is null
+     * @throws IllegalArgumentException if data is empty
+     */
+    public PZXDataBlock(PulseList newPulses, List<Long> zeroPulseLengths, List<Long> onePulseLengths, long tailLength,
+                        int numBitsInLastByte, byte[] data) {
+        this(newPulses, zeroPulseLengths, onePulseLengths, tailLength, numBitsInLastByte, data,
+                calcChecksum(checkNotNull(data, "data must not be null")));
+    }
+
+    /**
+     * Constructs a new PZXDataBlock from the completed contents of a DataBuilder, using the checksum it calculated
+     * while the data was accumulated.
+     * @param newPulses the original tape pulses that have been decoded into this block
+     * @param zeroPulseLengths the lengths of the zero pulses in the block
+     * @param onePulseLengths the lengths of the one pulses in the block
+     * @param tailLength the length of the tail pulse in the block
+     * @param dataBuilder the decoded data from the tape image, which must not be added to after the call
+     * @throws NullPointerException if newPulses or dataBuilder is null
+     * @throws IllegalArgumentException if dataBuilder holds no data
+     */
+    public PZXDataBlock(PulseList newPulses, List<Long> zeroPulseLengths, List<Long> onePulseLengths, long tailLength,
+                        DataBuilder dataBuilder) {
+        this(newPulses, zeroPulseLengths, onePulseLengths, tailLength,
+                checkNotNull(dataBuilder, "dataBuilder must not be null").takeData(), dataBuilder);
+    }
+
+    // Split out so the data is completed before the number of bits in the last byte and checksum are read
+    private PZXDataBlock(PulseList newPulses, List<Long> zeroPulseLengths, List<Long> onePulseLengths, long tailLength,
+                         byte[] data, DataBuilder dataBuilder) {
+        this(newPulses, zeroPulseLengths, onePulseLengths, tailLength, dataBuilder.getNumBitsInCurrentByte(), data,
+                dataBuilder.getCalculatedChecksum());
+    }
+
+    private PZXDataBlock(PulseList newPulses, List<Long> zeroPulseLengths, List<Long> onePulseLengths, long tailLength,
+                         int numBitsInLastByte, byte[] data, byte calculatedChecksum) {
         checkNotNull(newPulses, "newPulses must not be null");
-        checkNotNull(data, "data must not be null");
-        checkArgument(!data.isEmpty(), "data array must not be empty");
+        checkArgument(data.length != 0, "data array must not be empty");
         this.pulses = newPulses;
         this.zeroPulseLengths = copyOf(zeroPulseLengths);
         this.onePulseLengths = copyOf(onePulseLengths);
         this.tailLength = (short)tailLength;
         this.numBitsInLastByte = numBitsInLastByte;
-        this.data = Bytes.toArray(data);
+        this.data = data;
         this.isHeader = this.data.length == HEADER_LENGTH &&
                 this.data[0] == HEADER_FLAG;
         this.suppliedChecksum = this.data[this.data.length-1];
-        this.calculatedChecksum = calcChecksum();
+        this.calculatedChecksum = calculatedChecksum;
     }
 
     /**
@@ -122,18 +170,43 @@ public final class PZXDataBlock implements PZXBlock {
      * @throws IllegalArgumentException if data is empty
      */
     public PZXDataBlock(PulseList newPulses, int numBitsInLastByte, Collection<Byte> data) {
+        this(newPulses, numBitsInLastByte, Bytes.toArray(checkNotNull(data, "data must not be null")));
+    }
+
+    /**
+     * Constructs a new PZXDataBlock with the standard ROM timings that takes ownership of the supplied data array
+     * without copying it.
+     * @param newPulses the original tape pulses that have been decoded into this block
+     * @param numBitsInLastByte the number of bits used in the last byte of the data collection
+     * @param data the decoded data from the tape image, which must not be modified after the call
+     * @throws NullPointerException if newPulses or data is null
+     * @throws IllegalArgumentException if data is empty
+     */
+    public PZXDataBlock(PulseList newPulses, int numBitsInLastByte, byte[] data) {
         this(newPulses, asList(valueOf(ZERO), valueOf(ZERO)), asList(valueOf(ONE), valueOf(ONE)), TAIL,
                 numBitsInLastByte, data);
     }
 
+    /**
+     * Constructs a new PZXDataBlock with the standard ROM timings from the completed contents of a DataBuilder, using
+     * the checksum it calculated while the data was accumulated.
+     * @param newPulses the original tape pulses that have been decoded into this block
+     * @param dataBuilder the decoded data from the tape image, which must not be added to after the call
+     * @throws NullPointerException if newPulses or dataBuilder is null
+     * @throws IllegalArgumentException if dataBuilder holds no data
+     */
+    public PZXDataBlock(PulseList newPulses, DataBuilder dataBuilder) {
+        this(newPulses, asList(valueOf(ZERO), valueOf(ZERO)), asList(valueOf(ONE), valueOf(ONE)), TAIL, dataBuilder);
+    }
+
     // Calculates the checksum for the data according to the algorithm in the 
     // Spectrum ROM (XOR all data bytes except the last which holds the saved 
     // checksum)
-    private byte calcChecksum() {
+    private static byte calcChecksum(byte[] data) {
         byte checksum = 0;
-        if( this.data.length != 0 ) {
-            for( int i = 0; i < this.data.length-1; i++ ) {
-                checksum ^= this.data[i];
+        if( data.length != 0 ) {
+            for( int i = 0; i < data.length-1; i++ ) {
+                checksum ^= data[i];
             }
         }
         return checksum;
@@ -141,6 +214,18 @@ public final class PZXDataBlock implements PZXBlock {
 
     @Override
     public byte[] getPZXBlockDiskRepresentation() {
+        PZXBlockEncoder encoder = new PZXBlockEncoder((int) getEncodedSize(), false);
+        encodeTo(encoder);
+        return encoder.toByteArray();
+    }
+
+    @Override
+    public long getEncodedSize() {
+        return PZXBlockEncoder.BLOCK_HEADER_SIZE + getFixedFieldsSize() + data.length;
+    }
+
+    @Override
+    public void encodeTo(PZXBlockEncoder encoder) {
     	/*  DATA - Data block
             -----------------
 
@@ -169,8 +254,33 @@ public final class PZXDataBlock implements PZXBlock {
             cycles in the middle of the sequence, if it was ever necessary.
         */
     
-        ArrayList<Byte> output = new ArrayList<>(12 + data.length);
+        encoder.startBlock("DATA");
+        putFixedFields(encoder);
+
+        // data stream
+        encoder.putBytes(data);
         
+        encoder.endBlock();
+    }
+
+    @Override
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        int fixedSize = getFixedFieldsSize();
+        PZXBlockEncoder encoder = new PZXBlockEncoder(PZXBlockEncoder.BLOCK_HEADER_SIZE + fixedSize, false);
+        encoder.putBlockHeader("DATA", fixedSize + data.length);
+        putFixedFields(encoder);
+
+        // The data stream is written straight from the data array
+        encoder.writeTo(channel, data);
+    }
+
+    // The size of the count, tail, p0 and p1 fields and the two pulse sequences
+    private int getFixedFieldsSize() {
+        return 8 + 2 * (zeroPulseLengths.size() + onePulseLengths.size());
+    }
+
+    // Encode the fields of the block before the data stream
+    private void putFixedFields(PZXBlockEncoder encoder) {
         // bits 0-30 number of bits in the data stream
         // bit 31 initial pulse level: 0 low 1 high
         int count = (data.length - 1) * 8 + numBitsInLastByte;
@@ -179,29 +289,24 @@ public final class PZXDataBlock implements PZXBlock {
             count |= BIT_32_MASK;
         }
         
-        putUnsignedLittleEndianInt(count, output);
+        encoder.putUnsignedLittleEndianInt(count);
         
         // use standard duration tail pulse after last bit of the block if we found one
-        putUnsignedLittleEndianShort(tailLength == 0 ? 0 : tailLength, output);
+        encoder.putUnsignedLittleEndianShort(tailLength == 0 ? 0 : tailLength);
         
-        putUnsignedByte((byte)zeroPulseLengths.size(), output); // number of pulses encoding bit equal to 0.
-        putUnsignedByte((byte)onePulseLengths.size(), output); // number of pulses encoding bit equal to 1.
+        encoder.putUnsignedByte(zeroPulseLengths.size()); // number of pulses encoding bit equal to 0.
+        encoder.putUnsignedByte(onePulseLengths.size()); // number of pulses encoding bit equal to 1.
         
         // sequence of pulse durations encoding bit equal to 0.
-        putPulseList(zeroPulseLengths, output);
+        putPulseList(zeroPulseLengths, encoder);
 
         // sequence of pulse durations encoding bit equal to 1.
-        putPulseList(onePulseLengths, output);
-
-        // data stream
-        output.addAll(Bytes.asList(data));
-        
-        return addPZXBlockHeader("DATA", output);
+        putPulseList(onePulseLengths, encoder);
     }
 
-    private void putPulseList(List<Long> pulseLengths, Collection<Byte> output) {
+    private void putPulseList(List<Long> pulseLengths, PZXBlockEncoder encoder) {
         for (Long pulseLength : pulseLengths) {
-            putUnsignedLittleEndianShort(pulseLength.shortValue(), output);
+            encoder.putUnsignedLittleEndianShort(pulseLength.shortValue());
         }
     }
 
@@ -343,6 +448,11 @@ public final class PZXDataBlock implements PZXBlock {
 		return pulses.getPulseLengths();
 	}
 
+	@Override
+	public PulseRuns getPulseRuns() {
+		return pulses.getRuns();
+	}
+
 	@Override
 	public int getFirstPulseLevel() {
 		return pulses.getFirstPulseLevel();
@@ -35,7 +35,8 @@ import java.util.List;
 
 /**
  * This class has utility functions to assist in writing data in the conventions 
- * of PZX files
+ * of PZX files. The block classes use {@link PZXBlockEncoder}, which writes the
+ * same encoding without boxing each byte.
  * @author Fredrick Meunier
  */
 public final class PZXEncodeUtils {
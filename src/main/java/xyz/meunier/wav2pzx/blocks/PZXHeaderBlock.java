@@ -25,12 +25,9 @@
  */
 package xyz.meunier.wav2pzx.blocks;
 
-import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.List;
 
-import static xyz.meunier.wav2pzx.blocks.PZXEncodeUtils.addPZXBlockHeader;
-
 /**
  * Represents the header block (PZXT) at the beginning of all valid PZX files.
  * <p>
@@ -56,14 +53,28 @@ public final class PZXHeaderBlock implements PZXBlock {
     
     @Override
     public byte[] getPZXBlockDiskRepresentation() {
+        PZXBlockEncoder encoder = new PZXBlockEncoder((int) getEncodedSize(), false);
+        encodeTo(encoder);
+        return encoder.toByteArray();
+    }
+
+    @Override
+    public long getEncodedSize() {
+        // Block header followed by the major and minor version numbers
+        return PZXBlockEncoder.BLOCK_HEADER_SIZE + 2;
+    }
+
+    @Override
+    public void encodeTo(PZXBlockEncoder encoder) {
         /*
          * offset type     name   meaning
          * 8      u8       major  major version number (currently 1).
          * 9      u8       minor  minor version number (currently 0).
          */
-        final byte[] pzxHeaderBlockData = ByteBuffer.allocate(2)
-                .put(PZX_MAJOR_VERSION).put(PZX_MINOR_VERSION).array();
-        return addPZXBlockHeader("PZXT", pzxHeaderBlockData);
+        encoder.startBlock("PZXT")
+                .putUnsignedByte(PZX_MAJOR_VERSION)
+                .putUnsignedByte(PZX_MINOR_VERSION)
+                .endBlock();
     }
 
     @Override
@@ -25,9 +25,12 @@
  */
 package xyz.meunier.wav2pzx.blocks;
 
+import java.nio.channels.WritableByteChannel;
 import java.util.Collections;
 import java.util.List;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+
 /**
  * Null block that has no output representation. Used when we need to put a
  * placeholder block into a tape as we may need to revert it in the future.
@@ -44,6 +47,33 @@ public final class PZXNullBlock implements PZXBlock {
 		return new byte[0];
 	}
 
+	/* (non-Javadoc)
+	 * @see xyz.meunier.wav2pzx.PZXBlock#encodeTo(PZXBlockEncoder)
+	 */
+	@Override
+	public void encodeTo(PZXBlockEncoder encoder) {
+		checkNotNull(encoder, "encoder must not be null");
+		// No disk representation
+	}
+
+	/* (non-Javadoc)
+	 * @see xyz.meunier.wav2pzx.PZXBlock#getEncodedSize()
+	 */
+	@Override
+	public long getEncodedSize() {
+		// No disk representation
+		return 0;
+	}
+
+	/* (non-Javadoc)
+	 * @see xyz.meunier.wav2pzx.PZXBlock#writeTo(WritableByteChannel)
+	 */
+	@Override
+	public void writeTo(WritableByteChannel channel) {
+		checkNotNull(channel, "channel must not be null");
+		// No disk representation
+	}
+
 	/* (non-Javadoc)
 	 * @see xyz.meunier.wav2pzx.PZXBlock#getSummary()
 	 */
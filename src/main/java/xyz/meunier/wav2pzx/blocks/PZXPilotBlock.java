@@ -26,14 +26,12 @@
 package xyz.meunier.wav2pzx.blocks;
 
 import xyz.meunier.wav2pzx.pulselist.PulseList;
+import xyz.meunier.wav2pzx.pulselist.PulseRuns;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.LongSummaryStatistics;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
-import static xyz.meunier.wav2pzx.blocks.PZXEncodeUtils.addPZXBlockHeader;
 import static xyz.meunier.wav2pzx.romdecoder.LoaderContext.*;
 
 /**
@@ -65,43 +63,56 @@ public final class PZXPilotBlock implements PZXBlock {
      */
     public PZXPilotBlock(PulseList newPulses) {
         checkNotNull(newPulses, "newPulses must not be null");
-        checkArgument(newPulses.getPulseLengths().size() > 2, "newPulses needs at least 3 pulses");
+        checkArgument(newPulses.size() > 2, "newPulses needs at least 3 pulses");
         this.pulses = newPulses;
-        List<Long> pulses = getPulses();
-		this.sync1Length = pulses.get(pulses.size() - 2);
-        this.sync2Length = pulses.get(pulses.size() - 1);
+		this.sync1Length = newPulses.get(newPulses.size() - 2);
+        this.sync2Length = newPulses.get(newPulses.size() - 1);
     }
 
     @Override
     public byte[] getPZXBlockDiskRepresentation() {
+        PZXBlockEncoder encoder = new PZXBlockEncoder((int) getEncodedSize(), false);
+        encodeTo(encoder);
+        return encoder.toByteArray();
+    }
+
+    @Override
+    public long getEncodedSize() {
+        return PZXBlockEncoder.BLOCK_HEADER_SIZE
+                + (getFirstPulseLevel() == 1 ? PZXBlockEncoder.getPulsesSize(0, 1) : 0)
+                + PZXBlockEncoder.getPulsesSize(PILOT_LENGTH, pulses.size() - 2)
+                + PZXBlockEncoder.getPulsesSize(SYNC1, 1)
+                + PZXBlockEncoder.getPulsesSize(SYNC2, 1);
+    }
+
+    @Override
+    public void encodeTo(PZXBlockEncoder encoder) {
         // Same block as PZX Pulse Block but optimised representation based on
         // detected structure
-        ArrayList<Byte> output = new ArrayList<>();
+        encoder.startBlock("PULS");
         
         // The pulse level is low at start of the block by default. However initial
         // pulse of zero duration may be easily used to make it high.
         if( getFirstPulseLevel() == 1 ) {
-            PZXEncodeUtils.addBytesFor(0, 1, output);
+            encoder.putPulses(0, 1);
         }
         
-        PZXEncodeUtils.addBytesFor(PILOT_LENGTH, getPulses().size() - 2, output);
-        PZXEncodeUtils.addBytesFor(SYNC1, 1, output);
-        PZXEncodeUtils.addBytesFor(SYNC2, 1, output);
-        
-        return addPZXBlockHeader("PULS", output);
+        encoder.putPulses(PILOT_LENGTH, pulses.size() - 2)
+                .putPulses(SYNC1, 1)
+                .putPulses(SYNC2, 1)
+                .endBlock();
     }
     
     @Override
     public String getSummary() {
         StringBuilder retval = new StringBuilder("PZXPilotBlock:\n");
 
-        LongSummaryStatistics stats = 
-        		pulses.getPulseLengths()
-        			.subList(0, pulses.getPulseLengths().size() - 2)
-        			.stream().mapToLong(x -> x).summaryStatistics();
+        // The pilot pulses are all but the two sync pulses at the end of the block
+        double average = (double) (pulses.getRuns().getTotalDuration() - sync1Length - sync2Length) /
+                (pulses.size() - 2);
         
-        retval.append("Average pilot pulse:").append(Math.round(stats.getAverage())).append(" tstates, ")
-        		.append(String.format("%.2f", stats.getAverage()/ PILOT_LENGTH*100.0)).append("% of expected\n");
+        retval.append("Average pilot pulse:").append(Math.round(average)).append(" tstates, ")
+        		.append(String.format("%.2f", average / PILOT_LENGTH*100.0)).append("% of expected\n");
         
         retval.append("Sync1 pulse:").append(sync1Length).append(" tstates, ")
                 .append(String.format("%.2f", (double)sync1Length/SYNC1*100.0)).append("% of expected\n");
@@ -148,6 +159,11 @@ public final class PZXPilotBlock implements PZXBlock {
 		return pulses.getPulseLengths();
 	}
 
+	@Override
+	public PulseRuns getPulseRuns() {
+		return pulses.getRuns();
+	}
+
 	@Override
 	public int getFirstPulseLevel() {
 		return pulses.getFirstPulseLevel();
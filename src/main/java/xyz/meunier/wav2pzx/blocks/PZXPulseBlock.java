@@ -25,15 +25,14 @@
  */
 package xyz.meunier.wav2pzx.blocks;
 
-import com.google.common.collect.Iterators;
-import com.google.common.collect.PeekingIterator;
 import xyz.meunier.wav2pzx.pulselist.PulseList;
+import xyz.meunier.wav2pzx.pulselist.PulseRuns;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
 import java.util.List;
 
 import static com.google.common.base.Preconditions.checkNotNull;
-import static xyz.meunier.wav2pzx.blocks.PZXEncodeUtils.addPZXBlockHeader;
 
 /**
  * Represents a PZX pulse block (PULS).
@@ -43,6 +42,15 @@ import static xyz.meunier.wav2pzx.blocks.PZXEncodeUtils.addPZXBlockHeader;
  * @author Fredrick Meunier
  */
 public final class PZXPulseBlock implements PZXBlock {
+
+    // The amount of encoded pulses to collect before writing them to a channel
+    private static final int WRITE_CHUNK_SIZE = 8 * 1024;
+    
+    // Receives the runs of equal pulses in a PulseList
+    @FunctionalInterface
+    private interface RunConsumer {
+        void accept(long pulse, int count) throws IOException;
+    }
     
     // Details of original pulses corresponding to block
     private final PulseList pulseList;
@@ -55,10 +63,7 @@ public final class PZXPulseBlock implements PZXBlock {
     public PZXPulseBlock(PulseList newPulses) {
         checkNotNull(newPulses, "newPulses must not be null");
         this.pulseList = newPulses;
-        // TODO: Scan pulses placing them into buckets of effectively equal lengths, when
-        // we have a reasonable amount of pulses in a bucket, replace pulses in the source list 
-        // with the average value from the bucket. This would be to try and optimise the storage
-        // of the source pulses - should be optional.
+        // The pulses are stored exactly as supplied, see PulseQuantizer to trade some accuracy for a smaller encoding
     }
 
     @Override
@@ -66,48 +71,124 @@ public final class PZXPulseBlock implements PZXBlock {
         return pulseList.getPulseLengths();
     }
 
+    /**
+     * @return the pulses of the block
+     */
+    public PulseList getPulseList() {
+        return pulseList;
+    }
+
+    @Override
+    public PulseRuns getPulseRuns() {
+        return pulseList.getRuns();
+    }
+
     @Override
     public byte[] getPZXBlockDiskRepresentation() {
         return getPZXBlockDiskRepresentation(pulseList);
     }
 
+    @Override
+    public void encodeTo(PZXBlockEncoder encoder) {
+        encodeTo(pulseList, encoder);
+    }
+
+    @Override
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        writeTo(pulseList, channel);
+    }
+
+    @Override
+    public long getEncodedSize() {
+        return getEncodedSize(pulseList);
+    }
+
 	/**
      * Return the on-disk PZX format data for the supplied PulseList
 	 * @param pulseList the PulseList to encode into the disk representation
      * @return the byte[] with the PZX disk format data
    	 */
 	public static byte[] getPZXBlockDiskRepresentation(PulseList pulseList) {
-		// iterate through the pulse array doing a run length encoding of the number of repeated values
-        PeekingIterator<Long> iterator = Iterators.peekingIterator(pulseList.getPulseLengths().iterator());
-        int count;
-        // We will probably have a similar number of bytes output as source pulses * 2 16 bit values
-        ArrayList<Byte> output = new ArrayList<>(pulseList.getPulseLengths().size()*4);
+        PZXBlockEncoder encoder = new PZXBlockEncoder((int) getEncodedSize(pulseList), false);
+        encodeTo(pulseList, encoder);
+        return encoder.toByteArray();
+	}
 
+	/**
+     * Encode the on-disk PZX format data for the supplied PulseList into the supplied encoder
+	 * @param pulseList the PulseList to encode into the disk representation
+	 * @param encoder the destination for the PZX disk format data
+	 * @throws NullPointerException if pulseList or encoder is null
+   	 */
+	public static void encodeTo(PulseList pulseList, PZXBlockEncoder encoder) {
+        encoder.startBlock("PULS");
+        try {
+            forEachRun(pulseList, encoder::putPulses);
+        } catch (IOException e) {
+            // Not possible when encoding to memory
+            throw new IllegalStateException(e);
+        }
+        encoder.endBlock();
+	}
+
+	/**
+     * Write the on-disk PZX format data for the supplied PulseList to the supplied channel. The size of the block is
+     * calculated first so the pulses can be written as they are encoded rather than building the whole block.
+	 * @param pulseList the PulseList to encode into the disk representation
+	 * @param channel the destination for the PZX disk format data
+	 * @throws IOException if there is an error writing to the channel
+	 * @throws NullPointerException if pulseList or channel is null
+   	 */
+	public static void writeTo(PulseList pulseList, WritableByteChannel channel) throws IOException {
+        checkNotNull(channel, "channel must not be null");
+        long size = getEncodedSize(pulseList) - PZXBlockEncoder.BLOCK_HEADER_SIZE;
+
+        PZXBlockEncoder encoder = new PZXBlockEncoder(WRITE_CHUNK_SIZE, false);
+        encoder.putBlockHeader("PULS", (int) size);
+        forEachRun(pulseList, (pulse, count) -> {
+            encoder.putPulses(pulse, count);
+            if (encoder.size() >= WRITE_CHUNK_SIZE) {
+                encoder.writeTo(channel);
+            }
+        });
+        encoder.writeTo(channel);
+	}
+
+	/**
+     * Return the exact size of the on-disk PZX format data for the supplied PulseList, including the block header,
+     * calculated from the runs of equal pulses without encoding them
+	 * @param pulseList the PulseList to size
+	 * @return the size in bytes of the PZX disk format data
+	 * @throws NullPointerException if pulseList is null
+   	 */
+	public static long getEncodedSize(PulseList pulseList) {
+        long[] size = {PZXBlockEncoder.BLOCK_HEADER_SIZE};
+        try {
+            forEachRun(pulseList, (pulse, count) -> size[0] += PZXBlockEncoder.getPulsesSize(pulse, count));
+        } catch (IOException e) {
+            // Not possible when only sizing the runs
+            throw new IllegalStateException(e);
+        }
+        return size[0];
+	}
+
+	// Pass the pulses of the PulseList to the consumer as runs of equal pulses, in the order they are encoded
+	private static void forEachRun(PulseList pulseList, RunConsumer consumer) throws IOException {
         // The pulse level is low at start of the block by default. However initial
         // pulse of zero duration may be easily used to make it high.
         if( pulseList.getFirstPulseLevel() == 1 ) {
-            PZXEncodeUtils.addBytesFor(0, 1, output);
+            consumer.accept(0, 1);
         }
 
-        // RLE the pulses found in the block for encoding
-        while(iterator.hasNext()) {
-            long pulse = iterator.next();
-            count = 1;
-            while(iterator.hasNext() && iterator.peek() == pulse) { 
-                iterator.next();
-                count += 1;
-            }
-            
-            // Write the desired output bytes to the output list
-            PZXEncodeUtils.addBytesFor(pulse, count, output);
+        PulseRuns runs = pulseList.getRuns();
+        for (int i = 0; i < runs.size(); i++) {
+            consumer.accept(runs.getDuration(i), runs.getCount(i));
         }
-        
-        return addPZXBlockHeader("PULS", output);
 	}
 
     @Override
     public String getSummary() {
-        return "PZXPulseBlock: first pulse level: " + pulseList.getFirstPulseLevel() + " pulse count: " + pulseList.getPulseLengths().size();
+        return "PZXPulseBlock: first pulse level: " + pulseList.getFirstPulseLevel() + " pulse count: " + pulseList.size();
     }
     
     @Override
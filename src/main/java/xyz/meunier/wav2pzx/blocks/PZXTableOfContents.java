@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2016, Fredrick Meunier
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package xyz.meunier.wav2pzx.blocks;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The layout of a list of PZX blocks in a PZX file: the offset and size of each block and the size of the whole
+ * file, worked out from {@link PZXBlock#getEncodedSize()} before any block is encoded.
+ * @author Fredrick Meunier
+ */
+public final class PZXTableOfContents {
+
+    private final List<PZXBlock> blocks;
+
+    // The offset of each block, with the total size of the file as the last element
+    private final long[] offsets;
+
+    /**
+     * Constructor for PZXTableOfContents.
+     * @param blocks the blocks in the order they will be written to the file
+     * @throws NullPointerException if blocks or any of its elements is null
+     */
+    public PZXTableOfContents(List<PZXBlock> blocks) {
+        checkNotNull(blocks, "blocks must not be null");
+        this.blocks = ImmutableList.copyOf(blocks);
+        this.offsets = new long[this.blocks.size() + 1];
+        for (int i = 0; i < this.blocks.size(); i++) {
+            offsets[i + 1] = offsets[i] + this.blocks.get(i).getEncodedSize();
+        }
+    }
+
+    /**
+     * @return the number of blocks in the table of contents
+     */
+    public int size() {
+        return blocks.size();
+    }
+
+    /**
+     * @param index the index of the block
+     * @return the block at index
+     * @throws IndexOutOfBoundsException if index is not a valid block index
+     */
+    public PZXBlock getBlock(int index) {
+        return blocks.get(index);
+    }
+
+    /**
+     * @param index the index of the block
+     * @return the offset in bytes of the block at index from the start of the file
+     * @throws IndexOutOfBoundsException if index is not a valid block index
+     */
+    public long getOffset(int index) {
+        checkElementIndex(index, blocks.size());
+        return offsets[index];
+    }
+
+    /**
+     * @param index the index of the block
+     * @return the encoded size in bytes of the block at index
+     * @throws IndexOutOfBoundsException if index is not a valid block index
+     */
+    public long getSize(int index) {
+        checkElementIndex(index, blocks.size());
+        return offsets[index + 1] - offsets[index];
+    }
+
+    /**
+     * @return the size in bytes of the file holding all the blocks
+     */
+    public long getTotalSize() {
+        return offsets[blocks.size()];
+    }
+
+    /**
+     * @return a listing of the offset, size and type of each block that will appear in the file
+     */
+    @Override
+    public String toString() {
+        StringBuilder retval = new StringBuilder("PZX file contents: ").append(getTotalSize()).append(" bytes\n");
+        for (int i = 0; i < blocks.size(); i++) {
+            if (getSize(i) == 0) {
+                // Not present in the file
+                continue;
+            }
+            retval.append(String.format("%10d %10d %s%n", getOffset(i), getSize(i),
+                    blocks.get(i).getClass().getSimpleName()));
+        }
+        return retval.toString();
+    }
+}
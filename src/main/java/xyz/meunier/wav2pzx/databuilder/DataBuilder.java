@@ -27,23 +27,62 @@
 package xyz.meunier.wav2pzx.databuilder;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Bytes;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 
 /**
- * Helper class for building a list of data bytes one bit at a time from a serial source.
+ * Helper class for building a list of data bytes one or more bits at a time from a serial source. Bits are packed
+ * most significant bit first into a growable byte array. The Spectrum ROM XOR checksum and the flag and header fields
+ * of the block are available as soon as the bytes holding them have been added, so a loader can tell whether the
+ * block is valid without a second pass over the data.
  */
 public final class DataBuilder {
 
+    // Enough for a typical Spectrum data block before the array needs to grow
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    // Spectrum ROM marker of header blocks
+    private static final int HEADER_FLAG = 0x00;
+
+    // Data length of Spectrum header blocks in bytes including the flag and checksum
+    private static final int HEADER_LENGTH = 19;
+
+    // Offsets of the header fields from the start of the block, including the flag byte
+    private static final int HEADER_TYPE_OFFSET = 1;
+    private static final int HEADER_DATA_LENGTH_OFFSET = 12;
+
     private boolean blockComplete = false;
-    private List<Byte> data = new ArrayList<>();
+    private byte[] data;
+    private int numBytes = 0;
 
-    private byte currentByte = 0;
+    // XOR of all the bytes added so far, zero for a complete block with a good checksum
+    private int runningChecksum = 0;
+
+    private int currentByte = 0;
     private int numBitsInCurrentByte = 0;
 
+    /**
+     * Construct a new DataBuilder with room for a typical data block
+     */
+    public DataBuilder() {
+        this(DEFAULT_CAPACITY * 8);
+    }
+
+    /**
+     * Construct a new DataBuilder with room for the expected number of bits. When exactly that many bits are added
+     * {@link #takeData()} hands over the accumulated data without copying it.
+     * @param expectedBits the number of bits expected to be added
+     * @throws IllegalArgumentException if expectedBits is negative
+     */
+    public DataBuilder(int expectedBits) {
+        checkArgument(expectedBits >= 0, "expectedBits must not be negative");
+        this.data = new byte[(int) ((expectedBits + 7L) / 8)];
+    }
+
     /**
      * Return an immutable copy of the accumulated data and mark the block complete
      * @return the immutable copy of the accumulated data
@@ -52,7 +91,19 @@ public final class DataBuilder {
         if(!blockComplete) {
             completeData();
         }
-        return ImmutableList.copyOf(data);
+        return ImmutableList.copyOf(Bytes.asList(data).subList(0, numBytes));
+    }
+
+    /**
+     * Mark the block complete and return the accumulated data as an array. If the array the data was accumulated in
+     * is exactly full it is returned without copying, so it must not be modified by the caller.
+     * @return the accumulated data
+     */
+    public byte[] takeData() {
+        if(!blockComplete) {
+            completeData();
+        }
+        return numBytes == data.length ? data : Arrays.copyOf(data, numBytes);
     }
 
     /**
@@ -60,7 +111,7 @@ public final class DataBuilder {
      * @return the number of bits in the current byte being accumulated
      */
     public int getNumBitsInCurrentByte() {
-        return numBitsInCurrentByte == 0 && !data.isEmpty() ? 8 : numBitsInCurrentByte;
+        return numBitsInCurrentByte == 0 && numBytes != 0 ? 8 : numBitsInCurrentByte;
     }
 
     /**
@@ -68,25 +119,114 @@ public final class DataBuilder {
      * @param bit the new bit to add to the data block
      */
     public void addBit(int bit) {
+        addBits(bit, 1);
+    }
+
+    /**
+     * Adds the low n bits of the supplied value to the data being accumulated, most significant bit first
+     * @param bits the value holding the new bits in its low n bits
+     * @param n the number of bits to add, from 0 to 64
+     * @throws IllegalArgumentException if n is out of range
+     * @throws IllegalStateException if the block has been completed
+     */
+    public void addBits(long bits, int n) {
         checkState(!blockComplete);
-        currentByte <<= 1;
-        currentByte |= (bit & 0x01);
-        if( ++numBitsInCurrentByte == 8 ) {
-            data.add(currentByte);
-            currentByte = 0;
-            numBitsInCurrentByte = 0;
+        checkArgument(n >= 0 && n <= 64, "n must be between 0 and 64: %s", n);
+        while( n > 0 ) {
+            int take = Math.min(n, 8 - numBitsInCurrentByte);
+            n -= take;
+            currentByte = currentByte << take | (int) (bits >>> n) & ((1 << take) - 1);
+            numBitsInCurrentByte += take;
+            if( numBitsInCurrentByte == 8 ) {
+                appendByte(currentByte);
+                currentByte = 0;
+                numBitsInCurrentByte = 0;
+            }
         }
     }
 
     public byte getCurrentByte() {
-        return currentByte;
+        return (byte) currentByte;
+    }
+
+    /**
+     * Returns the number of bytes accumulated, not including any partially accumulated byte unless the block has been
+     * completed
+     * @return the number of bytes accumulated
+     */
+    public int getNumBytes() {
+        return numBytes;
+    }
+
+    /**
+     * Returns the checksum calculated according to the algorithm in the Spectrum ROM for the bytes accumulated so far,
+     * the XOR of all bytes except the last which holds the saved checksum
+     * @return the calculated checksum, 0 if no bytes have been accumulated
+     */
+    public byte getCalculatedChecksum() {
+        return numBytes == 0 ? 0 : (byte) (runningChecksum ^ data[numBytes - 1]);
+    }
+
+    /**
+     * Returns true if the last byte accumulated so far matches the checksum of the bytes before it
+     * @return true if the bytes accumulated so far are a block with a good checksum
+     */
+    public boolean isChecksumValid() {
+        return numBytes != 0 && (byte) runningChecksum == 0;
+    }
+
+    /**
+     * Returns the flag byte at the start of the block
+     * @return the flag byte as an unsigned value, -1 if no bytes have been accumulated
+     */
+    public int getFlag() {
+        return numBytes == 0 ? -1 : data[0] & 0xff;
+    }
+
+    /**
+     * Returns true if the bytes accumulated so far are a complete Spectrum header block
+     * @return true if the bytes accumulated so far are a complete header block
+     */
+    public boolean isHeader() {
+        return numBytes == HEADER_LENGTH && getFlag() == HEADER_FLAG;
+    }
+
+    /**
+     * Returns the type of the file described by the header block being accumulated, 0 for a program, 1 for a number
+     * array, 2 for a character array and 3 for code
+     * @return the header type, -1 if this is not a header block or the byte holding it has not been accumulated yet
+     */
+    public int getHeaderType() {
+        return isHeaderFieldAvailable(HEADER_TYPE_OFFSET + 1) ? data[HEADER_TYPE_OFFSET] & 0xff : -1;
+    }
+
+    /**
+     * Returns the length of the data block described by the header block being accumulated, not including the flag
+     * and checksum bytes of that block
+     * @return the data length, -1 if this is not a header block or the bytes holding it have not been accumulated yet
+     */
+    public int getHeaderDataLength() {
+        return isHeaderFieldAvailable(HEADER_DATA_LENGTH_OFFSET + 2) ?
+                (data[HEADER_DATA_LENGTH_OFFSET] & 0xff) | (data[HEADER_DATA_LENGTH_OFFSET + 1] & 0xff) << 8 : -1;
+    }
+
+    private boolean isHeaderFieldAvailable(int minBytes) {
+        return numBytes >= minBytes && numBytes <= HEADER_LENGTH && getFlag() == HEADER_FLAG;
+    }
+
+    private void appendByte(int value) {
+        if( numBytes == data.length ) {
+            data = Arrays.copyOf(data, Math.max(16, data.length * 2));
+        }
+        data[numBytes++] = (byte) value;
+        runningChecksum ^= value;
     }
 
     private void completeData() {
         // add any partially accumulated byte to the data collection before
         // considering this block complete
         if( numBitsInCurrentByte != 0 ) {
-            data.add(currentByte);
+            appendByte(currentByte);
         }
         blockComplete = true;
     }
@@ -26,7 +26,6 @@
 
 package xyz.meunier.wav2pzx.generaldecoder;
 
-import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Range;
 import xyz.meunier.wav2pzx.pulselist.PulseList;
 
@@ -34,7 +33,6 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
 
-import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.util.Collections.singletonList;
 import static java.util.logging.Logger.getLogger;
@@ -49,21 +47,21 @@ final class DualPulseDataBlockProcessor {
     private static final int THREE_BYTES_OF_PULSES = 24;
 
     private final PulseList pulseList;
-    private final ImmutableList<Long> pulseLengths;
+    private final PulseList pulseLengths;
     private final int firstPulseLevel;
-    private final long resolution;
     private int hasCandidateTailPulse;
     private List<BitData> pulseSubstitutions;
-    private final ArrayList<Long> newDataBlockPulses = new ArrayList<>();
+    // The range of source pulses in the open data block, empty when the start and end are equal
+    private int dataBlockStart = 0;
+    private int dataBlockEnd = 0;
     private final List<TapeBlock> newTapeBlockList = new ArrayList<>();
 
     DualPulseDataBlockProcessor(PulseList pulseList) {
         checkNotNull(pulseList, "pulseList must not be null");
         this.pulseList = pulseList;
-        pulseLengths = pulseList.getPulseLengths();
+        pulseLengths = pulseList;
         hasCandidateTailPulse = pulseLengths.size() % 2;
         firstPulseLevel = pulseList.getFirstPulseLevel();
-        resolution = pulseList.getResolution();
     }
 
     List<TapeBlock> processDataBlock() {
@@ -78,15 +76,14 @@ final class DualPulseDataBlockProcessor {
 
         ArrayList<Long> fullBits = new ArrayList<>(limit / 2);
         for (int i = SYNC_OR_TAIL_BUFFER_SIZE; i < limit; i += 2) {
-            Long bit = pulseLengths.get(i) + pulseLengths.get(i + 1);
-            fullBits.add(bit);
+            fullBits.add(pulseLengths.get(i) + pulseLengths.get(i + 1));
         }
 
         List<Range<Long>> ranges = getRanges(fullBits.stream().distinct().collect(toList()));
 
         // If we don't have enough bits to make a good population of dual pulses just dump out the source pulses
         if (ranges.isEmpty()) {
-            ranges = RangeFinder.getRangesForSinglePulses(pulseLengths);
+            ranges = RangeFinder.getRangesForSinglePulses(pulseLengths.getPulseLengths());
             TapeBlock newBlock = new TapeBlock(UNKNOWN, getSingletonPulseLengthsOfRanges(ranges), pulseList);
             getLogger(LoaderContextImpl.class.getName()).log(Level.INFO, newBlock.toString());
             return singletonList(newBlock);
@@ -108,12 +105,14 @@ final class DualPulseDataBlockProcessor {
 
         // We have already assumed that the pulses will be in pairs except for a potential tail pulse, so they succeed
         // or fail on that basis
+        // The pulses of data blocks are kept as ranges of the source pulses and only replaced with the processed
+        // values when the block's pulses are requested
         for (int i = 0; i < pulseLengths.size() - hasCandidateTailPulse; i += 2) {
-            List<Long> bitPulse = new ArrayList<>(2);
-            bitPulse.addAll(pulseLengths.subList(i, i + 2));
-
-            if (replaceInRangeBitsWithProcessedValues(bitPulse)) {
-                newDataBlockPulses.addAll(bitPulse);
+            if (isInRangeBit(pulseLengths.get(i) + pulseLengths.get(i + 1))) {
+                if (dataBlockStart == dataBlockEnd) {
+                    dataBlockStart = i;
+                }
+                dataBlockEnd = i + 2;
             } else {
                 // Finish any open PulseList
                 finishBlock(i);
@@ -121,11 +120,12 @@ final class DualPulseDataBlockProcessor {
                 // Add pulses to new PulseList
                 if (isInSyncCandidateArea(i)) {
                     // SYNC bit candidates at the beginning of the block
-                    addTapeBlockForSinglePulses(SYNC_CANDIDATE, bitPulse, firstPulseLevel);
+                    addTapeBlockForSinglePulses(SYNC_CANDIDATE, pulseLengths.subList(i, i + 2, firstPulseLevel));
                 } else {
                     // And tail pulse candidates elsewhere
-                    addTapeBlockForSinglePulses(TAIL_CANDIDATE, bitPulse.subList(0, 1), firstPulseLevel);
-                    addTapeBlockForSinglePulses(TAIL_CANDIDATE, bitPulse.subList(1, 2), flipPulseLevel(firstPulseLevel));
+                    addTapeBlockForSinglePulses(TAIL_CANDIDATE, pulseLengths.subList(i, i + 1, firstPulseLevel));
+                    addTapeBlockForSinglePulses(TAIL_CANDIDATE,
+                            pulseLengths.subList(i + 1, i + 2, flipPulseLevel(firstPulseLevel)));
                 }
             }
         }
@@ -140,13 +140,14 @@ final class DualPulseDataBlockProcessor {
 
     private void finishBlock(int index) {
         // Data blocks should have at least 2 bytes of data
-        if (!newDataBlockPulses.isEmpty() && newDataBlockPulses.size() < (2*8*2)) {
+        if (dataBlockStart != dataBlockEnd && dataBlockEnd - dataBlockStart < (2*8*2)) {
+            PulseList sourcePulses = getDataBlockSourcePulses();
             if (isInSyncCandidateArea(index)) {
-                addTapeBlockForSinglePulses(SYNC_CANDIDATE, newDataBlockPulses, firstPulseLevel);
+                addTapeBlockForSinglePulses(SYNC_CANDIDATE, TapeBlock.substitutePulses(pulseSubstitutions, sourcePulses));
             } else {
-                addTapeBlock(UNKNOWN, pulseSubstitutions, newPulseList(newDataBlockPulses, firstPulseLevel));
+                newTapeBlockList.add(TapeBlock.withSubstitutedPulses(UNKNOWN, pulseSubstitutions, sourcePulses));
             }
-            newDataBlockPulses.clear();
+            dataBlockStart = dataBlockEnd;
             return;
         }
         finishDataBlock();
@@ -158,29 +159,27 @@ final class DualPulseDataBlockProcessor {
 
     private void finishDataBlock() {
         // Finish any open PulseList
-        if (!newDataBlockPulses.isEmpty()) {
-            addTapeBlock(DATA, pulseSubstitutions, newPulseList(newDataBlockPulses, firstPulseLevel));
-            newDataBlockPulses.clear();
+        if (dataBlockStart != dataBlockEnd) {
+            newTapeBlockList.add(TapeBlock.withSubstitutedPulses(DATA, pulseSubstitutions, getDataBlockSourcePulses()));
+            dataBlockStart = dataBlockEnd;
         }
     }
 
+    private PulseList getDataBlockSourcePulses() {
+        return pulseLengths.subList(dataBlockStart, dataBlockEnd, firstPulseLevel);
+    }
+
     private void processCandidateTailPulse() {
         if (hasCandidateTailPulse == 1) {
             int size = pulseLengths.size();
-            addTapeBlockForSinglePulses(TAIL_CANDIDATE, pulseLengths.subList(size - 1, size), flipPulseLevel(firstPulseLevel));
+            addTapeBlockForSinglePulses(TAIL_CANDIDATE,
+                    pulseLengths.subList(size - 1, size, flipPulseLevel(firstPulseLevel)));
         }
     }
 
-    private boolean replaceInRangeBitsWithProcessedValues(List<Long> bitPulse) {
-        checkNotNull(bitPulse, "bitPulse must not be null");
-        checkArgument(bitPulse.size() == 2, "bitPulse must have two entries");
-
-        Long bit = bitPulse.get(0) + bitPulse.get(1);
+    private boolean isInRangeBit(long bit) {
         for (BitData bitData : pulseSubstitutions) {
             if (bitData.getQualificationRange().contains(bit)) {
-                // Transform bit pulses
-                bitPulse.clear();
-                bitPulse.addAll(bitData.getPulses());
                 return true;
             }
         }
@@ -191,18 +190,11 @@ final class DualPulseDataBlockProcessor {
         return index < SYNC_OR_TAIL_BUFFER_SIZE;
     }
 
-    private void addTapeBlockForSinglePulses(BlockType blockType, List<Long> bitPulseList, int firstPulseLevel) {
-        addTapeBlock(blockType, getSyncRange(getRangesForSinglePulses(bitPulseList)), newPulseList(bitPulseList, firstPulseLevel));
-    }
-
-    private void addTapeBlock(BlockType blockType, List<BitData> syncRange, PulseList pulseList) {
+    private void addTapeBlockForSinglePulses(BlockType blockType, PulseList pulseList) {
+        List<BitData> syncRange = getSyncRange(getRangesForSinglePulses(pulseList.getPulseLengths()));
         newTapeBlockList.add(new TapeBlock(blockType, syncRange, pulseList));
     }
 
-    private PulseList newPulseList(Iterable<Long> pulses, int firstPulseLevel) {
-        return new PulseList(pulses, firstPulseLevel, resolution);
-    }
-
     private static int flipPulseLevel(int pulseLevel) {
         return pulseLevel == 0 ? 1 : 0;
     }
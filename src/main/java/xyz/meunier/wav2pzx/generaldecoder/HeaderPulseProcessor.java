@@ -29,11 +29,11 @@ package xyz.meunier.wav2pzx.generaldecoder;
 import com.google.common.collect.Range;
 import xyz.meunier.wav2pzx.pulselist.PulseList;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 
 import static com.google.common.base.Preconditions.checkNotNull;
-import static java.util.stream.Collectors.toList;
 import static xyz.meunier.wav2pzx.generaldecoder.BlockType.PILOT;
 import static xyz.meunier.wav2pzx.generaldecoder.BlockType.UNKNOWN;
 import static xyz.meunier.wav2pzx.generaldecoder.LoaderContext.isaPilotCandidate;
@@ -73,9 +73,10 @@ final class HeaderPulseProcessor {
 //            System.out.println(processedBitValues.toString());
 
             // Replace all pulses with the processedPulse
-            pulseLengths = pulseLengths.stream().map(p -> processedPulse).collect(toList());
+            long[] pilotPulses = new long[pulseList.size()];
+            Arrays.fill(pilotPulses, processedPulse);
 
-            pulseList = new PulseList(pulseLengths, pulseList.getFirstPulseLevel(), pulseList.getResolution());
+            pulseList = new PulseList(pilotPulses, pulseList.getFirstPulseLevel(), pulseList.getResolution());
         }
 
         return new TapeBlock(blockType, processedBitValues, pulseList);
@@ -28,7 +28,6 @@ package xyz.meunier.wav2pzx.generaldecoder;
 
 import xyz.meunier.wav2pzx.pulselist.PulseList;
 
-import java.util.List;
 import java.util.function.Predicate;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -42,7 +41,6 @@ final class IsAOnePilotPulseCandidate implements Predicate<PulseList> {
     @Override
     public boolean test(PulseList lastPulseList) {
         checkNotNull(lastPulseList, "lastPulseList should not be null");
-        List<Long> pulseLengths = lastPulseList.getPulseLengths();
-        return (pulseLengths.size() == 1 && isaPilotCandidate(pulseLengths.get(0)));
+        return (lastPulseList.size() == 1 && isaPilotCandidate(lastPulseList.get(0)));
     }
 }
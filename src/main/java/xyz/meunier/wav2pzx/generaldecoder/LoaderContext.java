@@ -146,6 +146,11 @@ public interface LoaderContext {
      */
     int getNumPilotPulses();
 
+    /**
+     * @return the {@link PulseClassifier} class of the current pulse
+     */
+    int getPulseClass();
+
     /**
      * Checks whether the current pulse is a candidate to be a data pulse
      * @return true if the pulse appears to be a data candidate
@@ -164,7 +169,7 @@ public interface LoaderContext {
      * @return true if the pulse appears to be a pilot candidate
      */
     static boolean isaPilotCandidate(long pulse) {
-        return PILOT_CANDIDATE_RANGE.contains(pulse);
+        return pulse >= MIN_PILOT_LENGTH && pulse <= MAX_PILOT_LENGTH;
     }
 
     /**
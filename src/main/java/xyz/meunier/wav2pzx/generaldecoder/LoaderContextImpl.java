@@ -26,12 +26,13 @@
 
 package xyz.meunier.wav2pzx.generaldecoder;
 
-import com.google.common.collect.ImmutableList;
 import javafx.util.Pair;
+import xyz.meunier.wav2pzx.pulselist.PulseBuffer;
 import xyz.meunier.wav2pzx.pulselist.PulseList;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -41,6 +42,10 @@ import static xyz.meunier.wav2pzx.generaldecoder.LoaderState.INITIAL;
 /**
  * LoaderContextImpl represents the extrinsic state of the tape processing state
  * machine. The data extracted from the source file will be stored here and
+ * <p>
+ * Pulses can either be supplied all at once as a PulseList or added one at a time with {@link #addPulse(long)}, in
+ * which case completed TapeBlocks are passed on as soon as they are known and pulses that can no longer be part of a
+ * block are released.
  *
  * @author Fredrick Meunier
  */
@@ -53,13 +58,16 @@ class LoaderContextImpl implements LoaderContext {
 
     private int currentLevel;
 
-    private TapeBlockListBuilder tapeBlockListBuilder = new TapeBlockListBuilder();
+    private final TapeBlockListBuilder tapeBlockListBuilder;
 
     private long currentPulse;
+    private int currentPulseClass;
     private int pilotPulseCount;
-    private ImmutableList<Long> pulseLengths;
+    private final PulseBuffer pulseLengths;
     private int firstPulseLevel;
 
+    private LoaderState state = INITIAL;
+
     /**
      * Builder method to construct a series of PZXBlocks that represents the data
      * in the supplied PulseList.
@@ -72,23 +80,49 @@ class LoaderContextImpl implements LoaderContext {
         checkNotNull(pulseList, "pulseList was null");
         final LoaderContextImpl context = new LoaderContextImpl(pulseList);
 
-        LoaderState state = INITIAL;
+        context.completeTape();
+
+        return context.getTapeBlockList();
+    }
+
+    /**
+     * Add the next pulse from the tape. Pulses are analysed once the pulse following them is known.
+     *
+     * @param pulse the length of the pulse in T-states
+     * @throws IllegalArgumentException if pulse is less than 0
+     */
+    void addPulse(long pulse) {
+        pulseLengths.add(pulse);
+
+        // Analysis can look ahead by one pulse so always leave the latest pulse unprocessed
+        while (nextIndex < pulseLengths.size() - 1) {
+            processNextPulse();
+        }
+    }
 
-        while (context.hasNextPulse()) {
-            context.getNextPulse();
-            state = state.nextState(context);
+    /**
+     * Analyse any remaining pulses and terminate the tape, passing all remaining TapeBlocks on.
+     */
+    void completeTape() {
+        while (hasNextPulse()) {
+            processNextPulse();
         }
 
         // Terminate the tape
-        state.endLoader(context);
+        state.endLoader(this);
+        tapeBlockListBuilder.complete();
 
-        getLogger(LoaderContextImpl.class.getName()).log(Level.FINE, context.toString());
+        getLogger(LoaderContextImpl.class.getName()).log(Level.FINE, toString());
+    }
 
-        return context.getTapeBlockList();
+    private void processNextPulse() {
+        getNextPulse();
+        state = state.process(this);
     }
 
     void getNextPulse() {
         currentPulse = pulseLengths.get(nextIndex++);
+        currentPulseClass = PulseClassifier.classify(currentPulse);
         currentLevel = invertPulseLevel(currentLevel);
     }
 
@@ -107,7 +141,7 @@ class LoaderContextImpl implements LoaderContext {
     }
 
     private PulseList buildPulseList() {
-        return new PulseList(pulseLengths.subList(firstIndexOfBlock, lastIndexOfBlock), firstPulseLevel, resolution);
+        return pulseLengths.subList(firstIndexOfBlock, lastIndexOfBlock, firstPulseLevel);
     }
 
     @Override
@@ -128,6 +162,13 @@ class LoaderContextImpl implements LoaderContext {
         tapeBlockListBuilder.add(new Pair<>(blockType, buildPulseList()));
         firstIndexOfBlock = lastIndexOfBlock;
         resetBlock();
+        releaseSettledPulses();
+    }
+
+    // Only the pulses of the current block and of the last completed block, which could be reverted, are still needed
+    private void releaseSettledPulses() {
+        int lastBlockSize = tapeBlockListBuilder.peekLastBlock().map(pair -> pair.getValue().size()).orElse(0);
+        pulseLengths.discardBefore(firstIndexOfBlock - lastBlockSize);
     }
 
     @Override
@@ -152,12 +193,17 @@ class LoaderContextImpl implements LoaderContext {
 
         PulseList lastBlock = lastTapeBlock.get().getValue();
         // Preserve any pulses from the last block
-        firstIndexOfBlock -= lastBlock.getPulseLengths().size();
+        firstIndexOfBlock -= lastBlock.size();
 
         // If the last block was null this block has the same first pulse level that would have had
         resetBlock(lastBlock.getFirstPulseLevel()); // FIXME: Will have lost pilot count if it was present in the last block
     }
 
+    @Override
+    public int getPulseClass() {
+        return currentPulseClass;
+    }
+
     @Override
     public int getNumPilotPulses() {
         return pilotPulseCount;
@@ -165,22 +211,22 @@ class LoaderContextImpl implements LoaderContext {
 
     @Override
     public boolean isaPilotCandidate() {
-        return LoaderContext.isaPilotCandidate(currentPulse);
+        return PulseClassifier.isaPilotCandidate(currentPulseClass);
     }
 
     @Override
     public boolean isTooLongToBeAPilot() {
-        return currentPulse > MAX_PILOT_LENGTH;
+        return PulseClassifier.isTooLongToBeAPilot(currentPulseClass);
     }
 
     @Override
     public boolean isaDataCandidate() {
-        return currentPulse < MIN_PILOT_LENGTH;
+        return PulseClassifier.isaDataCandidate(currentPulseClass);
     }
 
     @Override
     public boolean isaCandidateTailPulse() {
-        return currentPulse <= LoaderContext.MAX_TAIL_PULSE;
+        return PulseClassifier.isaCandidateTailPulse(currentPulseClass);
     }
 
     @Override
@@ -196,14 +242,32 @@ class LoaderContextImpl implements LoaderContext {
     }
 
     LoaderContextImpl(PulseList pulseList) {
-        checkNotNull(pulseList, "pulseList cannot be null");
-        this.currentLevel = invertPulseLevel(pulseList.getFirstPulseLevel()); // will be inverted when first pulse is retrieved
-        this.resolution = pulseList.getResolution();
-        pulseLengths = pulseList.getPulseLengths();
+        this(PulseBuffer.of(checkNotNull(pulseList, "pulseList cannot be null")), pulseList.getFirstPulseLevel(),
+                pulseList.getResolution(), new TapeBlockListBuilder());
+    }
+
+    /**
+     * Construct a LoaderContextImpl that has pulses supplied with {@link #addPulse(long)} and passes completed
+     * TapeBlocks to the supplied consumer.
+     *
+     * @param firstPulseLevel the level of the first pulse on the tape
+     * @param resolution      the resolution of each pulse in T-states
+     * @param consumer        the destination for the completed TapeBlocks
+     */
+    LoaderContextImpl(int firstPulseLevel, long resolution, Consumer<TapeBlock> consumer) {
+        this(new PulseBuffer(resolution), firstPulseLevel, resolution, new TapeBlockListBuilder(consumer));
+    }
+
+    private LoaderContextImpl(PulseBuffer pulseLengths, int firstPulseLevel, long resolution,
+                              TapeBlockListBuilder tapeBlockListBuilder) {
+        this.currentLevel = invertPulseLevel(firstPulseLevel); // will be inverted when first pulse is retrieved
+        this.resolution = resolution;
+        this.pulseLengths = pulseLengths;
+        this.tapeBlockListBuilder = tapeBlockListBuilder;
         nextIndex = 0;
         firstIndexOfBlock = 0;
         lastIndexOfBlock = 0;
-        resetBlock(pulseList.getFirstPulseLevel());
+        resetBlock(firstPulseLevel);
     }
 
     List<TapeBlock> getTapeBlockList() {
@@ -28,11 +28,18 @@ package xyz.meunier.wav2pzx.generaldecoder;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import static xyz.meunier.wav2pzx.generaldecoder.LoaderState.Action.*;
+
 /**
  * State machine that drives the processing of a sequence of pulses, recognising
  * pilot and data blocks.
  * <p>
  * State is all extrinsic and stored in a supplied LoaderContext object.
+ * <p>
+ * Each state has a row of a transition table indexed by {@link PulseClassifier} class giving the action for a pulse
+ * of that class, applied by {@link #process(LoaderContext)}. Pulses that leave the state unchanged are added to the
+ * current block straight from the table, only pulses that may change the state are dispatched to
+ * {@link #nextState(LoaderContext)}.
  * @author Fredrick Meunier
  */
 enum LoaderState {
@@ -41,24 +48,19 @@ enum LoaderState {
      * This is the initial state of the loader, searching for a PILOT tone.
      * Generates a pulse sequence block.
      */
-    INITIAL {
+    INITIAL(ADD_UNCLASSIFIED, DISPATCH, DISPATCH, ADD_UNCLASSIFIED) {
         @Override
         public LoaderState nextState(LoaderContext context) {
-            if(context.isaPilotCandidate()) {
-                // Close current pulse block - note that this may be empty!
-                context.completeUnknownPulseBlock();
+            // Only pilot candidates are dispatched, the table adds any other pulse to the current block
 
-                // Put pulse into new pulse block and pilot pulse stats
-                context.addPilotPulse();
-                
-                logTransition(INITIAL, FIND_PILOT);
-                return FIND_PILOT;
-            } else {
-                // Put pulse into current block
-                context.addUnclassifiedPulse();
+            // Close current pulse block - note that this may be empty!
+            context.completeUnknownPulseBlock();
 
-                return INITIAL;
-            }
+            // Put pulse into new pulse block and pilot pulse stats
+            context.addPilotPulse();
+
+            logTransition(INITIAL, FIND_PILOT);
+            return FIND_PILOT;
         }
 
         @Override
@@ -71,7 +73,7 @@ enum LoaderState {
     /**
      * The parser is in this state if it is currently accumulating pilot pulses.
      */
-    FIND_PILOT {
+    FIND_PILOT(DISPATCH, DISPATCH, DISPATCH, DISPATCH) {
         @Override
         public LoaderState nextState(LoaderContext context) {
             if( !context.isaPilotCandidate() ) {
@@ -105,26 +107,21 @@ enum LoaderState {
      * for data so transition to GET_DATA or if greater than MAX_PILOT_LENGTH transition back to looking for PILOT
      * pulses.
      */
-    FIND_PILOT_END {
+    FIND_PILOT_END(DISPATCH, ADD_PILOT, ADD_PILOT, DISPATCH) {
         @Override
         public LoaderState nextState(LoaderContext context) {
-            if( context.isaDataCandidate() ) {
-                context.completePilotPulseBlock();
+            // Only data candidates and pulses too long to be a pilot are dispatched, the table adds pilot pulses
+            context.completePilotPulseBlock();
 
+            if( context.isaDataCandidate() ) {
                 // Found a candidate sync/data pulse, and re-process this pulse in the new state
                 logTransition(FIND_PILOT_END, GET_DATA);
-                return GET_DATA.nextState(context);
-            } else if(context.isTooLongToBeAPilot()) {
-                context.completePilotPulseBlock();
-
-                // go back to looking for pilot tones, but re-process this pulse in the new state
-                logTransition(FIND_PILOT_END, INITIAL);
-                return INITIAL.nextState(context);
+                return GET_DATA.process(context);
             }
 
-            context.addPilotPulse();
-            
-            return FIND_PILOT_END;
+            // go back to looking for pilot tones, but re-process this pulse in the new state
+            logTransition(FIND_PILOT_END, INITIAL);
+            return INITIAL.process(context);
         }
 
         @Override
@@ -139,7 +136,7 @@ enum LoaderState {
      * find any more data bits or a tail pulse, complete the block and head back
      * to looking for PILOT pulses.
      */
-    GET_DATA {
+    GET_DATA(DISPATCH, DISPATCH, DISPATCH, DISPATCH) {
         @Override
         public LoaderState nextState(LoaderContext context) {
             if(context.isCurrentAndNextPulseTooLongToBeADataCandidate()) {
@@ -170,14 +167,72 @@ enum LoaderState {
             // go back to looking for pilot tones, but re-process this pulse in the new state if we haven't allocated it
             // to this block
             logTransition(GET_DATA, INITIAL);
-            return wasTailPulse ? INITIAL : INITIAL.nextState(context);
+            return wasTailPulse ? INITIAL : INITIAL.process(context);
         }
 
     };
 
+    /**
+     * The actions of the transition table
+     */
+    enum Action {
+        /**
+         * The pulse may change the state, call {@link #nextState(LoaderContext)}
+         */
+        DISPATCH,
+
+        /**
+         * Add the pulse to the current block as an unclassified pulse and stay in this state
+         */
+        ADD_UNCLASSIFIED,
+
+        /**
+         * Add the pulse to the current block as a pilot pulse and stay in this state
+         */
+        ADD_PILOT
+    }
+
+    // The action for each class of pulse in this state
+    private final Action[] actions;
+
+    LoaderState(Action... actions) {
+        this.actions = actions;
+    }
+
+    /**
+     * Returns the action to take for a pulse of the supplied class in this state.
+     *
+     * @param pulseClass the class of the pulse from {@link PulseClassifier}
+     * @return the action
+     */
+    final Action getAction(int pulseClass) {
+        return actions[pulseClass];
+    }
+
+    /**
+     * Handles the current pulse of the context with the action from this state's transition table for its class.
+     *
+     * @param context the extrinsic state of the Loader
+     * @return the next LoaderState
+     */
+    final LoaderState process(LoaderContext context) {
+        switch (actions[context.getPulseClass()]) {
+            case ADD_UNCLASSIFIED:
+                context.addUnclassifiedPulse();
+                return this;
+            case ADD_PILOT:
+                context.addPilotPulse();
+                return this;
+            default:
+                return nextState(context);
+        }
+    }
+
     /**
      * Returns the next state of the state machine depending on the current 
-     * state and the next pulse from the file being analysed.
+     * state and the next pulse from the file being analysed. Only called for
+     * pulses whose action in this state's transition table is
+     * {@link Action#DISPATCH}.
      *
      * @param context the extrinsic state of the Loader
      * @return the LoaderState
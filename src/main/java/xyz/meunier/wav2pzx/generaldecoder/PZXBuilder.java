@@ -25,16 +25,20 @@
  */
 package xyz.meunier.wav2pzx.generaldecoder;
 
-import com.google.common.collect.ImmutableList;
-import com.google.common.collect.PeekingIterator;
 import xyz.meunier.wav2pzx.blocks.*;
-import xyz.meunier.wav2pzx.databuilder.DataBuilder;
 import xyz.meunier.wav2pzx.pulselist.PulseList;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
-import static com.google.common.collect.Iterators.peekingIterator;
+import static xyz.meunier.wav2pzx.generaldecoder.BlockType.DATA;
+import static xyz.meunier.wav2pzx.generaldecoder.BlockType.PILOT;
 import static xyz.meunier.wav2pzx.generaldecoder.BlockType.SYNC_CANDIDATE;
 import static xyz.meunier.wav2pzx.generaldecoder.BlockType.TAIL_CANDIDATE;
 
@@ -43,6 +47,9 @@ import static xyz.meunier.wav2pzx.generaldecoder.BlockType.TAIL_CANDIDATE;
  */
 public final class PZXBuilder {
 
+    // The number of pulse pairs that did not decode as bits to list in the log for each block
+    private static final int MAX_REPORTED_MISMATCHES = 8;
+
     private PZXBuilder() {
     }
 
@@ -53,8 +60,9 @@ public final class PZXBuilder {
      * @return the analysed tape image
      */
     public static List<PZXBlock> buildPZXTapeList(PulseList pulseList) {
-        // Analyse the source data and translate into an equivalent list of PZX tape blocks
-        List<TapeBlock> blocks = LoaderContextImpl.buildTapeBlockList(pulseList);
+        // Analyse the source data, in parallel where the tape can be split between programs, and translate into an
+        // equivalent list of PZX tape blocks
+        List<TapeBlock> blocks = SegmentedTapeDecoder.buildTapeBlockList(pulseList);
         return buildPZXTapeList(blocks);
     }
 
@@ -68,17 +76,55 @@ public final class PZXBuilder {
         List<PZXBlock> pzxTape = new ArrayList<>();
         pzxTape.add(new PZXHeaderBlock());
 
-        PeekingIterator<TapeBlock> iterator = peekingIterator(tapeBlockList.iterator());
+        processAllBlocks(new ArrayDeque<>(tapeBlockList), pzxTape::add);
+
+        return pzxTape;
+    }
 
-        while (iterator.hasNext()) {
-            pzxTape.add(getPzxBlock(iterator));
+    /**
+     * Translate the pending TapeBlocks into PZXBlocks for as long as the block at the head of the queue can no longer
+     * be affected by blocks that have yet to be added to the queue.
+     *
+     * @param pendingBlocks the TapeBlocks waiting to be translated, processed blocks are removed
+     * @param consumer      the destination for the translated blocks
+     */
+    static void processSettledBlocks(Deque<TapeBlock> pendingBlocks, Consumer<PZXBlock> consumer) {
+        while (isHeadBlockSettled(pendingBlocks)) {
+            consumer.accept(getPzxBlock(pendingBlocks));
         }
+    }
 
-        return pzxTape;
+    /**
+     * Translate all of the pending TapeBlocks into PZXBlocks.
+     *
+     * @param pendingBlocks the TapeBlocks waiting to be translated, processed blocks are removed
+     * @param consumer      the destination for the translated blocks
+     */
+    static void processAllBlocks(Deque<TapeBlock> pendingBlocks, Consumer<PZXBlock> consumer) {
+        while (!pendingBlocks.isEmpty()) {
+            consumer.accept(getPzxBlock(pendingBlocks));
+        }
     }
 
-    private static PZXBlock getPzxBlock(PeekingIterator<TapeBlock> iterator) {
-        TapeBlock block = iterator.next();
+    // A pilot absorbs any following sync candidates and a data block absorbs a following tail candidate so they can
+    // only be translated once the following block is known
+    private static boolean isHeadBlockSettled(Deque<TapeBlock> pendingBlocks) {
+        if (pendingBlocks.isEmpty()) return false;
+
+        Iterator<TapeBlock> iterator = pendingBlocks.iterator();
+        BlockType headBlockType = iterator.next().getBlockType();
+        if (headBlockType == PILOT) {
+            while (iterator.hasNext()) {
+                if (iterator.next().getBlockType() != SYNC_CANDIDATE) return true;
+            }
+            return false;
+        }
+
+        return headBlockType != DATA || iterator.hasNext();
+    }
+
+    private static PZXBlock getPzxBlock(Deque<TapeBlock> pendingBlocks) {
+        TapeBlock block = pendingBlocks.removeFirst();
         PulseList blockPulseList = block.getPulseList();
         PZXBlock pzxBlock = new PZXNullBlock();
         switch (block.getBlockType()) {
@@ -88,13 +134,13 @@ public final class PZXBuilder {
                 pzxBlock = new PZXPulseBlock(blockPulseList);
                 break;
             case PILOT:
-                pzxBlock = getPzxPulseBlock(iterator, blockPulseList);
+                pzxBlock = getPzxPulseBlock(pendingBlocks, blockPulseList);
                 break;
             case SYNC_CANDIDATE:
                 pzxBlock = new PZXPulseBlock(blockPulseList);
                 break;
             case DATA:
-                pzxBlock = getPzxDataBlock(iterator, block);
+                pzxBlock = getPzxDataBlock(pendingBlocks, block, blockPulseList);
                 break;
             case TAIL_CANDIDATE:
                 pzxBlock = new PZXPulseBlock(blockPulseList);
@@ -103,47 +149,53 @@ public final class PZXBuilder {
         return pzxBlock;
     }
 
-    private static PZXDataBlock getPzxDataBlock(PeekingIterator<TapeBlock> iterator, TapeBlock block) {
-        long tailLength = getTailLength(iterator);
+    private static PZXDataBlock getPzxDataBlock(Deque<TapeBlock> pendingBlocks, TapeBlock block,
+                                                PulseList blockPulseList) {
+        long tailLength = getTailLength(pendingBlocks);
 
         List<Long> zeroPulseLengths = block.getZeroBit().getPulses();
         List<Long> onePulseLengths = block.getOneBit().getPulses();
-        DataBuilder dataBuilder = new DataBuilder();
-
-        ImmutableList<Long> pulseLengths = block.getPulseList().getPulseLengths();
-        for (int i = 0; i < pulseLengths.size(); i += 2) {
-            ImmutableList<Long> pulses = pulseLengths.subList(i, i + 2);
-            if (isSpecifiedPulseSequence(zeroPulseLengths, pulses)) {
-                dataBuilder.addBit(0);
-            } else if (isSpecifiedPulseSequence(onePulseLengths, pulses)) {
-                dataBuilder.addBit(1);
-            }
-            // FIXME: Some kind of error, fall back to PulseBlock?
-        }
 
-        int numBitsInLastByte = dataBuilder.getNumBitsInCurrentByte();
-        return new PZXDataBlock(block.getPulseList(), zeroPulseLengths, onePulseLengths, tailLength,
-                numBitsInLastByte, dataBuilder.getData());
+        PulsePairDecoder decoder = PulsePairDecoder.decode(blockPulseList, zeroPulseLengths, onePulseLengths);
+        reportMismatchedPairs(blockPulseList, decoder.getMismatchedPairs());
+
+        return new PZXDataBlock(blockPulseList, zeroPulseLengths, onePulseLengths, tailLength,
+                decoder.getDataBuilder());
     }
 
-    private static long getTailLength(PeekingIterator<TapeBlock> iterator) {
-        long tailLength = 0;
-        if (iterator.hasNext() && iterator.peek().getBlockType() == TAIL_CANDIDATE) {
-            tailLength = iterator.next().getPulseList().getPulseLengths().get(0);
+    // The pairs that are not bits are left out of the data, FIXME: fall back to PulseBlock if there are many?
+    private static void reportMismatchedPairs(PulseList pulseList, int[] mismatchedPairs) {
+        if (mismatchedPairs.length == 0) return;
+
+        StringBuilder message = new StringBuilder()
+                .append(mismatchedPairs.length).append(" pulse pairs did not match a bit and were skipped:");
+        for (int i = 0; i < Math.min(mismatchedPairs.length, MAX_REPORTED_MISMATCHES); i++) {
+            int index = mismatchedPairs[i];
+            message.append(" [").append(index).append("] ")
+                    .append(pulseList.get(index)).append(",").append(pulseList.get(index + 1));
         }
-        return tailLength;
+        if (mismatchedPairs.length > MAX_REPORTED_MISMATCHES) {
+            message.append(" ...");
+        }
+        Logger.getLogger(PZXBuilder.class.getName()).log(Level.WARNING, message.toString());
     }
 
-    private static boolean isSpecifiedPulseSequence(List<Long> pulseLength, List<Long> pulses) {
-        return pulseLength.equals(pulses);
+    private static long getTailLength(Deque<TapeBlock> pendingBlocks) {
+        long tailLength = 0;
+        if (!pendingBlocks.isEmpty() && pendingBlocks.peekFirst().getBlockType() == TAIL_CANDIDATE) {
+            tailLength = pendingBlocks.removeFirst().getPulseList().get(0);
+        }
+        return tailLength;
     }
 
-    private static PZXPulseBlock getPzxPulseBlock(PeekingIterator<TapeBlock> iterator, PulseList blockPulseList) {
-        while (iterator.hasNext() && iterator.peek().getBlockType() == SYNC_CANDIDATE) {
-            // Make a new PulseList with this block and the next one
-            blockPulseList = new PulseList(blockPulseList, iterator.next().getPulseList());
+    private static PZXPulseBlock getPzxPulseBlock(Deque<TapeBlock> pendingBlocks, PulseList blockPulseList) {
+        List<PulseList> pulseLists = new ArrayList<>();
+        pulseLists.add(blockPulseList);
+        while (!pendingBlocks.isEmpty() && pendingBlocks.peekFirst().getBlockType() == SYNC_CANDIDATE) {
+            pulseLists.add(pendingBlocks.removeFirst().getPulseList());
         }
-        return new PZXPulseBlock(blockPulseList);
+        // Make a new PulseList with this block and all the following sync candidates in one go
+        return new PZXPulseBlock(PulseList.concat(pulseLists));
     }
 
 }
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2016, Fredrick Meunier
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package xyz.meunier.wav2pzx.generaldecoder;
+
+import static xyz.meunier.wav2pzx.generaldecoder.LoaderContext.MAX_PILOT_LENGTH;
+import static xyz.meunier.wav2pzx.generaldecoder.LoaderContext.MAX_TAIL_PULSE;
+import static xyz.meunier.wav2pzx.generaldecoder.LoaderContext.MIN_PILOT_LENGTH;
+
+/**
+ * Classifies single pulses into the disjoint classes that the general decoder's state machine distinguishes. Each
+ * pulse is compared against the primitive thresholds once, the questions the state machine asks about the pulse are
+ * then answered from its class.
+ * <p>
+ * The classes rely on MIN_PILOT_LENGTH &lt;= MAX_TAIL_PULSE &lt;= MAX_PILOT_LENGTH.
+ * @author Fredrick Meunier
+ */
+final class PulseClassifier {
+
+    /**
+     * Shorter than a pilot pulse, a candidate for a data or tail pulse
+     */
+    static final int DATA_CANDIDATE = 0;
+
+    /**
+     * A pilot candidate that is also short enough to be a tail pulse
+     */
+    static final int SHORT_PILOT_CANDIDATE = 1;
+
+    /**
+     * A pilot candidate that is too long to be a tail pulse
+     */
+    static final int LONG_PILOT_CANDIDATE = 2;
+
+    /**
+     * Too long to be a pilot pulse
+     */
+    static final int TOO_LONG = 3;
+
+    /**
+     * The number of pulse classes
+     */
+    static final int NUM_CLASSES = 4;
+
+    private PulseClassifier() {
+    }
+
+    /**
+     * @param pulse the length of the pulse in T-states
+     * @return the class of the pulse
+     */
+    static int classify(long pulse) {
+        if (pulse < MIN_PILOT_LENGTH) return DATA_CANDIDATE;
+        if (pulse <= MAX_TAIL_PULSE) return SHORT_PILOT_CANDIDATE;
+        if (pulse <= MAX_PILOT_LENGTH) return LONG_PILOT_CANDIDATE;
+        return TOO_LONG;
+    }
+
+    /**
+     * @param pulseClass the class of the pulse
+     * @return true if a pulse of this class is a candidate to be a pilot pulse
+     */
+    static boolean isaPilotCandidate(int pulseClass) {
+        return pulseClass == SHORT_PILOT_CANDIDATE || pulseClass == LONG_PILOT_CANDIDATE;
+    }
+
+    /**
+     * @param pulseClass the class of the pulse
+     * @return true if a pulse of this class is a candidate to be a data pulse
+     */
+    static boolean isaDataCandidate(int pulseClass) {
+        return pulseClass == DATA_CANDIDATE;
+    }
+
+    /**
+     * @param pulseClass the class of the pulse
+     * @return true if a pulse of this class is a candidate to be a tail pulse
+     */
+    static boolean isaCandidateTailPulse(int pulseClass) {
+        return pulseClass <= SHORT_PILOT_CANDIDATE;
+    }
+
+    /**
+     * @param pulseClass the class of the pulse
+     * @return true if a pulse of this class is too long to be a pilot pulse
+     */
+    static boolean isTooLongToBeAPilot(int pulseClass) {
+        return pulseClass == TOO_LONG;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2016, Fredrick Meunier
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package xyz.meunier.wav2pzx.generaldecoder;
+
+import xyz.meunier.wav2pzx.databuilder.DataBuilder;
+import xyz.meunier.wav2pzx.pulselist.PulseList;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Decodes the bits of a data block from its pulses, taking each pair of pulses in turn and comparing it with the zero
+ * and one bit patterns of the block. Bits are packed a byte at a time into a {@link DataBuilder}, most significant bit
+ * first, and the pairs that match neither pattern are recorded rather than silently dropped.
+ */
+final class PulsePairDecoder {
+
+    // Pulse lengths are never negative so a pattern that is not a pair of pulses never matches
+    private static final long NO_MATCH = -1;
+
+    private final DataBuilder dataBuilder;
+    private final int[] mismatchedPairs;
+
+    private PulsePairDecoder(DataBuilder dataBuilder, int[] mismatchedPairs) {
+        this.dataBuilder = dataBuilder;
+        this.mismatchedPairs = mismatchedPairs;
+    }
+
+    /**
+     * Decode the supplied pulses as pairs of pulses matching either the zero or one bit pattern.
+     *
+     * @param pulses     the pulses of the data block
+     * @param zeroPulses the pair of pulses for a zero bit
+     * @param onePulses  the pair of pulses for a one bit
+     * @return the decoded data
+     * @throws NullPointerException if any argument is null
+     */
+    static PulsePairDecoder decode(PulseList pulses, List<Long> zeroPulses, List<Long> onePulses) {
+        checkNotNull(pulses, "pulses must not be null");
+        long zeroFirst = getPatternPulse(zeroPulses, 0);
+        long zeroSecond = getPatternPulse(zeroPulses, 1);
+        long oneFirst = getPatternPulse(onePulses, 0);
+        long oneSecond = getPatternPulse(onePulses, 1);
+
+        int numPairs = pulses.size() / 2;
+        DataBuilder dataBuilder = new DataBuilder(numPairs);
+        int[] mismatchedPairs = new int[0];
+        int numMismatches = 0;
+        int numBits = 0;
+        int currentByte = 0;
+
+        for (int i = 0; i < numPairs * 2; i += 2) {
+            long first = pulses.get(i);
+            long second = pulses.get(i + 1);
+
+            int bit;
+            if (first == zeroFirst && second == zeroSecond) {
+                bit = 0;
+            } else if (first == oneFirst && second == oneSecond) {
+                bit = 1;
+            } else {
+                if (numMismatches == mismatchedPairs.length) {
+                    mismatchedPairs = Arrays.copyOf(mismatchedPairs, Math.max(8, numMismatches * 2));
+                }
+                mismatchedPairs[numMismatches++] = i;
+                continue;
+            }
+
+            currentByte = currentByte << 1 | bit;
+            if ((++numBits & 7) == 0) {
+                dataBuilder.addBits(currentByte, 8);
+                currentByte = 0;
+            }
+        }
+        dataBuilder.addBits(currentByte, numBits & 7);
+
+        // Complete the data so the checksum covers any partial last byte
+        dataBuilder.takeData();
+        return new PulsePairDecoder(dataBuilder, Arrays.copyOf(mismatchedPairs, numMismatches));
+    }
+
+    private static long getPatternPulse(List<Long> pattern, int index) {
+        checkNotNull(pattern, "pattern must not be null");
+        return pattern.size() == 2 ? pattern.get(index) : NO_MATCH;
+    }
+
+    /**
+     * @return the completed builder holding the decoded data along with the checksum calculated while it was decoded
+     */
+    DataBuilder getDataBuilder() {
+        return dataBuilder;
+    }
+
+    /**
+     * @return the index of the first pulse of each pair that matched neither bit pattern
+     */
+    int[] getMismatchedPairs() {
+        return mismatchedPairs.clone();
+    }
+}
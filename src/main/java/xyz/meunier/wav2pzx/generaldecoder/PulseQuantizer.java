@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2016, Fredrick Meunier
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package xyz.meunier.wav2pzx.generaldecoder;
+
+import xyz.meunier.wav2pzx.blocks.PZXBlock;
+import xyz.meunier.wav2pzx.blocks.PZXPulseBlock;
+import xyz.meunier.wav2pzx.pulselist.PulseList;
+
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.lang.Math.round;
+
+/**
+ * Optional lossy optimisation of the pulses stored in PZX pulse blocks. Pulses are grouped where sorted they are no
+ * more than the maximum error apart, split where needed to keep every pulse within the maximum error of its group's
+ * average, and replaced by that average. Runs of jittery pulses then become runs of
+ * equal pulses that encode as single repeat records.
+ *
+ * @author Fredrick Meunier
+ */
+public final class PulseQuantizer {
+
+    private PulseQuantizer() {
+    }
+
+    /**
+     * Quantize the pulses of a PZXPulseBlock, any other type of block is returned unchanged.
+     *
+     * @param block    the block to quantize
+     * @param maxError the most any pulse may be changed by in T-states, 0 leaves the pulses unchanged
+     * @return a block with the quantized pulses
+     * @throws NullPointerException     if block is null
+     * @throws IllegalArgumentException if maxError is negative
+     */
+    public static PZXBlock quantize(PZXBlock block, long maxError) {
+        checkNotNull(block, "block must not be null");
+        checkArgument(maxError >= 0, "maxError must not be negative");
+        if (!(block instanceof PZXPulseBlock)) {
+            return block;
+        }
+
+        PulseList pulseList = ((PZXPulseBlock) block).getPulseList();
+        PulseList quantized = quantize(pulseList, maxError);
+        return quantized == pulseList ? block : new PZXPulseBlock(quantized);
+    }
+
+    /**
+     * Replace each pulse in a PulseList with the average length of the group of similar pulses it belongs to.
+     *
+     * @param pulseList the pulses to quantize
+     * @param maxError  the most any pulse may be changed by in T-states, 0 leaves the pulses unchanged
+     * @return a PulseList with the quantized pulses, or pulseList if no pulse was changed
+     * @throws NullPointerException     if pulseList is null
+     * @throws IllegalArgumentException if maxError is negative
+     */
+    public static PulseList quantize(PulseList pulseList, long maxError) {
+        checkNotNull(pulseList, "pulseList must not be null");
+        checkArgument(maxError >= 0, "maxError must not be negative");
+        if (maxError == 0) {
+            return pulseList;
+        }
+
+        long[] pulses = pulseList.toArray();
+        long[] sortedPulses = pulses.clone();
+        Arrays.sort(sortedPulses);
+        GroupAverages averages = getGroupAverages(sortedPulses, maxError);
+
+        boolean changed = false;
+        for (int i = 0; i < pulses.length; i++) {
+            long average = averages.get(pulses[i]);
+            if (average != pulses[i]) {
+                pulses[i] = average;
+                changed = true;
+            }
+        }
+
+        return changed ? new PulseList(pulses, pulseList.getFirstPulseLevel(), pulseList.getResolution()) : pulseList;
+    }
+
+    /**
+     * Group the supplied pulses so that no pulse is further than maxError from the average of its group.
+     *
+     * @param sortedPulses the pulses to group, in ascending order
+     * @param maxError     the most any pulse may differ from the average of its group
+     * @return the average of each group of more than one distinct pulse
+     */
+    static GroupAverages getGroupAverages(long[] sortedPulses, long maxError) {
+        GroupAverages averages = new GroupAverages(sortedPulses.length);
+
+        // Pulses are in the same range when sorted they are no more than maxError apart
+        int start = 0;
+        for (int i = 1; i <= sortedPulses.length; i++) {
+            if (i == sortedPulses.length || sortedPulses[i] - sortedPulses[i - 1] > maxError) {
+                addBoundedGroups(averages, sortedPulses, start, i, maxError);
+                start = i;
+            }
+        }
+
+        return averages;
+    }
+
+    // A range of pulses can chain together pulses further apart than the error allows, so split the sorted pulses
+    // from start to end into groups that keep every pulse within maxError of the group average. Equal pulses are
+    // never split.
+    private static void addBoundedGroups(GroupAverages averages, long[] sortedPulses, int start, int end,
+                                         long maxError) {
+        long sum = 0;
+        int i = start;
+        while (i < end) {
+            long pulse = sortedPulses[i];
+            int next = i;
+            while (next < end && sortedPulses[next] == pulse) {
+                next++;
+            }
+
+            long newSum = sum + pulse * (next - i);
+            long average = round((double) newSum / (next - start));
+            if (pulse - average > maxError || average - sortedPulses[start] > maxError) {
+                averages.add(sortedPulses, start, i, sum);
+                start = i;
+                newSum = pulse * (next - i);
+            }
+
+            sum = newSum;
+            i = next;
+        }
+        averages.add(sortedPulses, start, end, sum);
+    }
+
+    /**
+     * The averages of the groups of pulses found by {@link #getGroupAverages(long[], long)}, held in ascending order
+     * in parallel arrays of each group's lowest and highest pulse and its average so that each pulse is looked up
+     * with a binary search.
+     */
+    static final class GroupAverages {
+        private final long[] lowest;
+        private final long[] highest;
+        private final long[] averages;
+        private int size;
+
+        private GroupAverages(int capacity) {
+            // Each group holds at least two pulses
+            lowest = new long[capacity / 2];
+            highest = new long[capacity / 2];
+            averages = new long[capacity / 2];
+        }
+
+        // Add the group of sorted pulses from start to end if it has more than one distinct pulse
+        private void add(long[] sortedPulses, int start, int end, long sum) {
+            if (sortedPulses[start] != sortedPulses[end - 1]) {
+                lowest[size] = sortedPulses[start];
+                highest[size] = sortedPulses[end - 1];
+                averages[size] = round((double) sum / (end - start));
+                size++;
+            }
+        }
+
+        /**
+         * @param pulse the pulse to look up
+         * @return the average of the group holding pulse, or pulse if it is not in a group
+         */
+        long get(long pulse) {
+            int index = Arrays.binarySearch(lowest, 0, size, pulse);
+            if (index < 0) {
+                // The group starting below pulse, if any
+                index = -index - 2;
+            }
+            return index >= 0 && pulse <= highest[index] ? averages[index] : pulse;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2016, Fredrick Meunier
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package xyz.meunier.wav2pzx.generaldecoder;
+
+import xyz.meunier.wav2pzx.pulselist.PulseList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.stream.Collectors.toList;
+import static xyz.meunier.wav2pzx.generaldecoder.LoaderContext.DATA_TOTAL_MAX;
+import static xyz.meunier.wav2pzx.generaldecoder.LoaderContext.MIN_PILOT_COUNT;
+import static xyz.meunier.wav2pzx.generaldecoder.LoaderContext.isaPilotCandidate;
+
+/**
+ * Splits a tape into segments that can be analysed independently and analyses them in parallel, giving the same
+ * TapeBlocks as analysing the whole tape at once.
+ * <p>
+ * A tape is cut before a run of at least MIN_PILOT_COUNT pilot candidates that follows a pulse longer than
+ * DATA_TOTAL_MAX, such as a gap between programs. Whatever state the loader was in, that long pulse ends any pilot
+ * or data block and is added to an unknown block, and the run of pilot pulses then starts a new pilot block that can
+ * not be reverted. As the long pulse can't be part of a data bit even without knowing the pulse after it, and an
+ * unknown block holding it can't be merged with the following pilot block, the segments on either side of the cut
+ * produce exactly the TapeBlocks they would as part of the whole tape.
+ * @author Fredrick Meunier
+ */
+final class SegmentedTapeDecoder {
+
+    /**
+     * The smallest number of pulses in a segment that is worth analysing on its own
+     */
+    static final int MIN_SEGMENT_SIZE = 1 << 16;
+
+    private SegmentedTapeDecoder() {
+    }
+
+    /**
+     * Analyse the supplied PulseList, splitting it into segments of at least MIN_SEGMENT_SIZE pulses where possible
+     * and analysing the segments in parallel.
+     *
+     * @param pulseList the tape data to analyse
+     * @return the analysed tape image
+     * @throws NullPointerException if pulseList was null
+     */
+    static List<TapeBlock> buildTapeBlockList(PulseList pulseList) {
+        return buildTapeBlockList(pulseList, MIN_SEGMENT_SIZE);
+    }
+
+    /**
+     * Analyse the supplied PulseList, splitting it into segments of at least minSegmentSize pulses where possible and
+     * analysing the segments in parallel.
+     *
+     * @param pulseList      the tape data to analyse
+     * @param minSegmentSize the smallest number of pulses in a segment before a cut
+     * @return the analysed tape image
+     * @throws NullPointerException if pulseList was null
+     * @throws IllegalArgumentException if minSegmentSize is not positive
+     */
+    static List<TapeBlock> buildTapeBlockList(PulseList pulseList, int minSegmentSize) {
+        checkNotNull(pulseList, "pulseList was null");
+        int[] cutPoints = findCutPoints(pulseList, minSegmentSize);
+        if (cutPoints.length == 0) {
+            return LoaderContextImpl.buildTapeBlockList(pulseList);
+        }
+
+        // The ordered collect keeps the segments in tape order whichever threads analyse them
+        List<List<TapeBlock>> segments = IntStream.rangeClosed(0, cutPoints.length)
+                .parallel()
+                .mapToObj(i -> LoaderContextImpl.buildTapeBlockList(pulseList.subList(
+                        i == 0 ? 0 : cutPoints[i - 1], i == cutPoints.length ? pulseList.size() : cutPoints[i])))
+                .collect(toList());
+
+        List<TapeBlock> tapeBlockList = new ArrayList<>();
+        segments.forEach(tapeBlockList::addAll);
+        return tapeBlockList;
+    }
+
+    /**
+     * Find the indexes of the pulses that the tape can be cut before, each at least minSegmentSize pulses after the
+     * previous one.
+     *
+     * @param pulseList      the tape data to analyse
+     * @param minSegmentSize the smallest number of pulses in a segment before a cut
+     * @return the indexes of the first pulse of each segment after the first in ascending order
+     * @throws NullPointerException if pulseList was null
+     * @throws IllegalArgumentException if minSegmentSize is not positive
+     */
+    static int[] findCutPoints(PulseList pulseList, int minSegmentSize) {
+        checkNotNull(pulseList, "pulseList was null");
+        checkArgument(minSegmentSize > 0, "minSegmentSize must be positive");
+
+        int[] cutPoints = new int[0];
+        int numCutPoints = 0;
+        int lastCutPoint = 0;
+        int pilotRun = 0;
+        for (int i = 0; i < pulseList.size(); i++) {
+            pilotRun = isaPilotCandidate(pulseList.get(i)) ? pilotRun + 1 : 0;
+            if (pilotRun != MIN_PILOT_COUNT) continue;
+
+            int cutPoint = i - MIN_PILOT_COUNT + 1;
+            if (cutPoint - lastCutPoint >= minSegmentSize && pulseList.get(cutPoint - 1) > DATA_TOTAL_MAX) {
+                if (numCutPoints == cutPoints.length) {
+                    cutPoints = Arrays.copyOf(cutPoints, Math.max(8, numCutPoints * 2));
+                }
+                cutPoints[numCutPoints++] = cutPoint;
+                lastCutPoint = cutPoint;
+            }
+        }
+        return Arrays.copyOf(cutPoints, numCutPoints);
+    }
+}
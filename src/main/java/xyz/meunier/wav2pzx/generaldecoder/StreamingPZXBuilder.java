@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2016, Fredrick Meunier
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package xyz.meunier.wav2pzx.generaldecoder;
+
+import xyz.meunier.wav2pzx.blocks.PZXBlock;
+import xyz.meunier.wav2pzx.blocks.PZXHeaderBlock;
+import xyz.meunier.wav2pzx.pulselist.PulseSink;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Builds a PZX tape image from pulses as they are read from the source, passing each PZXBlock on as soon as it can be
+ * determined. Only the pulses of the blocks still being analysed are held in memory, so the memory needed is set by
+ * the largest block on the tape rather than the length of the tape. The blocks produced are the same as those
+ * produced by {@link PZXBuilder#buildPZXTapeList(xyz.meunier.wav2pzx.pulselist.PulseList)} for the same pulses.
+ *
+ * @author Fredrick Meunier
+ */
+public final class StreamingPZXBuilder implements PulseSink {
+
+    private final Consumer<PZXBlock> consumer;
+    private final long resolution;
+    private final Deque<TapeBlock> pendingBlocks = new ArrayDeque<>();
+    private LoaderContextImpl context;
+    private boolean tapeComplete;
+
+    /**
+     * Construct a new StreamingPZXBuilder for pulses with a resolution of 1 T-state. The PZX header block is passed to
+     * the consumer immediately.
+     *
+     * @param consumer the destination for the PZXBlocks
+     * @throws NullPointerException if consumer is null
+     */
+    public StreamingPZXBuilder(Consumer<PZXBlock> consumer) {
+        this(1, consumer);
+    }
+
+    /**
+     * Construct a new StreamingPZXBuilder. The PZX header block is passed to the consumer immediately.
+     *
+     * @param resolution the resolution of each pulse in T-states
+     * @param consumer   the destination for the PZXBlocks
+     * @throws NullPointerException if consumer is null
+     */
+    public StreamingPZXBuilder(long resolution, Consumer<PZXBlock> consumer) {
+        this.consumer = checkNotNull(consumer, "consumer must not be null");
+        this.resolution = resolution;
+        consumer.accept(new PZXHeaderBlock());
+    }
+
+    /**
+     * Set the first pulse signal level, this must be called before any pulses are added
+     *
+     * @param firstPulseLevel the level of the first pulse on the tape, needs to be 0 or 1
+     * @return this builder instance
+     * @throws IllegalStateException if the first pulse level has already been set
+     */
+    @Override
+    public StreamingPZXBuilder withFirstPulseLevel(int firstPulseLevel) {
+        checkState(context == null, "First pulse level has already been set");
+        context = new LoaderContextImpl(firstPulseLevel, resolution, this::addTapeBlock);
+        return this;
+    }
+
+    /**
+     * Add the next pulse from the tape
+     *
+     * @param pulse the length of this pulse in 3,500,000 Hz tstates
+     * @return this builder instance
+     * @throws IllegalStateException    if the first pulse level has not been set or the tape is complete
+     * @throws IllegalArgumentException if pulse is not greater than or equal to 0
+     */
+    @Override
+    public StreamingPZXBuilder withNextPulse(long pulse) {
+        checkState(context != null, "First pulse level has not been set");
+        checkState(!tapeComplete, "Tape has already been marked as complete");
+        context.addPulse(pulse);
+        return this;
+    }
+
+    /**
+     * Mark the tape as complete and pass all remaining PZXBlocks to the consumer
+     *
+     * @throws IllegalStateException if the first pulse level has not been set
+     */
+    public void complete() {
+        checkState(context != null, "First pulse level has not been set");
+        if (tapeComplete) return;
+
+        tapeComplete = true;
+        context.completeTape();
+        PZXBuilder.processAllBlocks(pendingBlocks, consumer);
+    }
+
+    private void addTapeBlock(TapeBlock block) {
+        pendingBlocks.addLast(block);
+        PZXBuilder.processSettledBlocks(pendingBlocks, consumer);
+    }
+
+    @Override
+    public String toString() {
+        return "StreamingPZXBuilder{" +
+                "pendingBlocks=" + pendingBlocks.size() +
+                ", context=" + context +
+                ", tapeComplete=" + tapeComplete +
+                '}';
+    }
+}
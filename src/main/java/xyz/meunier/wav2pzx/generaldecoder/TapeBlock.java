@@ -26,11 +26,14 @@
 
 package xyz.meunier.wav2pzx.generaldecoder;
 
+import com.google.common.collect.BoundType;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Range;
 import xyz.meunier.wav2pzx.pulselist.PulseList;
 
 import java.util.List;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.lang.Short.toUnsignedLong;
 import static xyz.meunier.wav2pzx.generaldecoder.BitData.NullBitData;
@@ -39,16 +42,26 @@ import static xyz.meunier.wav2pzx.generaldecoder.LoaderContext.ONE;
 /**
  * TapeBlock is an immutable class representing a block identified on the tape. It has a type, a mapping of ranges of
  * pulse lengths to idealised pulse lengths and the pulses in the source block.
+ * <p>
+ * A block may hold a view of the source pulses with its pulses to be substituted by the idealised pulse lengths, in
+ * which case the idealised pulses are only built, once, when they are first requested with {@link #getPulseList()}.
  */
 final class TapeBlock {
 
     private final BlockType blockType;
     private final ImmutableList<BitData> bitDataList;
     private final PulseList pulseList;
+    private final boolean isSubstituted;
+    private final BitDataTable bitDataTable;
+    private volatile PulseList substitutedPulses;
     private final BitData zeroBit;
     private final BitData oneBit;
 
     TapeBlock(BlockType blockType, List<BitData> bitDataList, PulseList pulseList) {
+        this(blockType, bitDataList, pulseList, false);
+    }
+
+    private TapeBlock(BlockType blockType, List<BitData> bitDataList, PulseList pulseList, boolean isSubstituted) {
         checkNotNull(blockType, "blockType cannot be null");
         checkNotNull(bitDataList, "bitDataList cannot be null");
         checkNotNull(pulseList, "pulseList cannot be null");
@@ -56,6 +69,8 @@ final class TapeBlock {
         this.blockType = blockType;
         this.bitDataList = ImmutableList.copyOf(bitDataList);
         this.pulseList = pulseList;
+        this.isSubstituted = isSubstituted;
+        this.bitDataTable = isSubstituted ? new BitDataTable(this.bitDataList) : null;
 
         if (bitDataList.size() == 2) {
             // Smallest pulse in a two pulse list is the 0 pulse
@@ -79,6 +94,32 @@ final class TapeBlock {
         }
     }
 
+    /**
+     * Makes a new TapeBlock from a view of the source pulses, each pair of which is replaced by the idealised pulses of
+     * the first BitData whose qualification range holds the sum of the pair when the block's pulses are requested.
+     *
+     * @param blockType     the type of the block
+     * @param bitDataList   the idealised pulses for the pairs of source pulses
+     * @param sourcePulses  the source pulses of the block, an even number of pulses that all qualify for a BitData
+     * @return the new TapeBlock
+     */
+    static TapeBlock withSubstitutedPulses(BlockType blockType, List<BitData> bitDataList, PulseList sourcePulses) {
+        return new TapeBlock(blockType, bitDataList, sourcePulses, true);
+    }
+
+    /**
+     * Replaces each pair of the supplied pulses with the idealised pulses of the first BitData whose qualification
+     * range holds the sum of the pair.
+     *
+     * @param bitDataList   the idealised pulses for the pairs of source pulses
+     * @param sourcePulses  the source pulses, an even number of pulses that all qualify for a BitData
+     * @return the idealised pulses
+     * @throws IllegalArgumentException if there are an odd number of pulses or a pair qualifies for no BitData
+     */
+    static PulseList substitutePulses(List<BitData> bitDataList, PulseList sourcePulses) {
+        return new BitDataTable(bitDataList).substitutePulses(sourcePulses);
+    }
+
     /**
      * Returns the block type
      *
@@ -98,12 +139,21 @@ final class TapeBlock {
     }
 
     /**
-     * Returns the list of pulses in the identified block
+     * Returns the list of pulses in the identified block, substituted pulses are built on the first call and cached
      *
      * @return the PulseList from this block
      */
     public PulseList getPulseList() {
-        return pulseList;
+        if (!isSubstituted) {
+            return pulseList;
+        }
+        PulseList result = substitutedPulses;
+        if (result == null) {
+            // Races are harmless as every thread builds the same pulses
+            result = bitDataTable.substitutePulses(pulseList);
+            substitutedPulses = result;
+        }
+        return result;
     }
 
     /**
@@ -143,9 +193,10 @@ final class TapeBlock {
         TapeBlock tapeBlock = (TapeBlock) o;
 
         if (blockType != tapeBlock.blockType) return false;
+        if (isSubstituted != tapeBlock.isSubstituted) return false;
         if (bitDataList != null ? !bitDataList.equals(tapeBlock.bitDataList) : tapeBlock.bitDataList != null)
             return false;
-        return pulseList != null ? pulseList.equals(tapeBlock.pulseList) : tapeBlock.pulseList == null;
+        return pulseList.equals(tapeBlock.pulseList);
 
     }
 
@@ -153,7 +204,66 @@ final class TapeBlock {
     public int hashCode() {
         int result = blockType != null ? blockType.hashCode() : 0;
         result = 31 * result + (bitDataList != null ? bitDataList.hashCode() : 0);
-        result = 31 * result + (pulseList != null ? pulseList.hashCode() : 0);
+        result = 31 * result + (isSubstituted ? 1 : 0);
+        result = 31 * result + pulseList.hashCode();
         return result;
     }
+
+    /**
+     * The qualification ranges of a list of BitData as inclusive bounds and their idealised pulses, held in primitive
+     * arrays so pairs of pulses can be matched and replaced without boxing.
+     */
+    private static final class BitDataTable {
+        private final long[] minima;
+        private final long[] maxima;
+        private final long[][] pulses;
+
+        BitDataTable(List<BitData> bitDataList) {
+            int size = bitDataList.size();
+            minima = new long[size];
+            maxima = new long[size];
+            pulses = new long[size][];
+            for (int i = 0; i < size; i++) {
+                BitData bitData = bitDataList.get(i);
+                Range<Long> range = bitData.getQualificationRange();
+                minima[i] = !range.hasLowerBound() ? Long.MIN_VALUE :
+                        range.lowerBoundType() == BoundType.CLOSED ? range.lowerEndpoint() : range.lowerEndpoint() + 1;
+                maxima[i] = !range.hasUpperBound() ? Long.MAX_VALUE :
+                        range.upperBoundType() == BoundType.CLOSED ? range.upperEndpoint() : range.upperEndpoint() - 1;
+                pulses[i] = bitData.getPulses().stream().mapToLong(Long::longValue).toArray();
+            }
+        }
+
+        // Returns the index of the first BitData whose qualification range holds fullPulse
+        private int find(long fullPulse) {
+            for (int i = 0; i < minima.length; i++) {
+                if (fullPulse >= minima[i] && fullPulse <= maxima[i]) {
+                    return i;
+                }
+            }
+            throw new IllegalArgumentException("no BitData for pulse pair of " + fullPulse);
+        }
+
+        PulseList substitutePulses(PulseList sourcePulses) {
+            checkArgument(sourcePulses.size() % 2 == 0, "sourcePulses must hold pairs of pulses");
+
+            // Match every pair first so the idealised pulses can be written to an array of the right size
+            int[] matches = new int[sourcePulses.size() / 2];
+            int size = 0;
+            for (int i = 0; i < matches.length; i++) {
+                int match = find(sourcePulses.get(2 * i) + sourcePulses.get(2 * i + 1));
+                matches[i] = match;
+                size += pulses[match].length;
+            }
+
+            long[] substituted = new long[size];
+            int next = 0;
+            for (int match : matches) {
+                long[] bitPulses = pulses[match];
+                System.arraycopy(bitPulses, 0, substituted, next, bitPulses.length);
+                next += bitPulses.length;
+            }
+            return new PulseList(substituted, sourcePulses.getFirstPulseLevel(), sourcePulses.getResolution());
+        }
+    }
 }
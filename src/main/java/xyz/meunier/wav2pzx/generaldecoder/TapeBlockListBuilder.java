@@ -26,15 +26,15 @@
 
 package xyz.meunier.wav2pzx.generaldecoder;
 
-import com.google.common.collect.PeekingIterator;
 import javafx.util.Pair;
 import xyz.meunier.wav2pzx.pulselist.PulseList;
 
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 import java.util.logging.Level;
 
-import static com.google.common.collect.Iterators.peekingIterator;
+import static com.google.common.base.Preconditions.checkNotNull;
 import static java.util.Optional.empty;
 import static java.util.logging.Logger.getLogger;
 import static xyz.meunier.wav2pzx.generaldecoder.BlockType.DATA;
@@ -44,11 +44,34 @@ import static xyz.meunier.wav2pzx.generaldecoder.LoaderContext.isaPilotCandidate
 /**
  * Manages the construction of a list of TapeBlocks. Any null or optional not present blocks supplied are omitted from
  * the final built list.
+ * <p>
+ * Only the last added block can be removed, so earlier blocks are processed and passed to the consumer as soon as any
+ * following block they may be merged with is also settled.
  */
 final class TapeBlockListBuilder {
 
     private Deque<Optional<Pair<BlockType, PulseList>>> tapeBlocks = new LinkedList<>();
 
+    private final List<TapeBlock> tapeBlockList = new ArrayList<>();
+
+    private final Consumer<TapeBlock> consumer;
+
+    /**
+     * Construct a TapeBlockListBuilder that collects the TapeBlocks to be returned by build()
+     */
+    TapeBlockListBuilder() {
+        this.consumer = tapeBlockList::add;
+    }
+
+    /**
+     * Construct a TapeBlockListBuilder that passes each TapeBlock to the supplied consumer when it is complete
+     *
+     * @param consumer the destination for the completed TapeBlocks
+     */
+    TapeBlockListBuilder(Consumer<TapeBlock> consumer) {
+        this.consumer = checkNotNull(consumer, "consumer cannot be null");
+    }
+
     /**
      * Add a block to the list under construction
      *
@@ -58,6 +81,7 @@ final class TapeBlockListBuilder {
         Optional<Pair<BlockType, PulseList>> newEntry = newBlock == null ? empty() : Optional.of(newBlock);
         getLogger(TapeBlockListBuilder.class.getName()).log(Level.FINE, newEntry.toString());
         tapeBlocks.add(newEntry);
+        processSettledBlocks();
     }
 
     /**
@@ -78,40 +102,60 @@ final class TapeBlockListBuilder {
         return getTapeBlock(() -> tapeBlocks.removeLast());
     }
 
+    /**
+     * Processes all remaining blocks and passes them to the consumer
+     */
+    void complete() {
+        while (!tapeBlocks.isEmpty()) {
+            processFirstBlock();
+        }
+    }
+
     /**
      * Builds the list of TapeBlocks
      *
      * @return the list of present/non-null TapeBlocks that have been provided
      */
     List<TapeBlock> build() {
-        List<TapeBlock> tapeBlockList = new ArrayList<>();
-        PeekingIterator<Optional<Pair<BlockType, PulseList>>> iterator = peekingIterator(tapeBlocks.iterator());
-        while (iterator.hasNext()) {
-            iterator.next().ifPresent(pair -> {
-                if (pair.getKey() == DATA)
-                    tapeBlockList.addAll(getDataBlocks(pair.getValue()));
-                else
-                    tapeBlockList.add(getPilotBlock(pair.getValue(), iterator));
-            });
+        complete();
+        return tapeBlockList;
+    }
+
+    // The last block may still be removed, and a pulse block needs the block after it to be settled in case they are
+    // to be merged
+    private void processSettledBlocks() {
+        while (tapeBlocks.size() > 2 || (tapeBlocks.size() == 2 && !isPulseBlock(tapeBlocks.peekFirst()))) {
+            processFirstBlock();
         }
+    }
 
-        return tapeBlockList;
+    private static boolean isPulseBlock(Optional<Pair<BlockType, PulseList>> block) {
+        return block.isPresent() && block.get().getKey() != DATA;
+    }
+
+    private void processFirstBlock() {
+        tapeBlocks.removeFirst().ifPresent(pair -> {
+            if (pair.getKey() == DATA)
+                getDataBlocks(pair.getValue()).forEach(consumer);
+            else
+                consumer.accept(getPilotBlock(pair.getValue()));
+        });
     }
 
-    private Collection<? extends TapeBlock> getDataBlocks(PulseList pulseList) {
+    private List<TapeBlock> getDataBlocks(PulseList pulseList) {
         return new DualPulseDataBlockProcessor(pulseList).processDataBlock();
     }
 
-    private TapeBlock getPilotBlock(PulseList thisBlockPulses, PeekingIterator<Optional<Pair<BlockType, PulseList>>> iterator) {
+    private TapeBlock getPilotBlock(PulseList thisBlockPulses) {
         // For unknown, check the next block for being a pilot if it is a one pulse pilot candidate to merge with this
         // block as the data block processor can leave an additional block prior to the main pilot block that has some
         // of the associated pilot pulses
         PulseList newBlockPulses = thisBlockPulses;
-        Optional<Pair<BlockType, PulseList>> nextPair = iterator.hasNext() ? iterator.peek() : empty();
-        if (thisBlockPulses.getPulseLengths().size() == 1 &&
-                isaPilotCandidate(thisBlockPulses.getPulseLengths().get(0)) &&
+        Optional<Pair<BlockType, PulseList>> nextPair = tapeBlocks.isEmpty() ? empty() : tapeBlocks.peekFirst();
+        if (thisBlockPulses.size() == 1 &&
+                isaPilotCandidate(thisBlockPulses.get(0)) &&
                 nextPair.isPresent() && nextPair.get().getKey() == BlockType.PILOT) {
-            iterator.next();
+            tapeBlocks.removeFirst();
             newBlockPulses = new PulseList(thisBlockPulses, nextPair.get().getValue());
         }
         return processPulseBlock(newBlockPulses);
@@ -121,4 +165,4 @@ final class TapeBlockListBuilder {
         return tapeBlocks.isEmpty() ? empty() : supplier.get();
     }
 
-}
\ No newline at end of file
+}
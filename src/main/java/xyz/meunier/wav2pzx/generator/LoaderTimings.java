@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2016, Fredrick Meunier
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package xyz.meunier.wav2pzx.generator;
+
+import xyz.meunier.wav2pzx.romdecoder.LoaderContext;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * The pulse lengths a tape loader uses to record a block, in T-states.
+ *
+ * @author Fredrick Meunier
+ */
+public final class LoaderTimings {
+
+    /**
+     * The number of pilot pulses the ROM saves before a header block
+     */
+    public static final int ROM_HEADER_PILOT_COUNT = 8063;
+
+    /**
+     * The number of pilot pulses the ROM saves before a data block
+     */
+    public static final int ROM_DATA_PILOT_COUNT = 3223;
+
+    /**
+     * The timings used by the ROM save routine
+     */
+    public static final LoaderTimings ROM = new LoaderTimings(LoaderContext.PILOT_LENGTH, LoaderContext.SYNC1,
+            LoaderContext.SYNC2, LoaderContext.ZERO, LoaderContext.ONE, LoaderContext.TAIL, ROM_HEADER_PILOT_COUNT,
+            ROM_DATA_PILOT_COUNT);
+
+    /**
+     * A typical custom loader that keeps the ROM pilot and sync pulses but saves data bits at twice the ROM speed
+     */
+    public static final LoaderTimings TURBO = new LoaderTimings(LoaderContext.PILOT_LENGTH, LoaderContext.SYNC1,
+            LoaderContext.SYNC2, LoaderContext.ZERO / 2, LoaderContext.ONE / 2, LoaderContext.TAIL,
+            ROM_HEADER_PILOT_COUNT, ROM_DATA_PILOT_COUNT);
+
+    private final int pilot;
+    private final int sync1;
+    private final int sync2;
+    private final int zero;
+    private final int one;
+    private final int tail;
+    private final int headerPilotCount;
+    private final int dataPilotCount;
+
+    /**
+     * Construct a new LoaderTimings.
+     *
+     * @param pilot            the length of a pilot pulse
+     * @param sync1            the length of the first sync pulse
+     * @param sync2            the length of the second sync pulse
+     * @param zero             the length of each of the two pulses of a zero bit
+     * @param one              the length of each of the two pulses of a one bit
+     * @param tail             the length of the tail pulse after the data, 0 for none
+     * @param headerPilotCount the number of pilot pulses before a header block
+     * @param dataPilotCount   the number of pilot pulses before a data block
+     * @throws IllegalArgumentException if any pulse length or count is not greater than 0, excepting tail
+     */
+    public LoaderTimings(int pilot, int sync1, int sync2, int zero, int one, int tail, int headerPilotCount,
+                         int dataPilotCount) {
+        checkArgument(pilot > 0 && sync1 > 0 && sync2 > 0 && zero > 0 && one > 0,
+                "pulse lengths must be greater than 0");
+        checkArgument(tail >= 0, "tail must be greater than or equal to 0");
+        checkArgument(headerPilotCount > 0 && dataPilotCount > 0, "pilot counts must be greater than 0");
+        this.pilot = pilot;
+        this.sync1 = sync1;
+        this.sync2 = sync2;
+        this.zero = zero;
+        this.one = one;
+        this.tail = tail;
+        this.headerPilotCount = headerPilotCount;
+        this.dataPilotCount = dataPilotCount;
+    }
+
+    /**
+     * @return the length of a pilot pulse
+     */
+    public int getPilot() {
+        return pilot;
+    }
+
+    /**
+     * @return the length of the first sync pulse
+     */
+    public int getSync1() {
+        return sync1;
+    }
+
+    /**
+     * @return the length of the second sync pulse
+     */
+    public int getSync2() {
+        return sync2;
+    }
+
+    /**
+     * @return the length of each of the two pulses of a zero bit
+     */
+    public int getZero() {
+        return zero;
+    }
+
+    /**
+     * @return the length of each of the two pulses of a one bit
+     */
+    public int getOne() {
+        return one;
+    }
+
+    /**
+     * @return the length of the tail pulse after the data, 0 for none
+     */
+    public int getTail() {
+        return tail;
+    }
+
+    /**
+     * @return the number of pilot pulses before a header block
+     */
+    public int getHeaderPilotCount() {
+        return headerPilotCount;
+    }
+
+    /**
+     * @return the number of pilot pulses before a data block
+     */
+    public int getDataPilotCount() {
+        return dataPilotCount;
+    }
+
+    @Override
+    public String toString() {
+        return "LoaderTimings{" +
+                "pilot=" + pilot +
+                ", sync1=" + sync1 +
+                ", sync2=" + sync2 +
+                ", zero=" + zero +
+                ", one=" + one +
+                ", tail=" + tail +
+                ", headerPilotCount=" + headerPilotCount +
+                ", dataPilotCount=" + dataPilotCount +
+                '}';
+    }
+}
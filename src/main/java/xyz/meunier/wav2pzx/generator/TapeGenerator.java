@@ -0,0 +1,556 @@
+/*
+ * Copyright (c) 2016, Fredrick Meunier
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package xyz.meunier.wav2pzx.generator;
+
+import xyz.meunier.wav2pzx.pulselist.PulseSink;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Generates synthetic recordings of tapes saved with the ROM routines or a custom loader, for testing the converter
+ * with large, realistic inputs whose content is known. The tape is a series of header and data block pairs recorded
+ * until the requested length is reached, with optional pulse jitter and tape speed drift and, for audio output, a
+ * reduced level, DC offset and noise on the signal.
+ * <p>
+ * The same configuration always generates the same tape, so the pulses, audio and text outputs of separate calls
+ * describe the same recording. Each output method returns the blocks recorded on the tape (flag byte, data and
+ * checksum) as the ground truth for checking a decode.
+ *
+ * @author Fredrick Meunier
+ */
+public final class TapeGenerator {
+
+    /**
+     * Any durations are expressed in T cycles of standard 48k Spectrum CPU.
+     */
+    private static final double T_STATES_PER_SECOND = 3500000.0;
+
+    private static final long LEADING_SILENCE = 1750000;
+    private static final long PAUSE = 3500000;
+    private static final int HEADER_LENGTH = 17;
+    private static final double DRIFT_PERIOD_SECONDS = 10.0;
+    private static final int DEFAULT_AMPLITUDE = 96;
+    private static final int WAV_HEADER_SIZE = 44;
+
+    private LoaderTimings timings = LoaderTimings.ROM;
+    private double jitter = 0;
+    private double speedDrift = 0;
+    private int amplitude = DEFAULT_AMPLITUDE;
+    private int dcOffset = 0;
+    private double noise = 0;
+    private Duration length = Duration.ZERO;
+    private int dataLength = 6912;
+    private float sampleRate = 44100;
+    private long seed = 0;
+
+    /**
+     * Set the pulse lengths of the loader recording the tape, the default is the ROM timings
+     *
+     * @param timings the loader timings
+     * @return this generator instance
+     * @throws NullPointerException if timings is null
+     */
+    public TapeGenerator withTimings(LoaderTimings timings) {
+        this.timings = checkNotNull(timings, "timings must not be null");
+        return this;
+    }
+
+    /**
+     * Set the random variation of each pulse length
+     *
+     * @param jitter the standard deviation of each pulse length as a fraction of the pulse length
+     * @return this generator instance
+     * @throws IllegalArgumentException if jitter is not between 0 and 0.5
+     */
+    public TapeGenerator withJitter(double jitter) {
+        checkArgument(jitter >= 0 && jitter <= 0.5, "jitter must be between 0 and 0.5");
+        this.jitter = jitter;
+        return this;
+    }
+
+    /**
+     * Set the slow variation in tape speed, which follows a ten second cycle
+     *
+     * @param speedDrift the largest change in tape speed as a fraction of the nominal speed
+     * @return this generator instance
+     * @throws IllegalArgumentException if speedDrift is not between 0 and 0.5
+     */
+    public TapeGenerator withSpeedDrift(double speedDrift) {
+        checkArgument(speedDrift >= 0 && speedDrift <= 0.5, "speedDrift must be between 0 and 0.5");
+        this.speedDrift = speedDrift;
+        return this;
+    }
+
+    /**
+     * Set the amplitude of the audio signal, the default is 96
+     *
+     * @param amplitude the distance of each level from the centre of the signal in unsigned 8 bit sample values
+     * @return this generator instance
+     * @throws IllegalArgumentException if amplitude is not between 1 and 127
+     */
+    public TapeGenerator withAmplitude(int amplitude) {
+        checkArgument(amplitude >= 1 && amplitude <= 127, "amplitude must be between 1 and 127");
+        this.amplitude = amplitude;
+        return this;
+    }
+
+    /**
+     * Set the offset of the centre of the audio signal from the centre of the sample range
+     *
+     * @param dcOffset the offset in unsigned 8 bit sample values
+     * @return this generator instance
+     * @throws IllegalArgumentException if dcOffset is not between -127 and 127
+     */
+    public TapeGenerator withDcOffset(int dcOffset) {
+        checkArgument(dcOffset >= -127 && dcOffset <= 127, "dcOffset must be between -127 and 127");
+        this.dcOffset = dcOffset;
+        return this;
+    }
+
+    /**
+     * Set the gaussian noise added to the audio signal
+     *
+     * @param noise the standard deviation of the noise in unsigned 8 bit sample values
+     * @return this generator instance
+     * @throws IllegalArgumentException if noise is less than 0
+     */
+    public TapeGenerator withNoise(double noise) {
+        checkArgument(noise >= 0, "noise must be greater than or equal to 0");
+        this.noise = noise;
+        return this;
+    }
+
+    /**
+     * Set the length of the tape, blocks are recorded until at least this length is reached. A single header and
+     * data block pair is recorded for the default length of zero.
+     *
+     * @param length the minimum length of the tape
+     * @return this generator instance
+     * @throws IllegalArgumentException if length is negative
+     */
+    public TapeGenerator withLength(Duration length) {
+        checkNotNull(length, "length must not be null");
+        checkArgument(!length.isNegative(), "length must not be negative");
+        this.length = length;
+        return this;
+    }
+
+    /**
+     * Set the number of bytes of data saved by each data block, excluding the flag and checksum bytes
+     *
+     * @param dataLength the number of bytes, the default is 6912
+     * @return this generator instance
+     * @throws IllegalArgumentException if dataLength is not between 1 and 65535
+     */
+    public TapeGenerator withDataLength(int dataLength) {
+        checkArgument(dataLength > 0 && dataLength <= 0xffff, "dataLength must be between 1 and 65535");
+        this.dataLength = dataLength;
+        return this;
+    }
+
+    /**
+     * Set the sample rate of the generated audio
+     *
+     * @param sampleRate the sample rate in Hz, the default is 44100
+     * @return this generator instance
+     * @throws IllegalArgumentException if sampleRate is not greater than 0
+     */
+    public TapeGenerator withSampleRate(float sampleRate) {
+        checkArgument(sampleRate > 0, "sampleRate must be greater than 0");
+        this.sampleRate = sampleRate;
+        return this;
+    }
+
+    /**
+     * Set the seed for the random data, jitter and noise
+     *
+     * @param seed the seed
+     * @return this generator instance
+     */
+    public TapeGenerator withSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Generate the pulses of the tape, the first pulse is at level 0.
+     *
+     * @param sink the destination for the pulses in T-states
+     * @return the blocks recorded on the tape, each including its flag and checksum bytes
+     * @throws NullPointerException if sink is null
+     */
+    public List<byte[]> generate(PulseSink sink) {
+        checkNotNull(sink, "sink must not be null");
+        return new PulseGenerator(sink).generate();
+    }
+
+    /**
+     * Write the tape as unsigned 8 bit mono samples.
+     *
+     * @param out the destination for the samples
+     * @return the blocks recorded on the tape, each including its flag and checksum bytes
+     * @throws IOException if there is an error writing the samples
+     */
+    public List<byte[]> writeSamples(OutputStream out) throws IOException {
+        checkNotNull(out, "out must not be null");
+        try {
+            return generate(new SampleRenderer(out));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Write the tape as an unsigned 8 bit mono WAV file that can be read by AudioFileTape. Samples are written as
+     * they are generated so long tapes need not fit in memory.
+     *
+     * @param wavFile the destination file
+     * @return the blocks recorded on the tape, each including its flag and checksum bytes
+     * @throws IOException if there is an error writing the file
+     */
+    public List<byte[]> writeWav(Path wavFile) throws IOException {
+        checkNotNull(wavFile, "wavFile must not be null");
+        List<byte[]> blocks;
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(wavFile))) {
+            // The header is written once the number of samples is known
+            out.write(new byte[WAV_HEADER_SIZE]);
+            blocks = writeSamples(out);
+        }
+
+        try (FileChannel channel = FileChannel.open(wavFile, StandardOpenOption.WRITE)) {
+            channel.write(getWavHeader(channel.size() - WAV_HEADER_SIZE), 0);
+        }
+
+        return blocks;
+    }
+
+    /**
+     * Write the pulses of the tape as a text file that can be read by TextFileTape, one "length : level" line per
+     * pulse.
+     *
+     * @param textFile the destination file
+     * @return the blocks recorded on the tape, each including its flag and checksum bytes
+     * @throws IOException if there is an error writing the file
+     */
+    public List<byte[]> writeText(Path textFile) throws IOException {
+        checkNotNull(textFile, "textFile must not be null");
+        try (Writer out = Files.newBufferedWriter(textFile, StandardCharsets.US_ASCII)) {
+            return generate(new TextPulseWriter(out));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Write blocks as a TAP file, each block preceded by its length as an unsigned little endian short.
+     *
+     * @param tapFile the destination file
+     * @param blocks  the blocks, each including its flag and checksum bytes
+     * @throws IOException if there is an error writing the file
+     */
+    public static void writeTap(Path tapFile, List<byte[]> blocks) throws IOException {
+        checkNotNull(tapFile, "tapFile must not be null");
+        checkNotNull(blocks, "blocks must not be null");
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tapFile))) {
+            for (byte[] block : blocks) {
+                out.write(block.length & 0xff);
+                out.write((block.length >> 8) & 0xff);
+                out.write(block);
+            }
+        }
+    }
+
+    private ByteBuffer getWavHeader(long dataSize) {
+        checkArgument(dataSize <= 0xffffffffL - 36, "Tape too long for a WAV file");
+        int rate = Math.round(sampleRate);
+        ByteBuffer header = ByteBuffer.allocate(WAV_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.put("RIFF".getBytes(StandardCharsets.US_ASCII)).putInt((int) (dataSize + 36))
+                .put("WAVE".getBytes(StandardCharsets.US_ASCII))
+                .put("fmt ".getBytes(StandardCharsets.US_ASCII)).putInt(16)
+                .putShort((short) 1)   // PCM
+                .putShort((short) 1)   // Mono
+                .putInt(rate)          // Sample rate
+                .putInt(rate)          // Byte rate
+                .putShort((short) 1)   // Bytes per frame
+                .putShort((short) 8)   // Bits per sample
+                .put("data".getBytes(StandardCharsets.US_ASCII)).putInt((int) dataSize);
+        header.flip();
+        return header;
+    }
+
+    /*
+     * Generates the pulses of one tape, tracking the elapsed tape time for the length and speed drift
+     */
+    private final class PulseGenerator {
+        private final PulseSink sink;
+        private final Random random = new Random(seed);
+        private final List<byte[]> blocks = new ArrayList<>();
+        private double elapsed = 0;
+
+        PulseGenerator(PulseSink sink) {
+            this.sink = sink;
+        }
+
+        List<byte[]> generate() {
+            double tapeLength = length.toMillis() * T_STATES_PER_SECOND / 1000;
+
+            sink.withFirstPulseLevel(0);
+            addPulse(LEADING_SILENCE);
+            do {
+                byte[] data = getDataBlock();
+                addBlock(getHeaderBlock(blocks.size() / 2, dataLength), timings.getHeaderPilotCount());
+                addBlock(data, timings.getDataPilotCount());
+            } while (elapsed < tapeLength);
+
+            return blocks;
+        }
+
+        private byte[] getHeaderBlock(int fileNumber, int dataLength) {
+            byte[] header = new byte[HEADER_LENGTH + 2];
+            header[1] = 3; // Code file
+            byte[] name = String.format("synth%05d", fileNumber % 100000).getBytes(StandardCharsets.US_ASCII);
+            System.arraycopy(name, 0, header, 2, name.length);
+            putShort(header, 12, dataLength);
+            putShort(header, 14, 32768);
+            putShort(header, 16, 32768);
+            header[header.length - 1] = getChecksum(header);
+            return header;
+        }
+
+        private byte[] getDataBlock() {
+            byte[] data = new byte[dataLength + 2];
+            data[0] = (byte) 0xff;
+            for (int i = 1; i <= dataLength; i++) {
+                data[i] = (byte) random.nextInt(256);
+            }
+            data[data.length - 1] = getChecksum(data);
+            return data;
+        }
+
+        private void addBlock(byte[] block, int pilotCount) {
+            for (int i = 0; i < pilotCount; i++) {
+                addPulse(timings.getPilot());
+            }
+            addPulse(timings.getSync1());
+            addPulse(timings.getSync2());
+            for (byte b : block) {
+                for (int bit = 7; bit >= 0; bit--) {
+                    int pulse = (b & (1 << bit)) != 0 ? timings.getOne() : timings.getZero();
+                    addPulse(pulse);
+                    addPulse(pulse);
+                }
+            }
+            if (timings.getTail() > 0) {
+                addPulse(timings.getTail());
+            }
+            addPulse(PAUSE);
+            blocks.add(block);
+        }
+
+        private void addPulse(long pulse) {
+            double drift = 1 + speedDrift * Math.sin(2 * Math.PI * elapsed / (DRIFT_PERIOD_SECONDS * T_STATES_PER_SECOND));
+            long length = Math.max(1, Math.round(pulse * drift * (1 + random.nextGaussian() * jitter)));
+            elapsed += length;
+            sink.withNextPulse(length);
+        }
+    }
+
+    private static void putShort(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) value;
+        bytes[offset + 1] = (byte) (value >> 8);
+    }
+
+    private static byte getChecksum(byte[] block) {
+        byte checksum = 0;
+        for (int i = 0; i < block.length - 1; i++) {
+            checksum ^= block[i];
+        }
+        return checksum;
+    }
+
+    /*
+     * Renders pulses as a square wave of unsigned 8 bit samples
+     */
+    private final class SampleRenderer implements PulseSink {
+        private final OutputStream out;
+        private final Random random = new Random(~seed);
+        private final double tStatesPerSample = T_STATES_PER_SECOND / sampleRate;
+        private int level;
+        private double pulseStart = 0;
+        private double nextSample = 0;
+
+        SampleRenderer(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public PulseSink withFirstPulseLevel(int firstPulseLevel) {
+            level = firstPulseLevel;
+            return this;
+        }
+
+        @Override
+        public PulseSink withNextPulse(long pulse) {
+            double pulseEnd = pulseStart + pulse;
+            try {
+                for (; nextSample < pulseEnd; nextSample += tStatesPerSample) {
+                    double sample = 128 + dcOffset + (level == 1 ? amplitude : -amplitude) +
+                            random.nextGaussian() * noise;
+                    out.write(Math.max(0, Math.min(255, (int) Math.round(sample))));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            pulseStart = pulseEnd;
+            level ^= 1;
+            return this;
+        }
+    }
+
+    /*
+     * Writes pulses in the format read by TextFileTape
+     */
+    private static final class TextPulseWriter implements PulseSink {
+        private final Writer out;
+        private int level;
+
+        TextPulseWriter(Writer out) {
+            this.out = out;
+        }
+
+        @Override
+        public PulseSink withFirstPulseLevel(int firstPulseLevel) {
+            level = firstPulseLevel;
+            return this;
+        }
+
+        @Override
+        public PulseSink withNextPulse(long pulse) {
+            try {
+                out.write(pulse + " : " + level + System.lineSeparator());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            level ^= 1;
+            return this;
+        }
+    }
+
+    /**
+     * Generate a synthetic tape as a WAV file, a TXT pulse file and a TAP file of the ground truth blocks.
+     *
+     * @param args the output file name without extension followed by any of the options --length=seconds,
+     *             --loader=rom|turbo, --jitter=fraction, --drift=fraction, --amplitude=n, --dc-offset=n,
+     *             --noise=n,
+     *             --data-length=bytes and --seed=n
+     */
+    public static void main(String[] args) {
+        if (args.length < 1 || args[0].startsWith("--")) {
+            usage();
+            return;
+        }
+
+        TapeGenerator generator = new TapeGenerator();
+        try {
+            for (int i = 1; i < args.length; i++) {
+                String[] option = args[i].split("=", 2);
+                checkArgument(option.length == 2, "Option needs a value: " + args[i]);
+                String value = option[1];
+                switch (option[0]) {
+                    case "--length":
+                        generator.withLength(Duration.ofSeconds(Long.parseLong(value)));
+                        break;
+                    case "--loader":
+                        checkArgument(value.equals("rom") || value.equals("turbo"), "Unknown loader: " + value);
+                        generator.withTimings(value.equals("rom") ? LoaderTimings.ROM : LoaderTimings.TURBO);
+                        break;
+                    case "--jitter":
+                        generator.withJitter(Double.parseDouble(value));
+                        break;
+                    case "--drift":
+                        generator.withSpeedDrift(Double.parseDouble(value));
+                        break;
+                    case "--amplitude":
+                        generator.withAmplitude(Integer.parseInt(value));
+                        break;
+                    case "--dc-offset":
+                        generator.withDcOffset(Integer.parseInt(value));
+                        break;
+                    case "--noise":
+                        generator.withNoise(Double.parseDouble(value));
+                        break;
+                    case "--data-length":
+                        generator.withDataLength(Integer.parseInt(value));
+                        break;
+                    case "--seed":
+                        generator.withSeed(Long.parseLong(value));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            usage();
+            return;
+        }
+
+        try {
+            List<byte[]> blocks = generator.writeWav(Paths.get(args[0] + ".wav"));
+            generator.writeText(Paths.get(args[0] + ".txt"));
+            writeTap(Paths.get(args[0] + ".tap"), blocks);
+            System.out.println("Generated " + blocks.size() + " blocks");
+        } catch (IOException e) {
+            System.err.println("Error writing tape " + args[0] + ": " + e.toString());
+        }
+    }
+
+    private static void usage() {
+        System.err.println("tapegenerator: usage: tapegenerator <outfile> [--length=seconds] [--loader=rom|turbo] " +
+                "[--jitter=fraction] [--drift=fraction] [--amplitude=n] [--dc-offset=n] [--noise=n] " +
+                "[--data-length=bytes] [--seed=n]");
+    }
+}
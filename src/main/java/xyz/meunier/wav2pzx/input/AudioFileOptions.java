@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2016, Fredrick Meunier
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package xyz.meunier.wav2pzx.input;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * How {@link AudioFileTape} reads the samples of a file before they are converted to pulses. Instances are immutable,
+ * start from {@link #DEFAULT} and change one setting at a time, e.g.
+ * {@code AudioFileOptions.DEFAULT.withFilterSamples(true)}.
+ * <p>
+ * Edge interpolation is not set here as it is a property of each trigger, see
+ * {@link xyz.meunier.wav2pzx.input.triggers.Bistable#getEdgeOffset(int, int, int)}.
+ *
+ * @author Fredrick Meunier
+ */
+public final class AudioFileOptions {
+
+    /**
+     * Read {@link AudioFileTape#DEFAULT_BUFFER_SIZE} samples at a time without filtering them
+     */
+    public static final AudioFileOptions DEFAULT = new AudioFileOptions(AudioFileTape.DEFAULT_BUFFER_SIZE, false);
+
+    private final int bufferSize;
+    private final boolean filterSamples;
+
+    private AudioFileOptions(int bufferSize, boolean filterSamples) {
+        checkArgument(bufferSize > 0, "bufferSize must be greater than 0");
+        this.bufferSize = bufferSize;
+        this.filterSamples = filterSamples;
+    }
+
+    /**
+     * @param bufferSize the number of samples to read from the file at a time
+     * @return these options reading bufferSize samples at a time
+     * @throws IllegalArgumentException if {@code bufferSize} is not greater than 0
+     */
+    public AudioFileOptions withBufferSize(int bufferSize) {
+        return new AudioFileOptions(bufferSize, filterSamples);
+    }
+
+    /**
+     * @param filterSamples whether to filter the samples to the band used by tape loaders before the triggers see
+     *                      them, see {@link BandPassSampleFilter}
+     * @return these options with sample filtering set as supplied
+     */
+    public AudioFileOptions withFilterSamples(boolean filterSamples) {
+        return new AudioFileOptions(bufferSize, filterSamples);
+    }
+
+    /**
+     * @return the number of samples to read from the file at a time
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * @return true if the samples are filtered before the triggers see them
+     */
+    public boolean isFilterSamples() {
+        return filterSamples;
+    }
+
+    @Override
+    public String toString() {
+        return "AudioFileOptions{bufferSize=" + bufferSize + ", filterSamples=" + filterSamples + '}';
+    }
+}
@@ -27,6 +27,7 @@ package xyz.meunier.wav2pzx.input;
 
 import xyz.meunier.wav2pzx.input.triggers.Bistable;
 import xyz.meunier.wav2pzx.pulselist.PulseList;
+import xyz.meunier.wav2pzx.pulselist.PulseSink;
 
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
@@ -34,22 +35,39 @@ import javax.sound.sampled.UnsupportedAudioFileException;
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.nio.file.Files.newInputStream;
+import static java.util.stream.Collectors.toList;
 import static javax.sound.sampled.AudioSystem.getAudioInputStream;
 import static javax.sound.sampled.AudioSystem.isConversionSupported;
 
 /**
  * This class handles reading a WAV tape sample file and converting them to the
  * PulseList format. The source data represents logical 0 and 1 level pulse values.
+ * Uncompressed PCM WAV files are read directly, other formats are read with javax.sound.
  * @author Fredrick Meunier
  */
 public final class AudioFileTape {
+
+    /**
+     * The default number of samples read from the audio stream at a time
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
     
     /**
      * Processes the samples in the named file and converts them to a PulseList
@@ -64,60 +82,180 @@ public final class AudioFileTape {
      */
     public static PulseList buildPulseList(String fileName, float targetHz, Bistable trigger)
             throws IOException, UnsupportedAudioFileException {
+        return buildPulseList(fileName, targetHz, trigger, AudioFileOptions.DEFAULT);
+    }
+
+    /**
+     * Processes the samples in the named file and converts them to a PulseList
+     * resampled to a base of targetHz.
+     * @param fileName the source WAV file
+     * @param targetHz the base rate for the resultant pulses
+     * @param trigger determines when the signal level of a sample should be 0 or 1
+     * @param options how the samples are read from the file
+     * @return a PulseList populated with the pulse data from the file.
+     * @throws java.io.IOException if there is an error reading the source file
+     * @throws javax.sound.sampled.UnsupportedAudioFileException if the WAV file cannot be converted to the required format
+     * @throws NullPointerException if {@code fileName} or {@code options} is null
+     */
+    public static PulseList buildPulseList(String fileName, float targetHz, Bistable trigger,
+                                           AudioFileOptions options)
+            throws IOException, UnsupportedAudioFileException {
+        return readSamples(fileName, options,
+                sampleRate -> new AudioSamplePulseListBuilder(sampleRate, targetHz, trigger)).build();
+    }
+
+    /**
+     * Processes the samples in the named file and passes the resulting pulses, resampled to a base of targetHz, to
+     * the supplied sink as they are found. Only the pulse currently being measured is held in memory.
+     * @param fileName the source WAV file
+     * @param targetHz the base rate for the resultant pulses
+     * @param trigger determines when the signal level of a sample should be 0 or 1
+     * @param sink the destination for the pulses from the file
+     * @param options how the samples are read from the file
+     * @return the length of the recording in seconds
+     * @throws java.io.IOException if there is an error reading the source file
+     * @throws javax.sound.sampled.UnsupportedAudioFileException if the WAV file cannot be converted to the required format
+     * @throws NullPointerException if {@code fileName}, {@code sink} or {@code options} is null
+     * @throws IllegalStateException if the file contained no samples
+     */
+    public static double streamPulses(String fileName, float targetHz, Bistable trigger, PulseSink sink,
+                                      AudioFileOptions options)
+            throws IOException, UnsupportedAudioFileException {
+        checkNotNull(sink, "No pulse sink supplied");
+        AudioSamplePulseListBuilder pulseListBuilder = readSamples(fileName, options,
+                sampleRate -> new AudioSamplePulseListBuilder(sampleRate, targetHz, trigger, sink));
+        pulseListBuilder.complete();
+        return pulseListBuilder.getDuration();
+    }
+
+    /**
+     * Processes the samples in the named file with each of the supplied triggers and converts them to a PulseList per
+     * trigger, resampled to a base of targetHz. The file is read once and each buffer of samples is converted by all
+     * of the triggers in parallel on the common fork/join pool. When the samples are filtered they are filtered once
+     * for all the triggers.
+     * @param fileName the source WAV file
+     * @param targetHz the base rate for the resultant pulses
+     * @param triggers the triggers to convert the samples with, each must be a separate instance
+     * @param options how the samples are read from the file
+     * @return a PulseList for each trigger, in the same order as triggers
+     * @throws java.io.IOException if there is an error reading the source file
+     * @throws javax.sound.sampled.UnsupportedAudioFileException if the WAV file cannot be converted to the required format
+     * @throws NullPointerException if {@code fileName}, {@code triggers} or {@code options} is null
+     * @throws IllegalArgumentException if {@code triggers} is empty
+     */
+    public static List<PulseList> buildPulseLists(String fileName, float targetHz, List<Bistable> triggers,
+                                                  AudioFileOptions options)
+            throws IOException, UnsupportedAudioFileException {
+        checkNotNull(triggers, "No triggers supplied");
+        checkArgument(!triggers.isEmpty(), "At least one trigger is required");
+
+        List<AudioSamplePulseListBuilder> builders = new ArrayList<>(triggers.size());
+        // The first trigger runs on the reading thread, the rest share the bounded common fork/join pool so that
+        // concurrent conversions don't each start a pool of their own
+        readSamples(fileName, options, sampleRate -> {
+            for (Bistable trigger : triggers) {
+                builders.add(new AudioSamplePulseListBuilder(sampleRate, targetHz, trigger));
+            }
+            return new ParallelSampleSink(builders, ForkJoinPool.commonPool());
+        });
+
+        return builders.stream().map(AudioSamplePulseListBuilder::build).collect(toList());
+    }
+
+    private static SampleSink getSampleSink(SampleSink pulseListBuilder, float sampleRate, boolean filterSamples) {
+        return filterSamples ? new BandPassSampleFilter(sampleRate, pulseListBuilder) : pulseListBuilder;
+    }
+
+    private static <T extends SampleSink> T readSamples(String fileName, AudioFileOptions options,
+                                                        Function<Float, T> builderFactory)
+            throws IOException, UnsupportedAudioFileException {
         checkNotNull(fileName, "No input WAV file name supplied");
+        checkNotNull(options, "No options supplied");
+        int bufferSize = options.getBufferSize();
+        boolean filterSamples = options.isFilterSamples();
         
         int totalFramesRead = 0;
         
         // Open WAV file specified on the command line
         Path fileIn = Paths.get(fileName);
 
+        // Read plain PCM files directly, leaving anything else to javax.sound
+        try (FileChannel channel = FileChannel.open(fileIn, StandardOpenOption.READ)) {
+            Optional<PcmWavFile> pcmWavFile = PcmWavFile.open(channel);
+            if (pcmWavFile.isPresent()) {
+                Logger.getLogger(AudioFileTape.class.getName())
+                        .log(Level.INFO, "Using WAV format " + pcmWavFile.get().toString());
+
+                T pulseListBuilder = builderFactory.apply(pcmWavFile.get().getSampleRate());
+                pcmWavFile.get().readSamples(channel,
+                        getSampleSink(pulseListBuilder, pcmWavFile.get().getSampleRate(), filterSamples), bufferSize);
+
+                Logger.getLogger(AudioFileTape.class.getName())
+                        .log(Level.FINE, String.format("Processed %s samples", pcmWavFile.get().getNumFrames()));
+
+                return pulseListBuilder;
+            }
+        }
+
         try (InputStream inputStream = newInputStream(fileIn)) {
             // Add buffer for mark/reset support
             AudioInputStream audioInputStream = getAudioInputStream(new BufferedInputStream(inputStream));
             AudioFormat inDataFormat = audioInputStream.getFormat();
 
-            // Process the WAV as a mono 8 bit file to limit memory requirements
+            // Process the file as little endian signed samples at its own precision so the trigger sees the full
+            // resolution of the recording
+            int channels = inDataFormat.getChannels();
+            int sampleSizeInBits = getSignedSampleSize(inDataFormat.getSampleSizeInBits());
             AudioFormat dataFormat = 
-                    new AudioFormat(AudioFormat.Encoding.PCM_UNSIGNED, 
-                            inDataFormat.getSampleRate(), 8, 1, 1, 
+                    new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, 
+                            inDataFormat.getSampleRate(), sampleSizeInBits, channels,
+                            channels * sampleSizeInBits / 8,
                             inDataFormat.getFrameRate(), 
-                            inDataFormat.isBigEndian());
+                            false);
             
-            if (!isConversionSupported(dataFormat, inDataFormat)) {
+            if (channels < 1 || !isConversionSupported(dataFormat, inDataFormat)) {
                 throw new UnsupportedAudioFileException("Unsupported WAV audio format " + inDataFormat.toString());
             }
 
-            System.out.println("Using WAV format " + dataFormat.toString());
+            Logger.getLogger(AudioFileTape.class.getName())
+                    .log(Level.INFO, "Using WAV format " + dataFormat.toString());
             
-            AudioInputStream lowResAIS = getAudioInputStream(dataFormat, audioInputStream);
+            AudioInputStream signedAIS = getAudioInputStream(dataFormat, audioInputStream);
 
-            AudioSamplePulseListBuilder pulseListBuilder =
-                    new AudioSamplePulseListBuilder(inDataFormat.getSampleRate(), targetHz, trigger);
+            T pulseListBuilder = builderFactory.apply(inDataFormat.getSampleRate());
+            SampleSink sampleSink = getSampleSink(pulseListBuilder, inDataFormat.getSampleRate(), filterSamples);
             
-            int bytesPerFrame = 1;
-            int numBytes = 1024 * bytesPerFrame; 
-            byte[] audioBytes = new byte[numBytes];
+            int bytesPerFrame = dataFormat.getFrameSize();
+            byte[] audioBytes = new byte[bufferSize * bytesPerFrame];
+            ByteBuffer audioBuffer = ByteBuffer.wrap(audioBytes).order(ByteOrder.LITTLE_ENDIAN);
+            int[] samples = new int[bufferSize];
 
             int numBytesRead;
             int numFramesRead;
             
-            // Try to read numBytes bytes from the file.
-            while ((numBytesRead = lowResAIS.read(audioBytes)) != -1) {
+            // Try to read numBytes bytes from the file, AudioInputStream only returns whole frames
+            while ((numBytesRead = signedAIS.read(audioBytes)) != -1) {
                 // Calculate the number of frames actually read.
                 numFramesRead = numBytesRead / bytesPerFrame;
                 totalFramesRead += numFramesRead;
-                // Here, do something useful with the audio data that's 
-                // now in the audioBytes array...
-                for(int i = 0; i<numBytesRead; i++) {
-                    pulseListBuilder.addSample(0x000000FF & ((int)audioBytes[i]));
-                }
+                audioBuffer.clear();
+                PcmWavFile.getSamples(audioBuffer, samples, numFramesRead, channels, sampleSizeInBits);
+                sampleSink.addSamples(samples, 0, numFramesRead);
             }
 
             Logger.getLogger(AudioFileTape.class.getName())
                     .log(Level.FINE, String.format("Processed %s samples", totalFramesRead));
             
-            return pulseListBuilder.build();
+            return pulseListBuilder;
         }
     }
 
+    // The nearest signed sample size read by PcmWavFile.getSamples that holds all of the precision of a source
+    // sample, 8 bit signed samples are read as 16 bits as PcmWavFile follows WAV in treating 8 bits as unsigned
+    private static int getSignedSampleSize(int sampleSizeInBits) {
+        if (sampleSizeInBits <= 16) return 16;
+        if (sampleSizeInBits <= 24) return 24;
+        return 32;
+    }
+
 }
@@ -27,8 +27,10 @@ package xyz.meunier.wav2pzx.input;
 
 import xyz.meunier.wav2pzx.input.triggers.Bistable;
 import xyz.meunier.wav2pzx.pulselist.PulseList;
+import xyz.meunier.wav2pzx.pulselist.PulseSink;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
 /**
@@ -37,11 +39,19 @@ import static com.google.common.base.Preconditions.checkState;
  *
  * @author Fredrick Meunier
  */
-final class AudioSamplePulseListBuilder {
+final class AudioSamplePulseListBuilder implements SampleSink {
 
+    private final float sampleRate;
     private final double tStatesPerSample;
     private final Bistable bistable;
-    private SamplePulseGenerator samplePulseGenerator;
+    private long numSamples;
+    // The last full scale sample added, for timing an edge at the start of the next buffer
+    private int lastSample;
+    private final SamplePulseGenerator samplePulseGenerator;
+    // Scratch buffers for the edge positions found in each buffer and how far before their samples the edges fell
+    private int[] edges = new int[0];
+    private double[] edgeOffsets = new double[0];
+    private final int[] singleSample = new int[1];
 
     /**
      * Construct a new AudioSamplePulseListBuilder.
@@ -50,6 +60,23 @@ final class AudioSamplePulseListBuilder {
      * @param trigger determines when the signal level of a sample should be 0 or 1
      */
     AudioSamplePulseListBuilder(float sampleRate, float targetHz, Bistable trigger) {
+        this(sampleRate, targetHz, trigger, new SamplePulseGenerator());
+    }
+
+    /**
+     * Construct a new AudioSamplePulseListBuilder that passes pulses to the supplied sink as they are completed
+     * rather than building a PulseList.
+     * @param sampleRate the sample rate of the source file, must be less than targetHz
+     * @param targetHz the sample rate to resample to
+     * @param trigger determines when the signal level of a sample should be 0 or 1
+     * @param sink the destination for the pulses
+     */
+    AudioSamplePulseListBuilder(float sampleRate, float targetHz, Bistable trigger, PulseSink sink) {
+        this(sampleRate, targetHz, trigger, new SamplePulseGenerator(sink));
+    }
+
+    private AudioSamplePulseListBuilder(float sampleRate, float targetHz, Bistable trigger,
+                                        SamplePulseGenerator samplePulseGenerator) {
         // Assert sampleRate > 0
         checkArgument(sampleRate > 0, "Sample rate must be greater than 0, sample rate: " + sampleRate);
         
@@ -58,10 +85,11 @@ final class AudioSamplePulseListBuilder {
         // expected to be in this range for the foreseeable future
         checkArgument(targetHz >= sampleRate, "Target Hz must be greater than or equal to sample rate, target Hz:" + targetHz + " sample rate: " + sampleRate);
 
+        this.sampleRate = sampleRate;
         tStatesPerSample = targetHz / sampleRate;
         bistable = trigger;
 
-        samplePulseGenerator = new SamplePulseGenerator();
+        this.samplePulseGenerator = samplePulseGenerator;
     }
 
     /**
@@ -71,6 +99,13 @@ final class AudioSamplePulseListBuilder {
         return tStatesPerSample;
     }
 
+    /**
+     * @return the length of the samples added so far in seconds
+     */
+    double getDuration() {
+        return numSamples / sampleRate;
+    }
+
     /**
      * @return whether this builder has completed and built the tape
      */
@@ -87,11 +122,80 @@ final class AudioSamplePulseListBuilder {
     void addSample(int sample) {
         // State error, tape is already complete so no more pulses
         checkState(!samplePulseGenerator.isTapeComplete(), "Pulse length list has already been marked as complete");
-        checkArgument( sample >= 0 & sample <= 255, "Sample out of range, should be 0-255, value: " + sample);
+        // Only build the message when the check fails, this is called for every sample
+        if (sample < 0 || sample > 255) {
+            throw new IllegalArgumentException("Sample out of range, should be 0-255, value: " + sample);
+        }
         
-        int newLevel = bistable.getNewLevel(sample);
-        
-        samplePulseGenerator.addSample(newLevel, tStatesPerSample);
+        // Go through the same edge finding as a buffer of samples so edges are timed the same way
+        singleSample[0] = (sample - 128) << Bistable.UNSIGNED_BYTE_SHIFT;
+        addValidSamples(singleSample, 0, 1);
+    }
+
+    /**
+     * Add a buffer of full scale signed samples from the source to the PulseList under construction. Samples of any
+     * bit depth are passed at full precision by shifting them to the top of an int, see
+     * {@link Bistable#getNewLevelFullScale(int)}. The arguments are validated once for the whole buffer.
+     * @param buf full scale signed samples
+     * @param off the index of the first sample to add
+     * @param len the number of samples to add
+     * @throws IllegalStateException if the tape is complete
+     * @throws IndexOutOfBoundsException if off and len do not describe a range within buf
+     * @throws NullPointerException if buf is null
+     */
+    @Override
+    public void addSamples(int[] buf, int off, int len) {
+        checkNotNull(buf, "buf must not be null");
+        if (off < 0 || len < 0 || len > buf.length - off) {
+            throw new IndexOutOfBoundsException("off: " + off + ", len: " + len + ", buf.length: " + buf.length);
+        }
+        checkState(!samplePulseGenerator.isTapeComplete(), "Pulse length list has already been marked as complete");
+
+        addValidSamples(buf, off, len);
+    }
+
+    /**
+     * Find the edges in a buffer of full scale signed samples in bulk and pass them to the pulse generator, the
+     * arguments must already have been validated.
+     */
+    private void addValidSamples(int[] buf, int off, int len) {
+        if (len == 0) {
+            return;
+        }
+
+        int first = off;
+        if (!samplePulseGenerator.hasFirstSample()) {
+            // The first sample fixes the level of the first pulse, after that only the edges matter
+            samplePulseGenerator.addValidSample(bistable.getNewLevelFullScale(buf[first++]), tStatesPerSample);
+        }
+
+        int remaining = off + len - first;
+        if (edges.length < remaining) {
+            edges = new int[remaining];
+            edgeOffsets = new double[remaining];
+        }
+        int level = samplePulseGenerator.getLastSampleLevel();
+        int numEdges = bistable.findEdges(buf, first, remaining, level, edges);
+
+        // Only the edges are visited to time them between samples, so this costs no extra pass over the samples
+        for (int i = 0; i < numEdges; i++) {
+            int edge = first + edges[i];
+            int previousSample = edge == off ? lastSample : buf[edge - 1];
+            level ^= 1;
+            edgeOffsets[i] = bistable.getEdgeOffset(previousSample, buf[edge], level);
+        }
+
+        samplePulseGenerator.addEdges(remaining, edges, edgeOffsets, numEdges, tStatesPerSample);
+        lastSample = buf[off + len - 1];
+        numSamples += len;
+    }
+
+    /**
+     * Mark the tape as being complete, passing the last pulse to the sink
+     * @throws IllegalStateException if we haven't yet processed any samples from the tape
+     */
+    void complete() {
+        samplePulseGenerator.complete();
     }
 
     /**
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2016, Fredrick Meunier
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package xyz.meunier.wav2pzx.input;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Filters each buffer of samples to the frequency band used by tape loaders before passing it on, so hiss and hum
+ * in noisy recordings do not cross the trigger's threshold and produce spurious short pulses. A two pole Butterworth
+ * low-pass removes the hiss above the band and a one pole high-pass removes DC offset and hum below it.
+ * <p>
+ * The filters run in fixed point with a constant cost per sample and the filtered samples are written to a buffer
+ * that is reused between calls. Filtering delays every edge by about the same amount so pulse lengths are kept.
+ *
+ * @author Fredrick Meunier
+ */
+final class BandPassSampleFilter implements SampleSink {
+
+    /**
+     * The default frequency below which the signal is removed. The pilot tone, the lowest frequency used by the ROM
+     * loader, is about 800Hz.
+     */
+    static final float DEFAULT_LOW_CUTOFF_HZ = 100;
+
+    /**
+     * The default frequency above which the signal is removed. The sync pulses, the highest frequency used by the
+     * ROM loader, are about 2.5kHz and the cutoff leaves room for faster loaders and the harmonics that keep the
+     * edges sharp.
+     */
+    static final float DEFAULT_HIGH_CUTOFF_HZ = 8000;
+
+    // The highest low-pass cutoff as a fraction of the sample rate, the filter is unstable close to Nyquist
+    private static final double MAX_HIGH_CUTOFF_FRACTION = 0.45;
+
+    // The number of fraction bits in the low-pass coefficients, small enough that the sum of five products of a full
+    // scale sample and a coefficient fits in a long
+    private static final int LOW_PASS_SHIFT = 28;
+
+    // The number of fraction bits in the high-pass coefficient
+    private static final int HIGH_PASS_SHIFT = 16;
+
+    private final SampleSink sink;
+
+    // Low-pass coefficients, b1 is twice b0 and b2 is b0 for a Butterworth low-pass
+    private final long b0;
+    private final long a1;
+    private final long a2;
+
+    // How far the DC level moves towards each sample
+    private final long dcCoefficient;
+
+    // The last two input and low-pass output samples and the DC level
+    private long x1;
+    private long x2;
+    private long y1;
+    private long y2;
+    private long dcLevel;
+    private boolean primed;
+
+    private int[] filtered = new int[0];
+
+    /**
+     * Construct a new BandPassSampleFilter with the default cutoffs.
+     * @param sampleRate the sample rate of the source file
+     * @param sink the destination for the filtered samples
+     * @throws NullPointerException if sink is null
+     * @throws IllegalArgumentException if sampleRate is not greater than 0
+     */
+    BandPassSampleFilter(float sampleRate, SampleSink sink) {
+        this(sampleRate, DEFAULT_LOW_CUTOFF_HZ, DEFAULT_HIGH_CUTOFF_HZ, sink);
+    }
+
+    /**
+     * Construct a new BandPassSampleFilter.
+     * @param sampleRate the sample rate of the source file
+     * @param lowCutoffHz the frequency below which the signal is removed
+     * @param highCutoffHz the frequency above which the signal is removed, lowered to just below half the sample rate
+     *                     if it is higher
+     * @param sink the destination for the filtered samples
+     * @throws NullPointerException if sink is null
+     * @throws IllegalArgumentException if sampleRate is not greater than 0 or the cutoffs are not greater than 0 and
+     *                                  in order
+     */
+    BandPassSampleFilter(float sampleRate, float lowCutoffHz, float highCutoffHz, SampleSink sink) {
+        checkArgument(sampleRate > 0, "Sample rate must be greater than 0, sample rate: " + sampleRate);
+        checkArgument(lowCutoffHz > 0 && lowCutoffHz < highCutoffHz,
+                "Cutoffs must be greater than 0 and in order, low: " + lowCutoffHz + " high: " + highCutoffHz);
+        this.sink = checkNotNull(sink, "sink must not be null");
+
+        // Butterworth low-pass from the Audio EQ Cookbook with Q of 1/sqrt(2)
+        double w0 = 2 * Math.PI * Math.min(highCutoffHz, sampleRate * MAX_HIGH_CUTOFF_FRACTION) / sampleRate;
+        double alpha = Math.sin(w0) / Math.sqrt(2);
+        double a0 = 1 + alpha;
+        b0 = toFixed((1 - Math.cos(w0)) / 2 / a0, LOW_PASS_SHIFT);
+        a1 = toFixed(-2 * Math.cos(w0) / a0, LOW_PASS_SHIFT);
+        a2 = toFixed((1 - alpha) / a0, LOW_PASS_SHIFT);
+
+        dcCoefficient = toFixed(1 - Math.exp(-2 * Math.PI * lowCutoffHz / sampleRate), HIGH_PASS_SHIFT);
+    }
+
+    private static long toFixed(double value, int shift) {
+        return Math.round(value * (1L << shift));
+    }
+
+    @Override
+    public void addSamples(int[] buf, int off, int len) {
+        checkNotNull(buf, "buf must not be null");
+        if (off < 0 || len < 0 || len > buf.length - off) {
+            throw new IndexOutOfBoundsException("off: " + off + ", len: " + len + ", buf.length: " + buf.length);
+        }
+        if (filtered.length < len) {
+            filtered = new int[len];
+        }
+        if (len > 0 && !primed) {
+            // Start the low-pass from the first sample as if it had always been there so it does not ring at the
+            // start, the DC level starts from the midpoint as the first sample may be part of a pulse
+            x1 = x2 = y1 = y2 = buf[off];
+            primed = true;
+        }
+
+        final int[] out = filtered;
+        for (int i = 0; i < len; i++) {
+            long x = buf[off + i];
+            long y = (b0 * (x + 2 * x1 + x2) - a1 * y1 - a2 * y2) >> LOW_PASS_SHIFT;
+            x2 = x1;
+            x1 = x;
+            y2 = y1;
+            y1 = y;
+
+            dcLevel += ((y - dcLevel) * dcCoefficient) >> HIGH_PASS_SHIFT;
+            long sample = y - dcLevel;
+            out[i] = (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, sample));
+        }
+
+        sink.addSamples(out, 0, len);
+    }
+
+}
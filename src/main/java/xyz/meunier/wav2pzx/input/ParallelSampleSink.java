@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2016, Fredrick Meunier
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package xyz.meunier.wav2pzx.input;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Passes each buffer of samples to several sinks at once, each on its own thread, so a file read once can be
+ * converted in several different ways in about the time it takes to convert it once. Each call waits for every sink
+ * to finish with the buffer before returning so the caller can reuse it.
+ *
+ * @author Fredrick Meunier
+ */
+final class ParallelSampleSink implements SampleSink {
+
+    private final List<? extends SampleSink> sinks;
+    private final ExecutorService executor;
+    private final List<Future<?>> pending;
+
+    /**
+     * Construct a new ParallelSampleSink.
+     * @param sinks the destinations for the samples
+     * @param executor runs all but the first sink, which runs on the calling thread
+     * @throws NullPointerException if sinks or executor is null
+     * @throws IllegalArgumentException if sinks is empty
+     */
+    ParallelSampleSink(List<? extends SampleSink> sinks, ExecutorService executor) {
+        checkNotNull(sinks, "sinks must not be null");
+        checkNotNull(executor, "executor must not be null");
+        checkArgument(!sinks.isEmpty(), "At least one sink is required");
+        this.sinks = sinks;
+        this.executor = executor;
+        this.pending = new ArrayList<>(sinks.size() - 1);
+    }
+
+    @Override
+    public void addSamples(int[] buf, int off, int len) {
+        pending.clear();
+        for (int i = 1; i < sinks.size(); i++) {
+            SampleSink sink = sinks.get(i);
+            pending.add(executor.submit(() -> sink.addSamples(buf, off, len)));
+        }
+
+        try {
+            sinks.get(0).addSamples(buf, off, len);
+        } finally {
+            awaitPending();
+        }
+    }
+
+    private void awaitPending() {
+        RuntimeException failure = null;
+        for (Future<?> future : pending) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof RuntimeException ?
+                            (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+                if (failure == null) {
+                    failure = new IllegalStateException("Interrupted while converting samples", e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
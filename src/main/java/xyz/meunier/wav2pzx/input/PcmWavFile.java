@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2016, Fredrick Meunier
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package xyz.meunier.wav2pzx.input;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Reads the samples of an uncompressed PCM WAV file directly from a memory mapping of its data chunk, avoiding the
+ * javax.sound stream conversions. Files with 8, 16, 24 or 32 bit samples and one or two channels are supported, other
+ * files should be read with javax.sound.
+ * <p>
+ * Samples are mixed down to a single channel by averaging the channels and passed on at their full precision as
+ * full scale signed samples, see {@link xyz.meunier.wav2pzx.input.triggers.Bistable#getNewLevelFullScale(int)}.
+ *
+ * @author Fredrick Meunier
+ */
+final class PcmWavFile {
+
+    private static final int WAVE_FORMAT_PCM = 1;
+    private static final int WAVE_FORMAT_EXTENSIBLE = 0xfffe;
+    private static final int RIFF_HEADER_SIZE = 12;
+    private static final int CHUNK_HEADER_SIZE = 8;
+    private static final int MIN_FMT_CHUNK_SIZE = 16;
+    private static final int EXTENSIBLE_FMT_CHUNK_SIZE = 40;
+
+    // Map the data chunk in windows to keep within the limits of a MappedByteBuffer
+    private static final int MAP_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private final float sampleRate;
+    private final int channels;
+    private final int bitsPerSample;
+    private final int blockAlign;
+    private final long dataOffset;
+    private final long dataSize;
+
+    private PcmWavFile(float sampleRate, int channels, int bitsPerSample, int blockAlign, long dataOffset,
+                       long dataSize) {
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.bitsPerSample = bitsPerSample;
+        this.blockAlign = blockAlign;
+        this.dataOffset = dataOffset;
+        this.dataSize = dataSize;
+    }
+
+    /**
+     * Parse the RIFF header of a file.
+     *
+     * @param channel the file to parse
+     * @return the description of the file if it is a supported PCM WAV file, otherwise empty
+     * @throws IOException if there is an error reading the file
+     */
+    static Optional<PcmWavFile> open(FileChannel channel) throws IOException {
+        checkNotNull(channel, "channel must not be null");
+
+        ByteBuffer header = readFully(channel, 0, RIFF_HEADER_SIZE);
+        if (header == null || !isTag(header, 0, "RIFF") || !isTag(header, 8, "WAVE")) {
+            return Optional.empty();
+        }
+
+        ByteBuffer format = null;
+        long position = RIFF_HEADER_SIZE;
+        ByteBuffer chunkHeader;
+        while ((chunkHeader = readFully(channel, position, CHUNK_HEADER_SIZE)) != null) {
+            long chunkSize = chunkHeader.getInt(4) & 0xffffffffL;
+            long chunkData = position + CHUNK_HEADER_SIZE;
+            if (isTag(chunkHeader, 0, "fmt ")) {
+                if (chunkSize < MIN_FMT_CHUNK_SIZE) return Optional.empty();
+                format = readFully(channel, chunkData, (int) Math.min(chunkSize, EXTENSIBLE_FMT_CHUNK_SIZE));
+                if (format == null) return Optional.empty();
+            } else if (isTag(chunkHeader, 0, "data")) {
+                // Streamed recordings may not have a correct data size, so stop at the end of the file
+                long dataSize = Math.min(chunkSize, channel.size() - chunkData);
+                return format == null ? Optional.empty() : fromFormat(format, chunkData, dataSize);
+            }
+            // Chunks are padded to an even length
+            position = chunkData + chunkSize + (chunkSize & 1);
+        }
+
+        return Optional.empty();
+    }
+
+    private static Optional<PcmWavFile> fromFormat(ByteBuffer format, long dataOffset, long dataSize) {
+        int formatTag = format.getShort(0) & 0xffff;
+        int channels = format.getShort(2) & 0xffff;
+        long sampleRate = format.getInt(4) & 0xffffffffL;
+        int blockAlign = format.getShort(12) & 0xffff;
+        int bitsPerSample = format.getShort(14) & 0xffff;
+
+        // Extensible files name their real format in the first two bytes of the sub format GUID
+        if (formatTag == WAVE_FORMAT_EXTENSIBLE && format.limit() >= EXTENSIBLE_FMT_CHUNK_SIZE) {
+            formatTag = format.getShort(24) & 0xffff;
+        }
+
+        boolean supported = formatTag == WAVE_FORMAT_PCM &&
+                (channels == 1 || channels == 2) &&
+                (bitsPerSample == 8 || bitsPerSample == 16 || bitsPerSample == 24 || bitsPerSample == 32) &&
+                blockAlign == channels * bitsPerSample / 8 &&
+                sampleRate > 0;
+
+        return supported ?
+                Optional.of(new PcmWavFile(sampleRate, channels, bitsPerSample, blockAlign, dataOffset, dataSize)) :
+                Optional.empty();
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                return null;
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static boolean isTag(ByteBuffer buffer, int offset, String tag) {
+        byte[] tagBytes = tag.getBytes(StandardCharsets.US_ASCII);
+        for (int i = 0; i < tagBytes.length; i++) {
+            if (buffer.get(offset + i) != tagBytes[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the sample rate of the file in Hz
+     */
+    float getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * @return the number of channels in the file
+     */
+    int getChannels() {
+        return channels;
+    }
+
+    /**
+     * @return the number of bits in each sample
+     */
+    int getBitsPerSample() {
+        return bitsPerSample;
+    }
+
+    /**
+     * @return the number of complete frames in the data chunk
+     */
+    long getNumFrames() {
+        return dataSize / blockAlign;
+    }
+
+    /**
+     * Pass every sample in the file to the sink as full scale signed mono samples.
+     *
+     * @param channel    the file described by this PcmWavFile
+     * @param sink       the destination for the samples
+     * @param bufferSize the number of samples to pass to the sink at a time
+     * @throws IOException if there is an error reading the file
+     */
+    void readSamples(FileChannel channel, SampleSink sink, int bufferSize) throws IOException {
+        checkNotNull(channel, "channel must not be null");
+        checkNotNull(sink, "sink must not be null");
+        checkArgument(bufferSize > 0, "bufferSize must be greater than 0");
+
+        int[] samples = new int[bufferSize];
+        long windowSize = MAP_WINDOW_SIZE - MAP_WINDOW_SIZE % blockAlign;
+        long dataEnd = dataOffset + getNumFrames() * blockAlign;
+        for (long position = dataOffset; position < dataEnd; position += windowSize) {
+            MappedByteBuffer window =
+                    channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(windowSize, dataEnd - position));
+            window.order(ByteOrder.LITTLE_ENDIAN);
+
+            while (window.hasRemaining()) {
+                int numSamples = Math.min(samples.length, window.remaining() / blockAlign);
+                getSamples(window, samples, numSamples, channels, bitsPerSample);
+                sink.addSamples(samples, 0, numSamples);
+            }
+        }
+    }
+
+    /**
+     * Read frames of little endian PCM samples as full scale signed mono samples. As in WAV files, 8 bit samples are
+     * unsigned and larger samples are signed.
+     *
+     * @param src           the source of the frames, positioned at the first frame to read
+     * @param samples       the destination for the samples
+     * @param numFrames     the number of frames to read
+     * @param channels      the number of channels in each frame
+     * @param bitsPerSample the size of each sample, one of 8, 16, 24 or 32
+     */
+    static void getSamples(ByteBuffer src, int[] samples, int numFrames, int channels, int bitsPerSample) {
+        int shift = Integer.SIZE - bitsPerSample;
+        if (channels == 1) {
+            for (int i = 0; i < numFrames; i++) {
+                samples[i] = getSignedSample(src, bitsPerSample) << shift;
+            }
+            return;
+        }
+
+        for (int i = 0; i < numFrames; i++) {
+            long sum = 0;
+            for (int channel = 0; channel < channels; channel++) {
+                sum += getSignedSample(src, bitsPerSample) << shift;
+            }
+            samples[i] = (int) Math.floorDiv(sum, channels);
+        }
+    }
+
+    private static int getSignedSample(ByteBuffer src, int bitsPerSample) {
+        switch (bitsPerSample) {
+            case 8:
+                return (src.get() & 0xff) - 128;
+            case 16:
+                return src.getShort();
+            case 24:
+                int low = src.getShort() & 0xffff;
+                return (src.get() << 16) | low;
+            default:
+                return src.getInt();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return (bitsPerSample == 8 ? "PCM_UNSIGNED " : "PCM_SIGNED ") + sampleRate + " Hz, " + bitsPerSample + " bit, " +
+                (channels == 1 ? "mono" : "stereo") + ", " + blockAlign + " bytes/frame (direct)";
+    }
+}
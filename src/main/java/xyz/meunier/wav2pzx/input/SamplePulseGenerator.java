@@ -27,19 +27,21 @@ package xyz.meunier.wav2pzx.input;
 
 import xyz.meunier.wav2pzx.pulselist.PulseList;
 import xyz.meunier.wav2pzx.pulselist.PulseListBuilder;
+import xyz.meunier.wav2pzx.pulselist.PulseSink;
 
-import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static java.lang.Math.round;
 
 /**
- * This class converts a stream of 0/1 samples into a PulseList
+ * This class converts a stream of 0/1 samples into a PulseList, or into pulses delivered to a PulseSink as they are
+ * completed
  *
  * @author Fredrick Meunier
  */
 public final class SamplePulseGenerator {
 
     private final PulseListBuilder builder;
+    private final PulseSink sink;
     private int lastSampleLevel;
     private boolean gotFirstSample;
     private double currentPulseDuration;
@@ -47,7 +49,22 @@ public final class SamplePulseGenerator {
     private PulseList pulseList;
 
     public SamplePulseGenerator() {
-        builder = new PulseListBuilder();
+        this(new PulseListBuilder(), null);
+    }
+
+    /**
+     * Construct a SamplePulseGenerator that passes each pulse to the supplied sink as soon as it is complete rather
+     * than building a PulseList.
+     *
+     * @param sink the destination for the pulses
+     */
+    public SamplePulseGenerator(PulseSink sink) {
+        this(null, sink);
+    }
+
+    private SamplePulseGenerator(PulseListBuilder builder, PulseSink sink) {
+        this.builder = builder;
+        this.sink = sink != null ? sink : builder;
         gotFirstSample = false;
         tapeComplete = false;
     }
@@ -69,13 +86,25 @@ public final class SamplePulseGenerator {
     void addSample(int newLevel, double tStatesSinceLastSample) {
         // State error, tape is already complete so no more pulses
         checkState(!tapeComplete, "Pulse length list has already been marked as complete");
-        checkArgument(newLevel >= 0 & newLevel <= 1, "Level out of range, should be 0-1, value: " + newLevel);
+        if (newLevel < 0 || newLevel > 1) {
+            throw new IllegalArgumentException("Level out of range, should be 0-1, value: " + newLevel);
+        }
+
+        addValidSample(newLevel, tStatesSinceLastSample);
+    }
 
+    /**
+     * Add a sample from the source to the PulseList under construction without validating it, for callers that
+     * have already checked that the tape is not complete and that the level comes from a Bistable
+     *
+     * @param newLevel new level, must be 0 or 1
+     */
+    void addValidSample(int newLevel, double tStatesSinceLastSample) {
         // Record the level of the first sample, later pulses only record the duration
         // as they are defined by the edge between the levels
         if (!gotFirstSample) {
             gotFirstSample = true;
-            builder.withFirstPulseLevel(newLevel);
+            sink.withFirstPulseLevel(newLevel);
             lastSampleLevel = newLevel;
             currentPulseDuration = tStatesSinceLastSample;
             return;
@@ -86,30 +115,110 @@ public final class SamplePulseGenerator {
             currentPulseDuration += tStatesSinceLastSample;
         } else {
             // Close current pulse and start accumulating new pulse
-            builder.withNextPulse(round(currentPulseDuration));
+            sink.withNextPulse(round(currentPulseDuration));
             currentPulseDuration = tStatesSinceLastSample;
             lastSampleLevel = newLevel;
         }
     }
 
     /**
-     * Construct the new PulseList and mark the tape as being complete
+     * @return whether the first sample has been added, fixing the level of the first pulse
+     */
+    boolean hasFirstSample() {
+        return gotFirstSample;
+    }
+
+    /**
+     * @return the level of the most recently added sample
+     * @throws IllegalStateException if we haven't yet processed any samples from the tape
+     */
+    int getLastSampleLevel() {
+        checkState(gotFirstSample, "First pulse not yet received");
+        return lastSampleLevel;
+    }
+
+    /**
+     * Add a run of samples of equal duration from the source to the PulseList under construction given only the
+     * positions at which the level changes, as found by
+     * {@link xyz.meunier.wav2pzx.input.triggers.Bistable#findEdges(int[], int, int, int, int[])}. The duration of
+     * each pulse is the number of samples between its edges multiplied by the duration of a sample. Like
+     * {@link #addValidSample(int, double)} this does not check that the tape is not complete.
+     *
+     * @param numSamples the number of samples in the run
+     * @param edges the indexes within the run of the samples whose level differs from the sample before them, in
+     *              ascending order
+     * @param numEdges the number of entries of edges to use
+     * @param tStatesPerSample the duration of each sample
+     * @throws IllegalStateException if we haven't yet processed any samples from the tape, the level of the first
+     *                               pulse must be fixed by {@link #addValidSample(int, double)}
+     */
+    void addEdges(int numSamples, int[] edges, int numEdges, double tStatesPerSample) {
+        addEdges(numSamples, edges, null, numEdges, tStatesPerSample);
+    }
+
+    /**
+     * Add a run of samples of equal duration from the source to the PulseList under construction given the
+     * positions at which the level changes and how far before each of those samples the edge fell, as estimated by
+     * {@link xyz.meunier.wav2pzx.input.triggers.Bistable#getEdgeOffset(int, int, int)}. The time lost from the pulse
+     * after an edge is carried by the pulse before it, so the durations still add up to the length of the samples.
+     *
+     * @param numSamples the number of samples in the run
+     * @param edges the indexes within the run of the samples whose level differs from the sample before them, in
+     *              ascending order
+     * @param edgeOffsets the fraction of a sample period before each edge sample that the edge fell, or null to time
+     *                    each edge at its sample
+     * @param numEdges the number of entries of edges to use
+     * @param tStatesPerSample the duration of each sample
+     * @throws IllegalStateException if we haven't yet processed any samples from the tape, the level of the first
+     *                               pulse must be fixed by {@link #addValidSample(int, double)}
+     */
+    void addEdges(int numSamples, int[] edges, double[] edgeOffsets, int numEdges, double tStatesPerSample) {
+        checkState(gotFirstSample, "First pulse not yet received");
+
+        double pulseStart = 0;
+        for (int i = 0; i < numEdges; i++) {
+            double edge = edgeOffsets == null ? edges[i] : edges[i] - edgeOffsets[i];
+            sink.withNextPulse(round(currentPulseDuration + (edge - pulseStart) * tStatesPerSample));
+            currentPulseDuration = 0;
+            pulseStart = edge;
+        }
+        currentPulseDuration += (numSamples - pulseStart) * tStatesPerSample;
+        lastSampleLevel ^= numEdges & 1;
+    }
+
+    /**
+     * Close the current pulse and mark the tape as being complete, passing the last pulse to the sink
      *
-     * @return the PulseList
      * @throws IllegalStateException if we haven't yet processed any samples from the tape
      */
-    public PulseList build() {
+    public void complete() {
         // State error, haven't received first pulse so we don't know the first pulse level
         checkState(gotFirstSample, "First pulse not yet received");
 
         if (tapeComplete) {
-            return pulseList;
+            return;
         }
 
         // Close current pulse and mark list as being complete
-        builder.withNextPulse(round(currentPulseDuration));
+        sink.withNextPulse(round(currentPulseDuration));
         tapeComplete = true;
-        pulseList = builder.build();
+    }
+
+    /**
+     * Construct the new PulseList and mark the tape as being complete
+     *
+     * @return the PulseList
+     * @throws IllegalStateException if we haven't yet processed any samples from the tape or this generator was
+     *                               constructed with a PulseSink
+     */
+    public PulseList build() {
+        checkState(builder != null, "Pulses have been passed to a PulseSink");
+
+        complete();
+
+        if (pulseList == null) {
+            pulseList = builder.build();
+        }
 
         return pulseList;
     }
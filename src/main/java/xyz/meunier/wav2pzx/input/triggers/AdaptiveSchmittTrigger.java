@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2016, Fredrick Meunier
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package xyz.meunier.wav2pzx.input.triggers;
+
+/**
+ * The AdaptiveSchmittTrigger is a Schmitt trigger whose midpoint and threshold follow the signal rather than being
+ * fixed. The midpoint tracks the running DC level of the signal and the threshold is a fraction of the running
+ * amplitude of the signal about that level, so quiet or DC offset recordings can be converted without normalising
+ * them first.
+ * <p>
+ * The DC level is an exponential moving average of the samples, slow enough to sit in the middle of the longest
+ * pulses of a loader. The amplitude is a peak envelope that rises immediately and decays slowly. Both are updated
+ * in constant time and space for each sample.
+ *
+ * @author Fredrick Meunier
+ */
+public final class AdaptiveSchmittTrigger implements Bistable {
+
+	// The DC level moves 1/2^DC_SHIFT of the way to each sample, a time constant of about 23ms at 44.1kHz
+	private static final int DC_SHIFT = 10;
+
+	// The envelope decays by 1/2^ENVELOPE_DECAY_SHIFT each sample, a time constant of about 93ms at 44.1kHz
+	private static final int ENVELOPE_DECAY_SHIFT = 12;
+
+	// The threshold is 3/32 of the envelope, matching the 12/128 used by the SchmittTrigger for a full scale signal
+	private static final int THRESHOLD_NUMERATOR = 3;
+	private static final int THRESHOLD_SHIFT = 5;
+
+	// The smallest threshold to use so the hiss of silent sections does not produce pulses once the envelope has
+	// decayed, in full scale units. This is 3 LSBs of an 8 bit sample, about -33dBFS, above the 1 or 2 LSBs of hiss
+	// in a typical 8 bit recording
+	private static final long MIN_THRESHOLD = 3L << 24;
+
+	// The running DC level and peak envelope in full scale units
+	private long dcLevel = 0;
+	private long envelope = 0;
+
+	// The current level of the output
+	private int currentLevel = 0;
+
+	@Override
+	public int getNewLevelFullScale(int sample) {
+		dcLevel += (sample - dcLevel) >> DC_SHIFT;
+
+		long offset = sample - dcLevel;
+		long amplitude = Math.abs(offset);
+		envelope -= envelope >> ENVELOPE_DECAY_SHIFT;
+		if (amplitude > envelope) {
+			envelope = amplitude;
+		}
+
+		long threshold = Math.max((envelope * THRESHOLD_NUMERATOR) >> THRESHOLD_SHIFT, MIN_THRESHOLD);
+		if (currentLevel == 0) {
+			if (offset >= threshold) currentLevel = 1;
+		} else {
+			if (offset < -threshold) currentLevel = 0;
+		}
+		return currentLevel;
+	}
+
+}
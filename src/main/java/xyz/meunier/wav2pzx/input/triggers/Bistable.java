@@ -32,6 +32,11 @@ package xyz.meunier.wav2pzx.input.triggers;
  */
 public interface Bistable {
 
+	/**
+	 * The number of bits to shift an unsigned byte sample, less its midpoint of 128, to the left to reach full scale
+	 */
+	int UNSIGNED_BYTE_SHIFT = 24;
+
 	/**
 	 * Evaluate the unsigned byte sample provided and return whether it should be
 	 * considered a logical 0 or 1. Will be called for all samples in the source
@@ -39,6 +44,85 @@ public interface Bistable {
 	 * @param sample the unsigned byte (0-255) value for the sample
 	 * @return 0 or 1
 	 */
-	int getNewLevel(int sample);
+	default int getNewLevel(int sample) {
+		return getNewLevelFullScale((sample - 128) << UNSIGNED_BYTE_SHIFT);
+	}
+
+	/**
+	 * Evaluate the full scale signed sample provided and return whether it should be
+	 * considered a logical 0 or 1. Will be called for all samples in the source
+	 * in order.
+	 * <p>
+	 * Samples of any bit depth are scaled to the full range of an int by shifting
+	 * them to the left, so a 16 bit sample is passed as {@code sample << 16} and
+	 * keeps all of its precision.
+	 * @param sample the signed sample scaled to the range of an int
+	 * @return 0 or 1
+	 */
+	int getNewLevelFullScale(int sample);
+
+	/**
+	 * Evaluate a buffer of full scale signed samples, as for
+	 * {@link #getNewLevelFullScale(int)}, and record only the positions at which
+	 * the level changes.
+	 * <p>
+	 * Implementations with a simple threshold test can override this to scan
+	 * for the next crossing in a tight loop rather than producing a level for
+	 * every sample.
+	 * @param buf full scale signed samples
+	 * @param off the index of the first sample to evaluate
+	 * @param len the number of samples to evaluate
+	 * @param previousLevel the level returned for the sample before buf[off]
+	 * @param edges receives the indexes, relative to off and in ascending order,
+	 *              of the samples whose level differs from that of the sample
+	 *              before them, must have room for len entries
+	 * @return the number of edges recorded
+	 */
+	default int findEdges(int[] buf, int off, int len, int previousLevel, int[] edges) {
+		int numEdges = 0;
+		int level = previousLevel;
+		for (int i = 0; i < len; i++) {
+			int newLevel = getNewLevelFullScale(buf[off + i]);
+			if (newLevel != level) {
+				edges[numEdges++] = i;
+				level = newLevel;
+			}
+		}
+		return numEdges;
+	}
+
+	/**
+	 * Estimate how far before a sample the signal crossed the threshold that
+	 * switched the level, so edges can be timed more finely than whole samples.
+	 * The default is to time each edge at the sample that switched the level.
+	 * @param previousSample the full scale sample before the edge
+	 * @param sample the full scale sample that switched the level
+	 * @param newLevel the level after the edge
+	 * @return the fraction of a sample period, from 0 inclusive to 1 exclusive,
+	 *         between the crossing and sample
+	 */
+	default double getEdgeOffset(int previousSample, int sample, int newLevel) {
+		return 0;
+	}
+
+	/**
+	 * Linearly interpolate where the signal crossed threshold between two
+	 * samples on either side of it.
+	 * @param previousSample the full scale sample before the crossing
+	 * @param sample the full scale sample after the crossing
+	 * @param threshold the full scale value crossed
+	 * @return the fraction of a sample period, from 0 inclusive to 1 exclusive,
+	 *         between the crossing and sample
+	 */
+	static double getCrossingOffset(int previousSample, int sample, int threshold) {
+		long distance = (long) sample - previousSample;
+		if (distance == 0) {
+			return 0;
+		}
+		double offset = ((long) sample - threshold) / (double) distance;
+		// Samples not on either side of the threshold, such as when the trigger state was
+		// set by other samples, are timed at the sample as for whole sample timing
+		return offset >= 0 && offset < 1 ? offset : 0;
+	}
 
 }
\ No newline at end of file
@@ -25,6 +25,8 @@
  */
 package xyz.meunier.wav2pzx.input.triggers;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 /**
  * The Schmitt Trigger switches from a value of 1 to 0 when the sample passes the midpoint
  * by a defined threshold and from 0 to 1 when the sample passes the midpoint by a threshold.
@@ -33,22 +35,93 @@ package xyz.meunier.wav2pzx.input.triggers;
  */
 public final class SchmittTrigger implements Bistable {
 	
+	/**
+	 * The default threshold in unsigned byte sample values
+	 */
+	public static final int DEFAULT_THRESHOLD = 12;
+
 	// The threshold to pass the zero level by to switch price level
-	private static final int THRESHOLD = 12;
+	private final int threshold;
 	
+	// Whether to time edges between samples by interpolating the threshold crossing
+	private final boolean interpolateEdges;
+
 	// The current level of the output
 	private int currentLevel = 0;
 
+	public SchmittTrigger() {
+		this(DEFAULT_THRESHOLD);
+	}
+
+	/**
+	 * Construct a SchmittTrigger with a different threshold.
+	 * @param threshold the distance from the midpoint the sample must pass to switch level, in unsigned byte sample
+	 *                  values
+	 * @throws IllegalArgumentException if threshold is not between 0 and 127
+	 */
+	public SchmittTrigger(int threshold) {
+		this(threshold, false);
+	}
+
+	/**
+	 * Construct a SchmittTrigger with a different threshold that can time edges between samples.
+	 * @param threshold the distance from the midpoint the sample must pass to switch level, in unsigned byte sample
+	 *                  values
+	 * @param interpolateEdges whether to time each edge where the signal crossed the threshold, interpolated
+	 *                         between the samples either side of it, rather than at the sample that switched level
+	 * @throws IllegalArgumentException if threshold is not between 0 and 127
+	 */
+	public SchmittTrigger(int threshold, boolean interpolateEdges) {
+		checkArgument(threshold >= 0 && threshold <= 127, "threshold must be between 0 and 127");
+		this.threshold = threshold << UNSIGNED_BYTE_SHIFT;
+		this.interpolateEdges = interpolateEdges;
+	}
+
 	@Override
-	public int getNewLevel(int sample) {
-		int currentThreshold = 128;
+	public int getNewLevelFullScale(int sample) {
+		int currentThreshold = 0;
 		if(currentLevel == 0) {
-			currentThreshold += THRESHOLD;
+			currentThreshold += threshold;
 		} else {
-			currentThreshold -= THRESHOLD;
+			currentThreshold -= threshold;
 		}
 		currentLevel = (sample < currentThreshold) ? 0 : 1;
 		return currentLevel;
 	}
 
+	@Override
+	public int findEdges(int[] buf, int off, int len, int previousLevel, int[] edges) {
+		int numEdges = 0;
+		int level = currentLevel;
+		int i = off;
+		final int end = off + len;
+		while (i < end) {
+			// Skip the run of samples that leave the level unchanged, only the crossing matters
+			if (level == 0) {
+				while (i < end && buf[i] < threshold) {
+					i++;
+				}
+			} else {
+				while (i < end && buf[i] >= -threshold) {
+					i++;
+				}
+			}
+			if (i < end) {
+				edges[numEdges++] = i - off;
+				level ^= 1;
+				i++;
+			}
+		}
+		currentLevel = level;
+		return numEdges;
+	}
+
+	@Override
+	public double getEdgeOffset(int previousSample, int sample, int newLevel) {
+		if (!interpolateEdges) {
+			return 0;
+		}
+		return Bistable.getCrossingOffset(previousSample, sample, newLevel == 1 ? threshold : -threshold);
+	}
+
 }
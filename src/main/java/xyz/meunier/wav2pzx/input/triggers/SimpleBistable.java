@@ -32,12 +32,61 @@ package xyz.meunier.wav2pzx.input.triggers;
  */
 public final class SimpleBistable implements Bistable {
 
+	// Whether to time edges between samples by interpolating the midpoint crossing
+	private final boolean interpolateEdges;
+
+	public SimpleBistable() {
+		this(false);
+	}
+
+	/**
+	 * Construct a SimpleBistable that can time edges between samples.
+	 * @param interpolateEdges whether to time each edge where the signal crossed the midpoint, interpolated
+	 *                         between the samples either side of it, rather than at the sample that switched level
+	 */
+	public SimpleBistable(boolean interpolateEdges) {
+		this.interpolateEdges = interpolateEdges;
+	}
+
 	/* (non-Javadoc)
-	 * @see xyz.meunier.wav2pzx.input.triggers.Bistable#getNewLevel(int)
+	 * @see xyz.meunier.wav2pzx.input.triggers.Bistable#getNewLevelFullScale(int)
 	 */
 	@Override
-	public int getNewLevel(int sample) {
-		return sample < 128 ? 0 : 1;
+	public int getNewLevelFullScale(int sample) {
+		return sample < 0 ? 0 : 1;
+	}
+
+	@Override
+	public int findEdges(int[] buf, int off, int len, int previousLevel, int[] edges) {
+		int numEdges = 0;
+		int level = previousLevel;
+		int i = off;
+		final int end = off + len;
+		while (i < end) {
+			if (level == 0) {
+				while (i < end && buf[i] < 0) {
+					i++;
+				}
+			} else {
+				while (i < end && buf[i] >= 0) {
+					i++;
+				}
+			}
+			if (i < end) {
+				edges[numEdges++] = i - off;
+				level ^= 1;
+				i++;
+			}
+		}
+		return numEdges;
+	}
+
+	@Override
+	public double getEdgeOffset(int previousSample, int sample, int newLevel) {
+		if (!interpolateEdges) {
+			return 0;
+		}
+		return Bistable.getCrossingOffset(previousSample, sample, 0);
 	}
 
 }
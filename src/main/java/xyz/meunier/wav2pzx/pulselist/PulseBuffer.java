@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2016, Fredrick Meunier
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package xyz.meunier.wav2pzx.pulselist;
+
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+
+/**
+ * A growable window onto a sequence of pulses that is being decoded incrementally. Pulses are addressed by their
+ * index from the start of the tape, and pulses before a point the caller has marked as no longer needed are dropped
+ * when the buffer next grows, so memory use follows the pulses still in use rather than the length of the tape.
+ * <p>
+ * PulseLists returned by {@link #subList(int, int, int)} remain valid after the buffer has dropped their pulses.
+ *
+ * @author Fredrick Meunier
+ */
+public final class PulseBuffer {
+
+    private static final int INITIAL_CAPACITY = 4096;
+
+    private final long resolution;
+
+    // Backing store, the pulse with index base is held at pulses[arrayOffset]
+    private long[] pulses;
+    private int arrayOffset;
+    private int base;
+
+    // The index one past the last pulse added
+    private int end;
+
+    // The index of the earliest pulse that must be kept
+    private int retainFrom;
+
+    // The backing store is shared with a PulseList so must not be written to
+    private boolean shared;
+
+    /**
+     * Construct a new empty PulseBuffer
+     *
+     * @param resolution the resolution of each pulse in T-states (error is up to 2 samples)
+     */
+    public PulseBuffer(long resolution) {
+        this(new long[INITIAL_CAPACITY], 0, 0, false, resolution);
+    }
+
+    private PulseBuffer(long[] pulses, int arrayOffset, int end, boolean shared, long resolution) {
+        this.pulses = pulses;
+        this.arrayOffset = arrayOffset;
+        this.base = 0;
+        this.end = end;
+        this.retainFrom = 0;
+        this.shared = shared;
+        this.resolution = resolution;
+    }
+
+    /**
+     * Construct a PulseBuffer holding the pulses of the supplied PulseList without copying them
+     *
+     * @param pulseList the source pulses
+     * @return the new PulseBuffer
+     * @throws NullPointerException if pulseList is null
+     */
+    public static PulseBuffer of(PulseList pulseList) {
+        checkNotNull(pulseList, "pulseList must not be null");
+        return new PulseBuffer(pulseList.backingArray(), pulseList.backingOffset(), pulseList.size(), true,
+                pulseList.getResolution());
+    }
+
+    /**
+     * Add a pulse with the supplied duration in tstates.
+     *
+     * @param pulse the length of this pulse in 3,500,000 Hz tstates
+     * @throws IllegalArgumentException if pulse is not greater than or equal to 0
+     */
+    public void add(long pulse) {
+        checkArgument(pulse >= 0, "pulse must be greater than or equal to 0 tstates");
+        if (shared || arrayOffset + end - base == pulses.length) {
+            grow();
+        }
+        pulses[arrayOffset + end - base] = pulse;
+        end++;
+    }
+
+    /**
+     * Get the duration of a pulse in the buffer
+     *
+     * @param index the index of the pulse from the start of the tape
+     * @return the length of the pulse in T-states
+     * @throws IndexOutOfBoundsException if the pulse is not held in the buffer
+     */
+    public long get(int index) {
+        if (index < base || index >= end) {
+            throw new IndexOutOfBoundsException("index: " + index + ", available: " + base + "-" + end);
+        }
+        return pulses[arrayOffset + index - base];
+    }
+
+    /**
+     * @return the number of pulses that have been added to the buffer
+     */
+    public int size() {
+        return end;
+    }
+
+    /**
+     * Returns a PulseList of the pulses between fromIndex, inclusive, and toIndex, exclusive.
+     *
+     * @param fromIndex       the index of the first pulse of the new list
+     * @param toIndex         the index after the last pulse of the new list
+     * @param firstPulseLevel the level of the first pulse in the new list
+     * @return the new PulseList
+     * @throws IndexOutOfBoundsException if the pulses are not held in the buffer
+     * @throws IllegalArgumentException  if the range is empty or firstPulseLevel is not 0 or 1
+     */
+    public PulseList subList(int fromIndex, int toIndex, int firstPulseLevel) {
+        checkPositionIndexes(fromIndex - base, toIndex - base, end - base);
+        return new PulseList(pulses, arrayOffset + fromIndex - base, toIndex - fromIndex, firstPulseLevel,
+                resolution);
+    }
+
+    /**
+     * Marks pulses before the supplied index as no longer needed by the caller, they may be dropped from the buffer.
+     *
+     * @param index the index of the earliest pulse that must be kept
+     */
+    public void discardBefore(int index) {
+        retainFrom = Math.max(retainFrom, Math.min(index, end));
+    }
+
+    // Move the retained pulses into a new array, PulseLists made from the old array can continue to use it
+    private void grow() {
+        int from = Math.max(retainFrom, base);
+        int retained = end - from;
+        long[] newPulses = new long[Math.max(INITIAL_CAPACITY, retained * 2)];
+        System.arraycopy(pulses, arrayOffset + from - base, newPulses, 0, retained);
+        pulses = newPulses;
+        arrayOffset = 0;
+        base = from;
+        shared = false;
+    }
+
+    @Override
+    public String toString() {
+        return "PulseBuffer [size()=" + end + ", base=" + base + ", retainFrom=" + retainFrom
+                + ", resolution=" + resolution + "]";
+    }
+}
@@ -25,21 +25,41 @@
  */
 package xyz.meunier.wav2pzx.pulselist;
 
-import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Longs;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.LongStream;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+import static java.util.Collections.unmodifiableList;
 
 /**
  * Representation of an immutable sequence of pulses for a tape.
+ * <p>
+ * The pulses are held in a primitive array which may be shared between a PulseList and any views made from it with
+ * {@link #subList(int, int)}, so slicing a tape into blocks does not copy or box the pulse data.
  *
  * @author Fredrick Meunier
  */
 public final class PulseList {
     /**
-     * The pulses
+     * The pulses, shared with any other views of the same source
+     */
+    private final long[] pulseLengths;
+
+    /**
+     * The index of the first pulse of this list in pulseLengths
+     */
+    private final int offset;
+
+    /**
+     * The number of pulses in this list
      */
-    private final ImmutableList<Long> pulseLengths;
+    private final int size;
 
     /**
      * The level of the first pulse of the sequence
@@ -52,12 +72,99 @@ public final class PulseList {
     private final long resolution;
 
     /**
-     * Get the list of pulses that comprise the tape
+     * The runs of equal pulses in the list, found when first requested
+     */
+    private volatile PulseRuns runs;
+
+    /**
+     * Get the list of pulses that comprise the tape. This is a compatibility view over the underlying pulses, prefer
+     * {@link #get(int)}, {@link #size()} or {@link #stream()} to avoid boxing each pulse.
      *
-     * @return an immutable list of the pulses for the tape
+     * @return an unmodifiable list of the pulses for the tape
      */
-    public ImmutableList<Long> getPulseLengths() {
-        return pulseLengths;
+    public List<Long> getPulseLengths() {
+        return unmodifiableList(Longs.asList(pulseLengths).subList(offset, offset + size));
+    }
+
+    /**
+     * Get the duration of a pulse in the list
+     *
+     * @param index the index of the pulse to return
+     * @return the length of the pulse in T-states
+     * @throws IndexOutOfBoundsException if index is negative or not less than size()
+     */
+    public long get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+        return pulseLengths[offset + index];
+    }
+
+    /**
+     * @return the number of pulses in the list
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return a sequential stream of the pulses in the list
+     */
+    public LongStream stream() {
+        return Arrays.stream(pulseLengths, offset, offset + size);
+    }
+
+    /**
+     * Get the runs of equal pulses in the list. The runs are found on the first call and cached, so later calls are
+     * cheap.
+     *
+     * @return the runs of equal pulses in the list
+     */
+    public PulseRuns getRuns() {
+        PulseRuns result = runs;
+        if (result == null) {
+            // Races are harmless as every thread computes the same runs
+            result = PulseRuns.of(pulseLengths, offset, size);
+            runs = result;
+        }
+        return result;
+    }
+
+    /**
+     * @return a new array holding a copy of the pulses in the list
+     */
+    public long[] toArray() {
+        return Arrays.copyOfRange(pulseLengths, offset, offset + size);
+    }
+
+    /**
+     * Returns a view of the pulses between fromIndex, inclusive, and toIndex, exclusive. The view shares the pulses
+     * of this list and its first pulse level is derived from this list as the level alternates with each pulse.
+     *
+     * @param fromIndex the index of the first pulse of the new list
+     * @param toIndex   the index after the last pulse of the new list
+     * @return the new PulseList
+     * @throws IndexOutOfBoundsException if the indexes are out of range or fromIndex is greater than toIndex
+     * @throws IllegalArgumentException  if the range is empty
+     */
+    public PulseList subList(int fromIndex, int toIndex) {
+        return subList(fromIndex, toIndex, fromIndex % 2 == 0 ? firstPulseLevel : firstPulseLevel ^ 1);
+    }
+
+    /**
+     * Returns a view of the pulses between fromIndex, inclusive, and toIndex, exclusive, with the supplied first pulse
+     * level. The view shares the pulses of this list.
+     *
+     * @param fromIndex       the index of the first pulse of the new list
+     * @param toIndex         the index after the last pulse of the new list
+     * @param firstPulseLevel the level of the first pulse in the new list
+     * @return the new PulseList
+     * @throws IndexOutOfBoundsException if the indexes are out of range or fromIndex is greater than toIndex
+     * @throws IllegalArgumentException  if the range is empty or firstPulseLevel is not 0 or 1
+     */
+    public PulseList subList(int fromIndex, int toIndex, int firstPulseLevel) {
+        checkPositionIndexes(fromIndex, toIndex, size);
+        return new PulseList(pulseLengths, offset + fromIndex, toIndex - fromIndex, firstPulseLevel, resolution);
     }
 
     /**
@@ -84,46 +191,154 @@ public final class PulseList {
      * @param pulseLengths    a non-empty Iterable of pulses for a tape
      * @param firstPulseLevel the level of the first pulse in the list
      * @param resolution      the resolution of each pulse in T-states (error is up to 2 samples)
-     * @throws NullPointerException     if the supplied list is null
+     * @throws NullPointerException     if the supplied list is null or contains a null pulse
      * @throws IllegalArgumentException if the supplied list is empty
      * @throws IllegalArgumentException if firstPulseLevel is not 0 or 1
      */
     public PulseList(Iterable<Long> pulseLengths, int firstPulseLevel, long resolution) {
-        this(ImmutableList.copyOf(pulseLengths), firstPulseLevel, resolution);
+        this(toPrimitiveArray(pulseLengths), firstPulseLevel, resolution);
     }
 
     /**
      * Constructor for a new PulseList
      *
-     * @param pulseLengths    a non-empty ImmutableList of pulses for a tape
+     * @param pulseLengths    a non-empty array of pulses for a tape, the array is copied
      * @param firstPulseLevel the level of the first pulse in the list
      * @param resolution      the resolution of each pulse in T-states (error is up to 2 samples)
-     * @throws NullPointerException     if the supplied list is null
-     * @throws IllegalArgumentException if the supplied list is empty
+     * @throws NullPointerException     if the supplied array is null
+     * @throws IllegalArgumentException if the supplied array is empty
      * @throws IllegalArgumentException if firstPulseLevel is not 0 or 1
      */
-    public PulseList(ImmutableList<Long> pulseLengths, int firstPulseLevel, long resolution) {
+    public PulseList(long[] pulseLengths, int firstPulseLevel, long resolution) {
+        this(checkNotNull(pulseLengths, "pulseLengths must not be null").clone(), 0, pulseLengths.length,
+                firstPulseLevel, resolution);
+    }
+
+    /**
+     * Constructor for a PulseList sharing the supplied array, the caller must not modify the range of the array
+     * covered by this list after construction.
+     *
+     * @param pulseLengths    the backing array of pulses
+     * @param offset          the index of the first pulse of this list in the array
+     * @param size            the number of pulses in this list
+     * @param firstPulseLevel the level of the first pulse in the list
+     * @param resolution      the resolution of each pulse in T-states (error is up to 2 samples)
+     * @throws IllegalArgumentException if size is 0
+     * @throws IllegalArgumentException if firstPulseLevel is not 0 or 1
+     */
+    PulseList(long[] pulseLengths, int offset, int size, int firstPulseLevel, long resolution) {
         checkNotNull(pulseLengths, "pulseLengths must not be null");
-        checkArgument(!pulseLengths.isEmpty(), "pulseLengths cannot be empty");
+        checkArgument(size != 0, "pulseLengths cannot be empty");
         checkArgument(firstPulseLevel == 0 || firstPulseLevel == 1, "firstPulseLevel must be 0 or 1");
+        checkPositionIndexes(offset, offset + size, pulseLengths.length);
         this.pulseLengths = pulseLengths;
+        this.offset = offset;
+        this.size = size;
         this.firstPulseLevel = firstPulseLevel;
         this.resolution = resolution;
     }
 
     /**
-     * Builds a new PulseList made of the catenation of two supplied PulseLists with the same resolution
+     * Builds a new PulseList made of the catenation of two supplied PulseLists with the same resolution, see
+     * {@link #concat(List)}.
+     * <p>
+     * If second starts at the same level as the last pulse of first, its first pulse is added to that last pulse, so
+     * the result has one pulse fewer than the two lists together rather than every pulse of second changing level.
      * @param first the first PulseList
      * @param second the second PulseList
+     * @throws NullPointerException if either list is null
+     * @throws IllegalArgumentException if the lists have different resolutions
      */
     public PulseList(PulseList first, PulseList second) {
-        checkNotNull(first, "first must not be null");
-        checkNotNull(second, "second must not be null");
-        checkArgument(first.getResolution() == second.getResolution());
-        this.pulseLengths = ImmutableList.<Long>builder()
-                .addAll(first.getPulseLengths()).addAll(second.getPulseLengths()).build();
-        this.firstPulseLevel = first.getFirstPulseLevel(); // FIXME: second has opposite level to first last pulse
-        this.resolution = first.getResolution();
+        this(concat(Arrays.asList(checkNotNull(first, "first must not be null"),
+                checkNotNull(second, "second must not be null"))));
+    }
+
+    // Copies the view of another PulseList
+    private PulseList(PulseList other) {
+        this(other.pulseLengths, other.offset, other.size, other.firstPulseLevel, other.resolution);
+    }
+
+    /**
+     * Builds a new PulseList made of the catenation of the supplied PulseLists, which must have the same resolution.
+     * <p>
+     * Each list is expected to start at the opposite level to the last pulse of the list before it. Where a list
+     * starts at the same level instead, the level was held across the join, so its first pulse is added to the last
+     * pulse of the list before it rather than silently inverting the levels of the rest of the pulses.
+     * <p>
+     * Lists that are consecutive views of the same pulses, such as the blocks a tape has been sliced into, are joined
+     * without copying. Otherwise the pulses are copied once into a new array.
+     *
+     * @param lists the non-empty list of PulseLists to join
+     * @return the joined PulseList
+     * @throws NullPointerException if lists is null or contains null
+     * @throws IllegalArgumentException if lists is empty or the lists have different resolutions
+     */
+    public static PulseList concat(List<PulseList> lists) {
+        checkNotNull(lists, "lists must not be null");
+        checkArgument(!lists.isEmpty(), "lists must not be empty");
+        PulseList first = checkNotNull(lists.get(0), "lists must not contain null");
+        if (lists.size() == 1) return first;
+
+        boolean isView = true;
+        int totalSize = 0;
+        PulseList previous = null;
+        for (PulseList list : lists) {
+            checkNotNull(list, "lists must not contain null");
+            checkArgument(list.resolution == first.resolution, "lists must have the same resolution");
+            if (previous != null) {
+                isView &= list.pulseLengths == previous.pulseLengths &&
+                        list.offset == previous.offset + previous.size &&
+                        continuesLevel(previous, list);
+            }
+            totalSize += list.size;
+            previous = list;
+        }
+
+        if (isView) {
+            return new PulseList(first.pulseLengths, first.offset, totalSize, first.firstPulseLevel, first.resolution);
+        }
+
+        long[] joined = new long[totalSize];
+        int size = 0;
+        previous = null;
+        for (PulseList list : lists) {
+            int from = 0;
+            if (previous != null && !continuesLevel(previous, list)) {
+                joined[size - 1] += list.pulseLengths[list.offset];
+                from = 1;
+            }
+            System.arraycopy(list.pulseLengths, list.offset + from, joined, size, list.size - from);
+            size += list.size - from;
+            previous = list;
+        }
+        return new PulseList(joined, 0, size, first.firstPulseLevel, first.resolution);
+    }
+
+    // Returns true if next starts at the opposite level to the last pulse of previous
+    private static boolean continuesLevel(PulseList previous, PulseList next) {
+        int lastPulseLevel = previous.firstPulseLevel ^ ((previous.size - 1) & 1);
+        return next.firstPulseLevel != lastPulseLevel;
+    }
+
+    // The array holding the pulses of this list, shared with other lists so it must not be modified
+    long[] backingArray() {
+        return pulseLengths;
+    }
+
+    // The index of the first pulse of this list in backingArray()
+    int backingOffset() {
+        return offset;
+    }
+
+    private static long[] toPrimitiveArray(Iterable<Long> pulseLengths) {
+        checkNotNull(pulseLengths, "pulseLengths must not be null");
+        if (pulseLengths instanceof Collection) {
+            return Longs.toArray((Collection<Long>) pulseLengths);
+        }
+        LongStream.Builder builder = LongStream.builder();
+        pulseLengths.forEach(builder::add);
+        return builder.build().toArray();
     }
 
     @Override
@@ -131,7 +346,11 @@ public final class PulseList {
         final int prime = 31;
         int result = 1;
         result = prime * result + firstPulseLevel;
-        result = prime * result + ((pulseLengths == null) ? 0 : pulseLengths.hashCode());
+        int pulsesHash = 1;
+        for (int i = offset; i < offset + size; i++) {
+            pulsesHash = prime * pulsesHash + Long.hashCode(pulseLengths[i]);
+        }
+        result = prime * result + pulsesHash;
         return result;
     }
 
@@ -146,17 +365,18 @@ public final class PulseList {
         PulseList other = (PulseList) obj;
         if (firstPulseLevel != other.firstPulseLevel)
             return false;
-        if (pulseLengths == null) {
-            if (other.pulseLengths != null)
-                return false;
-        } else if (!pulseLengths.equals(other.pulseLengths))
+        if (size != other.size)
             return false;
+        for (int i = 0; i < size; i++) {
+            if (pulseLengths[offset + i] != other.pulseLengths[other.offset + i])
+                return false;
+        }
         return true;
     }
 
     @Override
     public String toString() {
-        return "PulseList [pulseLengths.size()=" + pulseLengths.size() + ", firstPulseLevel=" + firstPulseLevel
+        return "PulseList [pulseLengths.size()=" + size + ", firstPulseLevel=" + firstPulseLevel
                 + ", resolution=" + resolution + "]";
     }
 
@@ -169,7 +389,7 @@ public final class PulseList {
     public String toPulseListText() {
         StringBuilder builder = new StringBuilder();
         builder.append("PULSES\n");
-        pulseLengths.stream().forEach(p -> builder.append("PULSE ").append(p).append("\n"));
+        stream().forEach(p -> builder.append("PULSE ").append(p).append("\n"));
         return builder.toString();
     }
 
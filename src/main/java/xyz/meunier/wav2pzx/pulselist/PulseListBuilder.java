@@ -26,7 +26,7 @@
 
 package xyz.meunier.wav2pzx.pulselist;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Objects;
 
@@ -38,9 +38,12 @@ import static com.google.common.base.Preconditions.checkState;
  *
  * @author Fredrick Meunier
  */
-public final class PulseListBuilder {
+public final class PulseListBuilder implements PulseSink {
 
-    private final Collection<Long> pulseLengths = new ArrayList<>();
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private long[] pulseLengths = new long[INITIAL_CAPACITY];
+    private int size = 0;
     private int firstPulseLevel = 0;
     private long resolution = 1;
 
@@ -50,6 +53,7 @@ public final class PulseListBuilder {
      * @return this builder instance
      * @throws IllegalArgumentException if firstPulseLevel is not 0 or 1
      */
+    @Override
     public PulseListBuilder withFirstPulseLevel(int firstPulseLevel) {
         checkArgument(firstPulseLevel == 0 || firstPulseLevel == 1, "firstPulseLevel must be 0 or 1");
         this.firstPulseLevel = firstPulseLevel;
@@ -76,8 +80,22 @@ public final class PulseListBuilder {
      */
     public PulseListBuilder withNextPulse(Long pulse) {
         checkArgument(pulse != null, "pulse cannot be null");
+        return withNextPulse(pulse.longValue());
+    }
+
+    /**
+     * Add a pulse with the supplied duration in tstates.
+     * @param pulse the length of this pulse in 3,500,000 Hz tstates
+     * @return this builder instance
+     * @throws IllegalArgumentException if pulse is not greater than or equal to 0
+     */
+    @Override
+    public PulseListBuilder withNextPulse(long pulse) {
         checkArgument(pulse >= 0, "pulse must be greater than or equal to 0 tstates");
-        pulseLengths.add(pulse);
+        if (size == pulseLengths.length) {
+            pulseLengths = Arrays.copyOf(pulseLengths, size + (size >> 1));
+        }
+        pulseLengths[size++] = pulse;
         return this;
     }
 
@@ -99,8 +117,8 @@ public final class PulseListBuilder {
      */
     public PulseList build() {
         // State error, haven't received first pulse so we don't know the first pulse level
-        checkState(!pulseLengths.isEmpty(), "First pulse not yet received");
-        return new PulseList(pulseLengths, firstPulseLevel, resolution);
+        checkState(size != 0, "First pulse not yet received");
+        return new PulseList(Arrays.copyOf(pulseLengths, size), 0, size, firstPulseLevel, resolution);
     }
 
     /**
@@ -121,6 +139,6 @@ public final class PulseListBuilder {
      * @return true if the builder is empty
      */
     public boolean isEmpty() {
-        return pulseLengths.isEmpty();
+        return size == 0;
     }
 }
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2016, Fredrick Meunier
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package xyz.meunier.wav2pzx.pulselist;
+
+import com.google.common.primitives.Longs;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+
+/**
+ * An immutable run length view of a sequence of pulses: each run is a sequence of consecutive pulses of the same
+ * duration, described by the index of its first pulse, the duration and the number of pulses in the run.
+ * <p>
+ * The runs of a {@link PulseList} are found once and cached by {@link PulseList#getRuns()}, so encoding, summarising
+ * and dumping a list of pulses does not have to rescan them.
+ *
+ * @author Fredrick Meunier
+ */
+public final class PulseRuns {
+
+    /**
+     * The runs of an empty sequence of pulses
+     */
+    public static final PulseRuns EMPTY = new PulseRuns(new int[0], new long[0], new int[0]);
+
+    // The index of the first pulse of each run
+    private final int[] starts;
+
+    // The duration of the pulses in each run
+    private final long[] durations;
+
+    // The number of pulses in each run
+    private final int[] counts;
+
+    private PulseRuns(int[] starts, long[] durations, int[] counts) {
+        this.starts = starts;
+        this.durations = durations;
+        this.counts = counts;
+    }
+
+    /**
+     * Find the runs of equal pulses in the supplied list
+     *
+     * @param pulses the pulses to examine
+     * @return the runs in the list
+     * @throws NullPointerException if pulses is null or contains a null pulse
+     */
+    public static PulseRuns of(List<Long> pulses) {
+        checkNotNull(pulses, "pulses must not be null");
+        long[] array = Longs.toArray(pulses);
+        return of(array, 0, array.length);
+    }
+
+    /**
+     * Find the runs of equal pulses in a range of an array
+     *
+     * @param pulses the array holding the pulses
+     * @param offset the index of the first pulse to examine
+     * @param length the number of pulses to examine
+     * @return the runs in the range, the start of each run is relative to offset
+     * @throws NullPointerException      if pulses is null
+     * @throws IndexOutOfBoundsException if the range is not within the array
+     */
+    static PulseRuns of(long[] pulses, int offset, int length) {
+        checkNotNull(pulses, "pulses must not be null");
+        checkPositionIndexes(offset, offset + length, pulses.length);
+        if (length == 0) {
+            return EMPTY;
+        }
+
+        int end = offset + length;
+        int numRuns = 1;
+        for (int i = offset + 1; i < end; i++) {
+            if (pulses[i] != pulses[i - 1]) {
+                numRuns++;
+            }
+        }
+
+        int[] starts = new int[numRuns];
+        long[] durations = new long[numRuns];
+        int[] counts = new int[numRuns];
+        int run = 0;
+        int start = offset;
+        for (int i = offset + 1; i <= end; i++) {
+            if (i == end || pulses[i] != pulses[start]) {
+                starts[run] = start - offset;
+                durations[run] = pulses[start];
+                counts[run] = i - start;
+                run++;
+                start = i;
+            }
+        }
+
+        return new PulseRuns(starts, durations, counts);
+    }
+
+    /**
+     * @return the number of runs
+     */
+    public int size() {
+        return durations.length;
+    }
+
+    /**
+     * @param run the index of the run
+     * @return the index of the first pulse of the run in the sequence of pulses
+     * @throws IndexOutOfBoundsException if run is not a valid run index
+     */
+    public int getStart(int run) {
+        checkElementIndex(run, size());
+        return starts[run];
+    }
+
+    /**
+     * @param run the index of the run
+     * @return the duration of each pulse in the run in T-states
+     * @throws IndexOutOfBoundsException if run is not a valid run index
+     */
+    public long getDuration(int run) {
+        checkElementIndex(run, size());
+        return durations[run];
+    }
+
+    /**
+     * @param run the index of the run
+     * @return the number of pulses in the run
+     * @throws IndexOutOfBoundsException if run is not a valid run index
+     */
+    public int getCount(int run) {
+        checkElementIndex(run, size());
+        return counts[run];
+    }
+
+    /**
+     * @return the total duration of all the pulses in T-states
+     */
+    public long getTotalDuration() {
+        long total = 0;
+        for (int i = 0; i < durations.length; i++) {
+            total += durations[i] * counts[i];
+        }
+        return total;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null || getClass() != obj.getClass())
+            return false;
+        PulseRuns other = (PulseRuns) obj;
+        return Arrays.equals(durations, other.durations) && Arrays.equals(counts, other.counts);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(durations) + Arrays.hashCode(counts);
+    }
+
+    @Override
+    public String toString() {
+        return "PulseRuns [size()=" + size() + "]";
+    }
+}
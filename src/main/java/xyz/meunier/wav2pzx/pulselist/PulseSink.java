@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2016, Fredrick Meunier
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package xyz.meunier.wav2pzx.pulselist;
+
+/**
+ * A destination for a sequence of pulses as they are decoded from a tape source. The first pulse level is supplied
+ * before any pulses are added.
+ *
+ * @author Fredrick Meunier
+ */
+public interface PulseSink {
+
+    /**
+     * Set the first pulse signal level
+     * @param firstPulseLevel the first pulse level of the tape, needs to be 0 or 1
+     * @return this sink instance
+     * @throws IllegalArgumentException if firstPulseLevel is not 0 or 1
+     */
+    PulseSink withFirstPulseLevel(int firstPulseLevel);
+
+    /**
+     * Add a pulse with the supplied duration in tstates.
+     * @param pulse the length of this pulse in 3,500,000 Hz tstates
+     * @return this sink instance
+     * @throws IllegalArgumentException if pulse is not greater than or equal to 0
+     */
+    PulseSink withNextPulse(long pulse);
+}
@@ -147,6 +147,13 @@ public interface LoaderContext {
      */
     void completeDataBlock();
 
+    /**
+     * A data block following a header is complete once it holds the number of bytes given in the header and its
+     * checksum is good, at which point the ROM stops loading without looking for further bits.
+     * @return true if the data block being loaded is the complete block described by the preceding header
+     */
+    boolean isDataBlockComplete();
+
     /**
      * All the required components of a pulse block have been processed, so complete
      * the block and add the completed block to the tape in progress. 
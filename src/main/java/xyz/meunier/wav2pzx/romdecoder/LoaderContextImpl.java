@@ -25,9 +25,6 @@
  */
 package xyz.meunier.wav2pzx.romdecoder;
 
-import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Iterators;
-import com.google.common.collect.PeekingIterator;
 import xyz.meunier.wav2pzx.blocks.*;
 import xyz.meunier.wav2pzx.databuilder.DataBuilder;
 import xyz.meunier.wav2pzx.pulselist.PulseList;
@@ -35,6 +32,7 @@ import xyz.meunier.wav2pzx.pulselist.PulseList;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.LongSummaryStatistics;
+import java.util.NoSuchElementException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -76,8 +74,11 @@ public final class LoaderContextImpl implements LoaderContext {
     // Length of the SYNC2 pulse found on the tape
     private long sync2Length;
     
-    // An iterator over the PulseList, allows peeking for a 1 pulse lookahead
-    private final PeekingIterator<Long> pulseIterator;
+    // The source pulses for the tape being processed
+    private final PulseList sourcePulses;
+
+    // The index of the next pulse to be processed in sourcePulses, allows peeking for a 1 pulse lookahead
+    private int nextPulseIndex;
     
     // The length of the current pulse being processed
     private long currentPulse;
@@ -92,6 +93,10 @@ public final class LoaderContextImpl implements LoaderContext {
     // The resolution of the underlying source in units of the target clock rate
 	private final long resolution;
 
+    // The number of bytes including the flag and checksum of the data block described by the last header block found,
+    // -1 if the last data block found was not a good header
+    private int expectedDataLength = -1;
+
     /**
      * Builder method to construct a series of PZXBlocks that represents the data
      * in the supplied PulseList.
@@ -136,7 +141,8 @@ public final class LoaderContextImpl implements LoaderContext {
     LoaderContextImpl(PulseList pulseList) {
         checkNotNull(pulseList, "pulseList cannot be null");
         this.currentLevel = pulseList.getFirstPulseLevel() == 0 ? 1 : 0; // will be inverted when first pulse is retrieved
-        this.pulseIterator = Iterators.peekingIterator(pulseList.getPulseLengths().iterator());
+        this.sourcePulses = pulseList;
+        this.nextPulseIndex = 0;
         this.resolution = pulseList.getResolution();
         loaderResult.add(new PZXHeaderBlock());
         resetBlock();
@@ -222,12 +228,14 @@ public final class LoaderContextImpl implements LoaderContext {
 
     @Override
     public void completeDataBlock() {
+        // A length expected from a header only applies to the block following it, whether or not that is accepted
+        expectedDataLength = -1;
+
         if(pulseLengths.isEmpty()) {
             return;
         }
 
-        ImmutableList<Byte> data = dataBuilder.getData();
-        int numBitsInLastByte = dataBuilder.getNumBitsInCurrentByte();
+        byte[] data = dataBuilder.takeData();
 
         LongSummaryStatistics zeroStats = getSummaryStats(zeroPulses);
 		Logger.getLogger(LoaderContextImpl.class.getName()).log(Level.INFO, getSummaryText("zero", ZERO, zeroStats));
@@ -237,7 +245,7 @@ public final class LoaderContextImpl implements LoaderContext {
 		// TODO: use average ZERO pulse length unless idealised, actually - only create data block if average zero pulse
 		// credibly resembles the standard zero pulse, the recognition routines seem to be close to handling standard
 		// speed loaders where the standard routines just have shorter timing constants than the standard ROM routines
-        if(data.isEmpty() ||
+        if(data.length == 0 ||
         	(!PulseUtils.equalWithinResolution(ZERO, zeroStats.getAverage(), resolution) && zeroStats.getCount() != 0) ||
         
         // TODO: use average ONE pulse length unless idealised, actually - only create data block if average one pulse
@@ -250,8 +258,12 @@ public final class LoaderContextImpl implements LoaderContext {
             return;
 		}
 
+        // The header fields were tracked as the data was decoded, so remember the length of the block to come
+        expectedDataLength = dataBuilder.isHeader() && dataBuilder.isChecksumValid() ?
+                dataBuilder.getHeaderDataLength() + 2 : -1;
+
 		PZXDataBlock newBlock = 
-                new PZXDataBlock(getPulseListForCurrentPulses(), numBitsInLastByte, data);
+                new PZXDataBlock(getPulseListForCurrentPulses(), dataBuilder);
         
 		Logger.getLogger(LoaderContextImpl.class.getName()).log(Level.INFO, newBlock.getSummary());
         loaderResult.add(newBlock);
@@ -259,6 +271,15 @@ public final class LoaderContextImpl implements LoaderContext {
         resetBlock();
     }
 
+    @Override
+    public boolean isDataBlockComplete() {
+        return expectedDataLength > 0 &&
+                dataBuilder.getNumBytes() == expectedDataLength &&
+                dataBuilder.getNumBitsInCurrentByte() == 8 &&
+                dataBuilder.getFlag() != 0 &&
+                dataBuilder.isChecksumValid();
+    }
+
 	private PulseList getPulseListForCurrentPulses() {
 		return new PulseList(pulseLengths, firstPulseLevel, resolution);
 	}
@@ -357,12 +378,13 @@ public final class LoaderContextImpl implements LoaderContext {
 
     @Override
     public boolean hasNextPulse() {
-        return this.pulseIterator.hasNext();
+        return this.nextPulseIndex < this.sourcePulses.size();
     }
 
     @Override
     public Long peekNextPulse() {
-        return this.pulseIterator.peek();
+        checkNextPulse();
+        return this.sourcePulses.get(this.nextPulseIndex);
     }
 
     @Override
@@ -377,11 +399,18 @@ public final class LoaderContextImpl implements LoaderContext {
 
     @Override
     public long getNextPulse() {
-        this.currentPulse = this.pulseIterator.next();
+        checkNextPulse();
+        this.currentPulse = this.sourcePulses.get(this.nextPulseIndex++);
         this.currentLevel = this.currentLevel == 0 ? 1 : 0;
         return this.currentPulse;
     }
 
+    private void checkNextPulse() {
+        if(!hasNextPulse()) {
+            throw new NoSuchElementException("No more pulses in the source tape");
+        }
+    }
+
     /**
      * Get a copy of the current list of identified PZXBlocks 
      * @return the current list of identified PZXBlocks
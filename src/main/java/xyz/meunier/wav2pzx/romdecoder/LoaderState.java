@@ -188,7 +188,8 @@ enum LoaderState {
             // If there is no next pulse, check if this pulse is a tail pulse
             // and add it to this block, if not close this block and go to INITIAL
             // state
-            if( !context.hasNextPulse() ) {
+            // Also stop once the block described by the preceding header has been loaded with a good checksum
+            if( !context.hasNextPulse() || context.isDataBlockComplete() ) {
                 return handleOptionalTailPulse(context);
             }
             
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2016, Fredrick Meunier
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package xyz.meunier.wav2pzx;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.number.IsCloseTo.closeTo;
+import static org.junit.Assert.assertThat;
+
+public class BatchConverterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path root;
+
+    @Before
+    public void setUp() throws IOException {
+        root = folder.getRoot().toPath();
+        folder.newFile("b.wav");
+        folder.newFile("a.txt");
+        folder.newFile("c.pzx");
+        folder.newFolder("sub");
+        folder.newFile("sub" + File.separator + "d.wav");
+    }
+
+    @Test
+    public void findsTapeFilesInDirectory() throws IOException {
+        List<Path> tapeFiles = BatchConverter.findTapeFiles(root.toString(), this::isTapeFile);
+
+        assertThat(tapeFiles, is(asList(root.resolve("a.txt"), root.resolve("b.wav"))));
+    }
+
+    @Test
+    public void findsTapeFilesMatchingGlob() throws IOException {
+        List<Path> tapeFiles = BatchConverter.findTapeFiles(root + "/*.wav", this::isTapeFile);
+
+        assertThat(tapeFiles, is(asList(root.resolve("b.wav"))));
+    }
+
+    @Test
+    public void findsTapeFilesMatchingGlobInSubdirectories() throws IOException {
+        List<Path> tapeFiles = BatchConverter.findTapeFiles(root + "/**.wav", this::isTapeFile);
+
+        assertThat(tapeFiles, is(asList(root.resolve("b.wav"), root.resolve("sub").resolve("d.wav"))));
+    }
+
+    @Test
+    public void pzxFileReplacesExtension() {
+        Path tapeFile = Paths.get("tapes", "game.wav");
+
+        assertThat(BatchConverter.getPzxFile(tapeFile, null), is(Paths.get("tapes", "game.pzx")));
+        assertThat(BatchConverter.getPzxFile(tapeFile, Paths.get("out")), is(Paths.get("out", "game.pzx")));
+    }
+
+    @Test
+    public void failedFilesDoNotStopTheBatch() {
+        List<Path> tapeFiles = asList(Paths.get("one.wav"), Paths.get("bad.wav"), Paths.get("two.wav"));
+        BatchConverter instance = new BatchConverter(2, (tapeFile, pzxFile) -> {
+            if (tapeFile.toString().equals("bad.wav")) {
+                throw new IOException("bad file");
+            }
+            return 10.0;
+        });
+
+        BatchConverter.Summary summary = instance.convert(tapeFiles, null);
+
+        assertThat(summary.getNumFiles(), is(3));
+        assertThat(summary.getNumConverted(), is(2));
+        assertThat(summary.getTapeSeconds(), is(closeTo(20.0, 1e-9)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void needsAtLeastOneThread() {
+        new BatchConverter(0, (tapeFile, pzxFile) -> 0);
+    }
+
+    private boolean isTapeFile(String fileName) {
+        return fileName.endsWith(".wav") || fileName.endsWith(".txt");
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2016, Fredrick Meunier
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package xyz.meunier.wav2pzx;
+
+import com.google.common.primitives.Bytes;
+import org.junit.Test;
+import xyz.meunier.wav2pzx.blocks.PZXBlock;
+import xyz.meunier.wav2pzx.blocks.PZXDataBlock;
+import xyz.meunier.wav2pzx.blocks.PZXPulseBlock;
+import xyz.meunier.wav2pzx.generaldecoder.PZXBuilder;
+import xyz.meunier.wav2pzx.generator.TapeGenerator;
+import xyz.meunier.wav2pzx.pulselist.PulseList;
+import xyz.meunier.wav2pzx.pulselist.PulseListBuilder;
+
+import java.util.Collections;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class MultiTriggerDecoderTest {
+
+    private static final PZXBlock PULSES = new PZXPulseBlock(pulses(1000));
+
+    @Test
+    public void failedBlockIsReplacedByPassingBlockAtSamePoint() {
+        PZXBlock failed = dataBlock(2000, false);
+        PZXBlock passed = dataBlock(2010, true);
+        PZXBlock last = dataBlock(2000, true);
+
+        List<PZXBlock> result = MultiTriggerDecoder.selectBlocks(asList(
+                asList(PULSES, failed, PULSES, last),
+                asList(new PZXPulseBlock(pulses(990)), passed, PULSES, dataBlock(2000, false))));
+
+        assertThat(result, is(asList(PULSES, passed, PULSES, last)));
+    }
+
+    @Test
+    public void passingBlockElsewhereIsNotUsed() {
+        PZXBlock failed = dataBlock(2000, false);
+
+        List<PZXBlock> result = MultiTriggerDecoder.selectBlocks(asList(
+                asList(PULSES, failed, PULSES, dataBlock(2000, true)),
+                asList(PULSES, PULSES, PULSES, dataBlock(2000, true))));
+
+        assertThat(result.get(1), is(sameInstance(failed)));
+    }
+
+    @Test
+    public void tapeWithMostPassingChecksumsIsUsed() {
+        List<PZXBlock> first = asList(PULSES, dataBlock(2000, false), dataBlock(2000, true));
+        List<PZXBlock> second = asList(PULSES, PULSES, dataBlock(2000, true), dataBlock(2000, true));
+
+        List<PZXBlock> result = MultiTriggerDecoder.selectBlocks(asList(first, second));
+
+        assertThat(result, is(second));
+    }
+
+    @Test
+    public void identicalDecodesMatchSingleDecode() {
+        PulseListBuilder builder = new PulseListBuilder();
+        new TapeGenerator().withDataLength(256).withJitter(0.02).generate(builder);
+        PulseList pulseList = builder.build();
+
+        List<PZXBlock> result = MultiTriggerDecoder.decode(asList(pulseList, pulseList, pulseList));
+
+        assertThat(result, is(PZXBuilder.buildPZXTapeList(pulseList)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decodesAreRequired() {
+        MultiTriggerDecoder.selectBlocks(Collections.emptyList());
+    }
+
+    private static PulseList pulses(long length) {
+        return new PulseList(asList(length), 0, 1);
+    }
+
+    private static PZXBlock dataBlock(long length, boolean checksumPasses) {
+        byte[] data = {(byte) 0xff, 0x12, 0x34, (byte) (0xff ^ 0x12 ^ 0x34 ^ (checksumPasses ? 0 : 1))};
+        return new PZXDataBlock(pulses(length), 8, Bytes.asList(data));
+    }
+}
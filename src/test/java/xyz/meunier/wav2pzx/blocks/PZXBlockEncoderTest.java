@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2016, Fredrick Meunier
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package xyz.meunier.wav2pzx.blocks;
+
+import com.google.common.primitives.Bytes;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Fredrick Meunier
+ */
+public class PZXBlockEncoderTest {
+
+    private static final String HEADER_TAG = "TEST";
+
+    private final PZXBlockEncoder encoder = new PZXBlockEncoder(4, true);
+
+    /**
+     * Test of startBlock and endBlock methods, of class PZXBlockEncoder.
+     */
+    @Test
+    public void testSizeIsBackpatched() {
+        encoder.startBlock(HEADER_TAG).putUnsignedByte(0x20).putUnsignedByte(0x30).endBlock();
+
+        byte[] expResult = {(byte)84, (byte)69, (byte)83, (byte)84, (byte)0x02, (byte)0x00, (byte)0x00, (byte)0x00, (byte)0x20, (byte)0x30};
+        assertArrayEquals(expResult, encoder.toByteArray());
+    }
+
+    /**
+     * Test of putBlock method, of class PZXBlockEncoder.
+     */
+    @Test
+    public void testPutBlockMatchesAddPZXBlockHeader() {
+        byte[] payload = new byte[1000];
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] = (byte) i;
+        }
+
+        encoder.putBlock(HEADER_TAG, payload).putBlock(HEADER_TAG, payload);
+
+        byte[] block = PZXEncodeUtils.addPZXBlockHeader(HEADER_TAG, payload);
+        assertArrayEquals(Bytes.concat(block, block), encoder.toByteArray());
+    }
+
+    /**
+     * Test of putPulses method, of class PZXBlockEncoder.
+     */
+    @Test
+    public void testPutPulsesMatchesAddBytesFor() {
+        long[][] runs = {{0, 1}, {0x7000L, 1}, {0x8100L, 1}, {0x7000L, 2}, {0x8100L, 2}, {0x81000L, 2},
+                {0x7fffffffL * 2, 1}, {0x7fffffffL * 2 + 1L, 1}, {0x7fffffffL * 2 + 0x8100L, 1},
+                {0x7fffffffL * 2, 2}, {0x7fffffffL * 2 + 1L, 2}, {855, 0x7fff}};
+        for (long[] run : runs) {
+            List<Byte> output = new ArrayList<>();
+            PZXEncodeUtils.addBytesFor(run[0], run[1], output);
+
+            encoder.clear().putPulses(run[0], run[1]);
+
+            assertArrayEquals(Bytes.toArray(output), encoder.toByteArray());
+        }
+    }
+
+    /**
+     * Test of putPulses method, of class PZXBlockEncoder.
+     */
+    @Test
+    public void testLongRunsAreSplit() {
+        encoder.putPulses(0x100, 0x7fff + 2);
+
+        byte[] expResult = {(byte)0xff, (byte)0xff, (byte)0x00, (byte)0x01, (byte)0x02, (byte)0x80, (byte)0x00, (byte)0x01};
+        assertArrayEquals(expResult, encoder.toByteArray());
+    }
+
+    /**
+     * Test of putPulses method, of class PZXBlockEncoder.
+     */
+    @Test
+    public void testNoPulsesForZeroCount() {
+        encoder.putPulses(0x100, 0);
+
+        assertThat(encoder.size(), is(0));
+    }
+
+    /**
+     * Test of writeTo method, of class PZXBlockEncoder.
+     */
+    @Test
+    public void testWriteToClearsEncoder() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        encoder.putBlock(HEADER_TAG, new byte[]{1, 2, 3});
+
+        encoder.writeTo(Channels.newChannel(out));
+        encoder.putBlock(HEADER_TAG, new byte[]{4});
+        encoder.writeTo(Channels.newChannel(out));
+
+        assertArrayEquals(Bytes.concat(PZXEncodeUtils.addPZXBlockHeader(HEADER_TAG, new byte[]{1, 2, 3}),
+                PZXEncodeUtils.addPZXBlockHeader(HEADER_TAG, new byte[]{4})), out.toByteArray());
+        assertThat(encoder.size(), is(0));
+    }
+
+    /**
+     * Test of writeTo method with a payload, of class PZXBlockEncoder.
+     */
+    @Test
+    public void testWriteToWithPayload() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] payload = {1, 2, 3};
+        encoder.putBlockHeader(HEADER_TAG, payload.length);
+
+        encoder.writeTo(Channels.newChannel(out), payload);
+
+        assertArrayEquals(PZXEncodeUtils.addPZXBlockHeader(HEADER_TAG, payload), out.toByteArray());
+        assertThat(encoder.size(), is(0));
+    }
+
+    /**
+     * Test of writeTo method with a payload, of class PZXBlockEncoder, using a gathering channel.
+     */
+    @Test
+    public void testWriteToWithPayloadGathers() throws IOException {
+        Path file = Files.createTempFile("encoder", ".pzx");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            encoder.putBlockHeader(HEADER_TAG, 0);
+            encoder.writeTo(channel, new byte[0]);
+            encoder.putBlockHeader(HEADER_TAG, 2);
+            encoder.writeTo(channel, new byte[]{4, 5});
+        }
+
+        try {
+            assertArrayEquals(Bytes.concat(PZXEncodeUtils.addPZXBlockHeader(HEADER_TAG, new byte[0]),
+                    PZXEncodeUtils.addPZXBlockHeader(HEADER_TAG, new byte[]{4, 5})), Files.readAllBytes(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Test of getPulsesSize method, of class PZXBlockEncoder.
+     */
+    @Test
+    public void testGetPulsesSizeMatchesPutPulses() {
+        long[][] runs = {{0, 1}, {0x7000L, 1}, {0x8100L, 1}, {0x7000L, 2}, {0x8100L, 2}, {0x7fffffffL * 2 + 1L, 2},
+                {855, 0x7fff + 2}, {855, 0}};
+        for (long[] run : runs) {
+            encoder.clear().putPulses(run[0], run[1]);
+
+            assertThat(PZXBlockEncoder.getPulsesSize(run[0], run[1]), is((long) encoder.size()));
+        }
+    }
+
+    /**
+     * Test of endBlock method, of class PZXBlockEncoder.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testEndBlockNeedsStartBlock() {
+        encoder.endBlock();
+    }
+
+    /**
+     * Test of toByteArray method, of class PZXBlockEncoder.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testUnfinishedBlockIsNotReturned() {
+        encoder.startBlock(HEADER_TAG).toByteArray();
+    }
+}
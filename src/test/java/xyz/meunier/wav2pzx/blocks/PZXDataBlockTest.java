@@ -26,8 +26,12 @@
 package xyz.meunier.wav2pzx.blocks;
 
 import org.junit.Test;
+import xyz.meunier.wav2pzx.databuilder.DataBuilder;
 import xyz.meunier.wav2pzx.pulselist.PulseList;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -57,6 +61,71 @@ public class PZXDataBlockTest {
                         (byte)0x02, (byte)0x80, /* Repeat count 2 */
                         (byte)0xc8, (byte)0x00};
 
+    /**
+     * Test of the byte[] constructor, of class PZXDataBlock.
+     */
+    @Test
+    public void testByteArrayConstructorMatchesCollectionConstructor() {
+        PZXDataBlock instance = new PZXDataBlock(pulseList, numBitsInLastByte, toArray(data));
+        assertThat(instance, is(new PZXDataBlock(pulseList, numBitsInLastByte, data)));
+        assertArrayEquals(toArray(data), instance.getData());
+    }
+
+    /**
+     * Test of the byte[] constructor, of class PZXDataBlock.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testByteArrayConstructorRejectsEmptyData() {
+        new PZXDataBlock(pulseList, numBitsInLastByte, new byte[0]);
+    }
+
+    /**
+     * Test of the DataBuilder constructor, of class PZXDataBlock.
+     */
+    @Test
+    public void testDataBuilderConstructorMatchesByteArrayConstructor() {
+        DataBuilder dataBuilder = new DataBuilder();
+        dataBuilder.addBits(0x102030L, 24);
+        dataBuilder.addBits(0x5, 3);
+        PZXDataBlock instance = new PZXDataBlock(pulseList, dataBuilder);
+        assertThat(instance, is(new PZXDataBlock(pulseList, 3, new byte[]{0x10, 0x20, 0x30, 0x05})));
+        assertThat(instance.checkChecksum(), is(false));
+
+        dataBuilder = new DataBuilder();
+        dataBuilder.addBits(0x102030L, 24);
+        instance = new PZXDataBlock(pulseList, dataBuilder);
+        assertThat(instance, is(new PZXDataBlock(pulseList, numBitsInLastByte, data)));
+        assertThat(instance.checkChecksum(), is(true));
+    }
+
+    /**
+     * Test of the DataBuilder constructor, of class PZXDataBlock.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testDataBuilderConstructorRejectsEmptyData() {
+        new PZXDataBlock(pulseList, new DataBuilder());
+    }
+
+    /**
+     * Test of getEncodedSize method, of class PZXDataBlock.
+     */
+    @Test
+    public void testGetEncodedSize() {
+        PZXDataBlock instance = new PZXDataBlock(pulseList, numBitsInLastByte, data);
+        assertThat(instance.getEncodedSize(), is((long) instance.getPZXBlockDiskRepresentation().length));
+    }
+
+    /**
+     * Test of writeTo method, of class PZXDataBlock.
+     */
+    @Test
+    public void testWriteToMatchesDiskRepresentation() throws IOException {
+        PZXDataBlock instance = new PZXDataBlock(pulseList, numBitsInLastByte, data);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        instance.writeTo(Channels.newChannel(out));
+        assertArrayEquals(instance.getPZXBlockDiskRepresentation(), out.toByteArray());
+    }
+
     /**
      * Test of getPZXBlockDiskRepresentation method, of class PZXDataBlock.
      */
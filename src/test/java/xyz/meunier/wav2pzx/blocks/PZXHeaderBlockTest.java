@@ -65,6 +65,14 @@ public class PZXHeaderBlockTest {
         assertArrayEquals(expResult, result);
     }
 
+    /**
+     * Test of getEncodedSize method, of class PZXHeaderBlock.
+     */
+    @Test
+    public void testGetEncodedSize() {
+        assertThat(instance.getEncodedSize(), equalTo((long) instance.getPZXBlockDiskRepresentation().length));
+    }
+
     /**
      * Test of getSummary method, of class PZXHeaderBlock.
      */
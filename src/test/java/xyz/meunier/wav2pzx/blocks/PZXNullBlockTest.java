@@ -29,6 +29,10 @@ import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -59,6 +63,24 @@ public class PZXNullBlockTest {
         assertArrayEquals(expResult, result);
     }
 
+    /**
+     * Test of getEncodedSize method, of class PZXNullBlock.
+     */
+    @Test
+    public void testGetEncodedSize() {
+        assertThat(instance.getEncodedSize(), is(0L));
+    }
+
+    /**
+     * Test of writeTo method, of class PZXNullBlock.
+     */
+    @Test
+    public void testWriteToWritesNothing() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        instance.writeTo(Channels.newChannel(out));
+        assertThat(out.size(), is(0));
+    }
+
     /**
      * Test of getSummary method, of class PZXNullBlock.
      */
@@ -75,6 +75,17 @@ public class PZXPilotBlockTest {
         assertArrayEquals(expResult, result);
     }
 
+    /**
+     * Test of getEncodedSize method, of class PZXPilotBlock.
+     */
+    @Test
+    public void testGetEncodedSize() {
+        assertThat(instance.getEncodedSize(), is(18L));
+
+        PZXPilotBlock lowBlock = new PZXPilotBlock(new PulseList(this.newPulses, 0, 1));
+        assertThat(lowBlock.getEncodedSize(), is((long) lowBlock.getPZXBlockDiskRepresentation().length));
+    }
+
     /**
      * Test of toString method, of class PZXPilotBlock.
      */
@@ -29,8 +29,14 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import xyz.meunier.wav2pzx.pulselist.PulseList;
+import xyz.meunier.wav2pzx.pulselist.PulseRuns;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
@@ -94,6 +100,60 @@ public class PZXPulseBlockTest {
         assertArrayEquals(expResult, result); 
     }
 
+    /**
+     * Test of getPulseRuns method, of class PZXPulseBlock.
+     */
+    @Test
+    public void testGetPulseRuns() {
+        assertThat(pulseBlock.getPulseRuns(), is(PulseRuns.of(Arrays.asList(200L, 200L, 300L))));
+        assertThat(pulseBlock.getPulseRuns() == PULSES.getRuns(), is(true));
+    }
+
+    /**
+     * Test of getEncodedSize method, of class PZXPulseBlock.
+     */
+    @Test
+    public void testGetEncodedSize() {
+        assertThat(pulseBlock.getEncodedSize(), is(16L));
+    }
+
+    /**
+     * Test of getEncodedSize method, of class PZXPulseBlock, with runs of short, long and very long pulses.
+     */
+    @Test
+    public void testGetEncodedSizeMatchesEncoding() {
+        PulseList pulseList = new PulseList(Arrays.asList(855L, 855L, 855L, 0x9000L, 0x9000L, 0x7fffffffL * 3,
+                0x7fffffffL * 3, 200L, 0x12345678L), 1, 1);
+        assertThat(PZXPulseBlock.getEncodedSize(pulseList),
+                is((long) PZXPulseBlock.getPZXBlockDiskRepresentation(pulseList).length));
+    }
+
+    /**
+     * Test of writeTo method, of class PZXPulseBlock.
+     */
+    @Test
+    public void testWriteToMatchesDiskRepresentation() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        pulseBlock.writeTo(Channels.newChannel(out));
+        assertArrayEquals(pulseBlock.getPZXBlockDiskRepresentation(), out.toByteArray());
+    }
+
+    /**
+     * Test of writeTo method, of class PZXPulseBlock, with a block larger than the write chunk size.
+     */
+    @Test
+    public void testWriteToLargeBlock() throws IOException {
+        List<Long> pulses = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            pulses.add(i % 2 == 0 ? 855L : 0x10000L + i);
+        }
+        PulseList pulseList = new PulseList(pulses, 0, 1);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PZXPulseBlock.writeTo(pulseList, Channels.newChannel(out));
+        assertArrayEquals(PZXPulseBlock.getPZXBlockDiskRepresentation(pulseList), out.toByteArray());
+    }
+
     /**
      * Test of getSummary method, of class PZXPulseBlock.
      */
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2016, Fredrick Meunier
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package xyz.meunier.wav2pzx.blocks;
+
+import org.junit.Test;
+import xyz.meunier.wav2pzx.pulselist.PulseList;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Fredrick Meunier
+ */
+public class PZXTableOfContentsTest {
+
+    private final PZXBlock header = new PZXHeaderBlock();
+    private final PZXBlock pulses = new PZXPulseBlock(new PulseList(Arrays.asList(200L, 200L, 300L), 1, 1));
+    private final PZXBlock nullBlock = new PZXNullBlock();
+    private final PZXTableOfContents instance =
+            new PZXTableOfContents(Arrays.asList(header, nullBlock, pulses));
+
+    /**
+     * Test of getOffset and getSize methods, of class PZXTableOfContents.
+     */
+    @Test
+    public void testOffsetsFollowEncodedSizes() {
+        assertThat(instance.size(), is(3));
+        assertThat(instance.getOffset(0), is(0L));
+        assertThat(instance.getSize(0), is(10L));
+        assertThat(instance.getOffset(1), is(10L));
+        assertThat(instance.getSize(1), is(0L));
+        assertThat(instance.getOffset(2), is(10L));
+        assertThat(instance.getSize(2), is(16L));
+        assertThat(instance.getBlock(2), is(pulses));
+    }
+
+    /**
+     * Test of getTotalSize method, of class PZXTableOfContents.
+     */
+    @Test
+    public void testGetTotalSize() {
+        long diskSize = header.getPZXBlockDiskRepresentation().length + pulses.getPZXBlockDiskRepresentation().length;
+        assertThat(instance.getTotalSize(), is(diskSize));
+        assertThat(new PZXTableOfContents(Collections.emptyList()).getTotalSize(), is(0L));
+    }
+
+    /**
+     * Test of toString method, of class PZXTableOfContents.
+     */
+    @Test
+    public void testToStringSkipsBlocksNotInFile() {
+        assertThat(instance.toString(), is(String.format("PZX file contents: 26 bytes\n" +
+                "%10d %10d PZXHeaderBlock%n%10d %10d PZXPulseBlock%n", 0, 10, 10, 16)));
+    }
+
+    /**
+     * Test of getOffset method, of class PZXTableOfContents.
+     */
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetOffsetChecksIndex() {
+        instance.getOffset(3);
+    }
+}
@@ -102,6 +102,119 @@ public class DataBuilderTest {
         assertThat("State should return to 0", instance.getCurrentByte(), is((byte)0x00));
     }
 
+    @Test
+    public void addBitsAppendsMostSignificantBitFirst() throws Exception {
+        instance.addBits(0x5, 3);
+        instance.addBits(0x1234L, 16);
+        instance.addBits(0, 0);
+
+        assertThat(instance.getNumBitsInCurrentByte(), is(3));
+        assertThat(instance.getCurrentByte(), is((byte) 0x04));
+        // 101 0001 0010 0011 0100 packs as 1010 0010, 0100 0110, 100
+        assertThat(instance.getData(), equalTo(Arrays.asList((byte) 0xa2, (byte) 0x46, (byte) 0x04)));
+    }
+
+    @Test
+    public void addBitsAcceptsAWholeLong() throws Exception {
+        instance.addBits(0x8000000000000001L, 64);
+
+        assertThat(instance.takeData(), is(new byte[]{(byte) 0x80, 0, 0, 0, 0, 0, 0, 0x01}));
+        assertThat(instance.getNumBitsInCurrentByte(), is(8));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void addBitsRejectsTooManyBits() throws Exception {
+        instance.addBits(0, 65);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void addBitsRejectsCompletedBlock() throws Exception {
+        instance.takeData();
+        instance.addBit(1);
+    }
+
+    @Test
+    public void takeDataDoesNotCopyAnExactlySizedBuilder() throws Exception {
+        instance = new DataBuilder(16);
+        instance.addBits(0xffff, 16);
+
+        byte[] data = instance.takeData();
+
+        assertThat(data, is(new byte[]{(byte) 0xff, (byte) 0xff}));
+        assertThat(instance.takeData() == data, is(true));
+    }
+
+    @Test
+    public void dataGrowsBeyondExpectedSize() throws Exception {
+        instance = new DataBuilder(0);
+        addBits(8 * 100 + 1);
+
+        byte[] data = instance.takeData();
+
+        assertThat(data.length, is(101));
+        assertThat(data[99], is((byte) 0xff));
+        assertThat(data[100], is((byte) 0x01));
+        assertThat(instance.getNumBitsInCurrentByte(), is(1));
+    }
+
+    @Test
+    public void checksumIsTrackedAsBytesAreAdded() throws Exception {
+        assertThat(instance.getCalculatedChecksum(), is((byte) 0));
+        assertThat(instance.isChecksumValid(), is(false));
+        assertThat(instance.getFlag(), is(-1));
+
+        instance.addBits(0xff, 8);
+        instance.addBits(0x12, 8);
+        assertThat(instance.getFlag(), is(0xff));
+        assertThat(instance.getCalculatedChecksum(), is((byte) 0xff));
+        assertThat(instance.isChecksumValid(), is(false));
+
+        instance.addBits(0xff ^ 0x12, 8);
+        assertThat(instance.getNumBytes(), is(3));
+        assertThat(instance.getCalculatedChecksum(), is((byte) (0xff ^ 0x12)));
+        assertThat(instance.isChecksumValid(), is(true));
+
+        // A partial last byte only counts once the block is completed
+        instance.addBits(0x1, 4);
+        assertThat(instance.isChecksumValid(), is(true));
+        instance.takeData();
+        assertThat(instance.getNumBytes(), is(4));
+        assertThat(instance.isChecksumValid(), is(false));
+    }
+
+    @Test
+    public void headerFieldsAreAvailableAsSoonAsTheyAreAdded() throws Exception {
+        // CODE header for "test" of 6912 bytes
+        byte[] header = {0x00, 0x03, 't', 'e', 's', 't', ' ', ' ', ' ', ' ', ' ', ' ', 0x00, 0x1b, 0x00, 0x40,
+                0x00, (byte) 0x80, 0x00};
+        byte checksum = 0;
+        for (int i = 0; i < header.length - 1; i++) checksum ^= header[i];
+        header[header.length - 1] = checksum;
+
+        instance.addBits(header[0], 8);
+        assertThat(instance.getHeaderType(), is(-1));
+        instance.addBits(header[1], 8);
+        assertThat(instance.getHeaderType(), is(3));
+        assertThat(instance.getHeaderDataLength(), is(-1));
+        for (int i = 2; i < 14; i++) instance.addBits(header[i], 8);
+        assertThat(instance.getHeaderDataLength(), is(6912));
+        assertThat(instance.isHeader(), is(false));
+        for (int i = 14; i < header.length; i++) instance.addBits(header[i], 8);
+        assertThat(instance.isHeader(), is(true));
+        assertThat(instance.isChecksumValid(), is(true));
+
+        instance.addBits(0, 8);
+        assertThat(instance.isHeader(), is(false));
+        assertThat(instance.getHeaderDataLength(), is(-1));
+    }
+
+    @Test
+    public void dataBlockHasNoHeaderFields() throws Exception {
+        instance.addBits(0xff03L, 16);
+        assertThat(instance.isHeader(), is(false));
+        assertThat(instance.getHeaderType(), is(-1));
+    }
+
     private void addBits(int numBits) {
         for(int i = 0; i < numBits; i++) {
             instance.addBit(1);
@@ -26,7 +26,6 @@
 
 package xyz.meunier.wav2pzx.generaldecoder;
 
-import com.google.common.collect.ImmutableList;
 import org.junit.Test;
 import xyz.meunier.wav2pzx.pulselist.PulseList;
 
@@ -64,14 +63,14 @@ public class HeaderPulseProcessorTest {
 
     @Test
     public void checkProcessPulseBlockReturnsUnknownBlockWithOriginalPulsesForTooManyRanges() {
-        ImmutableList<Long> lengths = twoRangePulses.getPulseLengths();
+        List<Long> lengths = twoRangePulses.getPulseLengths();
         List<BitData> averages = getReplacementBitDataOfRanges(getRanges(lengths), lengths);
         assertThat(processPulseBlock(twoRangePulses), is(new TapeBlock(BlockType.UNKNOWN, averages, twoRangePulses)));
     }
 
     @Test
     public void checkProcessPulseBlockReturnsPilotBlockWithAveragedPulsesForNonPilotPulseList() {
-        ImmutableList<Long> lengths = pilotPulses.getPulseLengths();
+        List<Long> lengths = pilotPulses.getPulseLengths();
         List<BitData> averages = getReplacementBitDataOfRanges(getRanges(lengths), lengths);
         assertThat(processPulseBlock(pilotPulses), is(new TapeBlock(BlockType.PILOT, averages, exactPilots)));
     }
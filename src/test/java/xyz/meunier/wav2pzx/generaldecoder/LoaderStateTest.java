@@ -76,10 +76,22 @@ public class LoaderStateTest {
     }
 
     @Test
-    public void testNextState_From_INITIAL_To_INITIAL() {
-        when(context.isaPilotCandidate()).thenReturn(false);
+    public void testProcess_From_INITIAL_To_FIND_PILOT() {
+        when(context.getPulseClass()).thenReturn(PulseClassifier.SHORT_PILOT_CANDIDATE);
+        when(context.isaPilotCandidate()).thenReturn(true);
+
+        assertThat(INITIAL.process(context), is(FIND_PILOT));
+
+        InOrder inOrder = inOrder(context);
+        inOrder.verify(context).completeUnknownPulseBlock();
+        inOrder.verify(context).addPilotPulse();
+    }
+
+    @Test
+    public void testProcess_From_INITIAL_To_INITIAL() {
+        when(context.getPulseClass()).thenReturn(PulseClassifier.DATA_CANDIDATE);
 
-        assertThat(INITIAL.nextState(context), is(INITIAL));
+        assertThat(INITIAL.process(context), is(INITIAL));
 
         verify(context).addUnclassifiedPulse();
         verify(context, never()).completeUnknownPulseBlock();
@@ -129,6 +141,7 @@ public class LoaderStateTest {
 
     @Test
     public void testNextState_From_FIND_PILOT_END_To_INITIAL() {
+        when(context.getPulseClass()).thenReturn(PulseClassifier.TOO_LONG);
         when(context.isaDataCandidate()).thenReturn(false);
         when(context.isTooLongToBeAPilot()).thenReturn(true);
 
@@ -140,13 +153,25 @@ public class LoaderStateTest {
     }
 
     @Test
-    public void testNextState_From_FIND_PILOT_END_To_FIND_PILOT_END() {
-        when(context.isaDataCandidate()).thenReturn(false);
-        when(context.isTooLongToBeAPilot()).thenReturn(false);
+    public void testProcess_From_FIND_PILOT_END_To_FIND_PILOT_END() {
+        when(context.getPulseClass()).thenReturn(PulseClassifier.LONG_PILOT_CANDIDATE);
 
-        assertThat(FIND_PILOT_END.nextState(context), is(FIND_PILOT_END));
+        assertThat(FIND_PILOT_END.process(context), is(FIND_PILOT_END));
 
         verify(context).addPilotPulse();
+        verify(context, never()).completePilotPulseBlock();
+    }
+
+    @Test
+    public void testProcess_From_FIND_PILOT_END_To_GET_DATA() {
+        when(context.getPulseClass()).thenReturn(PulseClassifier.DATA_CANDIDATE);
+        when(context.isaDataCandidate()).thenReturn(true);
+
+        assertThat(FIND_PILOT_END.process(context), is(GET_DATA));
+
+        InOrder inOrder = inOrder(context);
+        inOrder.verify(context).completePilotPulseBlock();
+        inOrder.verify(context).addUnclassifiedPulse();
     }
 
     @Test
@@ -208,4 +233,28 @@ public class LoaderStateTest {
         verify(context).completeDataBlock();
     }
 
+    // Pulses the transition table adds to the current block never reach nextState
+    @Test
+    public void testProcessAddsPulsesFromTable() {
+        for (LoaderState state : LoaderState.values()) {
+            for (int pulseClass = 0; pulseClass < PulseClassifier.NUM_CLASSES; pulseClass++) {
+                Action action = state.getAction(pulseClass);
+                if (action == Action.DISPATCH) continue;
+
+                context = mock(LoaderContext.class);
+                when(context.getPulseClass()).thenReturn(pulseClass);
+
+                String message = state + " class " + pulseClass;
+                assertThat(message, state.process(context), is(state));
+                if (action == Action.ADD_PILOT) {
+                    verify(context).addPilotPulse();
+                } else {
+                    verify(context).addUnclassifiedPulse();
+                }
+                verify(context).getPulseClass();
+                verifyNoMoreInteractions(context);
+            }
+        }
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2016, Fredrick Meunier
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package xyz.meunier.wav2pzx.generaldecoder;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static xyz.meunier.wav2pzx.generaldecoder.LoaderContext.*;
+import static xyz.meunier.wav2pzx.generaldecoder.PulseClassifier.*;
+
+public class PulseClassifierTest {
+
+    @Test
+    public void shouldClassifyAtEachThreshold() throws Exception {
+        assertThat(classify(0), is(DATA_CANDIDATE));
+        assertThat(classify(MIN_PILOT_LENGTH - 1), is(DATA_CANDIDATE));
+        assertThat(classify(MIN_PILOT_LENGTH), is(SHORT_PILOT_CANDIDATE));
+        assertThat(classify(MAX_TAIL_PULSE), is(SHORT_PILOT_CANDIDATE));
+        assertThat(classify(MAX_TAIL_PULSE + 1), is(LONG_PILOT_CANDIDATE));
+        assertThat(classify(MAX_PILOT_LENGTH), is(LONG_PILOT_CANDIDATE));
+        assertThat(classify(MAX_PILOT_LENGTH + 1), is(TOO_LONG));
+    }
+
+    @Test
+    public void shouldAgreeWithPulseRanges() throws Exception {
+        for (long pulse = 0; pulse < MAX_PILOT_LENGTH * 2; pulse++) {
+            int pulseClass = classify(pulse);
+            assertThat(isaPilotCandidate(pulseClass), is(PILOT_CANDIDATE_RANGE.contains(pulse)));
+            assertThat(isaDataCandidate(pulseClass), is(pulse < MIN_PILOT_LENGTH));
+            assertThat(isTooLongToBeAPilot(pulseClass), is(pulse > MAX_PILOT_LENGTH));
+            assertThat(isaCandidateTailPulse(pulseClass), is(pulse <= MAX_TAIL_PULSE));
+        }
+    }
+}
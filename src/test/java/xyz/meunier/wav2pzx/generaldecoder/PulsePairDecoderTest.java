@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2016, Fredrick Meunier
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package xyz.meunier.wav2pzx.generaldecoder;
+
+import org.junit.Test;
+import xyz.meunier.wav2pzx.pulselist.PulseList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class PulsePairDecoderTest {
+
+    private final List<Long> zero = asList(855L, 855L);
+    private final List<Long> one = asList(1710L, 1710L);
+
+    @Test
+    public void shouldPackBitsMostSignificantFirst() throws Exception {
+        // 0xa5 followed by the 3 bits 101
+        PulsePairDecoder decoder = PulsePairDecoder.decode(getPulses("10100101101"), zero, one);
+
+        assertThat(decoder.getDataBuilder().takeData(), is(new byte[]{(byte) 0xa5, 0x05}));
+        assertThat(decoder.getDataBuilder().getNumBitsInCurrentByte(), is(3));
+        assertThat(decoder.getMismatchedPairs(), is(new int[0]));
+    }
+
+    @Test
+    public void shouldReportFullLastByte() throws Exception {
+        PulsePairDecoder decoder = PulsePairDecoder.decode(getPulses("0000000111111110"), zero, one);
+
+        assertThat(decoder.getDataBuilder().takeData(), is(new byte[]{0x01, (byte) 0xfe}));
+        assertThat(decoder.getDataBuilder().getNumBitsInCurrentByte(), is(8));
+    }
+
+    @Test
+    public void shouldSkipAndReportMismatchedPairs() throws Exception {
+        List<Long> pulses = new ArrayList<>(getPulses("1").getPulseLengths());
+        pulses.addAll(asList(855L, 1710L));
+        pulses.addAll(getPulses("0").getPulseLengths());
+        pulses.addAll(asList(900L, 900L));
+        pulses.addAll(getPulses("1").getPulseLengths());
+
+        PulsePairDecoder decoder = PulsePairDecoder.decode(new PulseList(pulses, 0, 1), zero, one);
+
+        assertThat(decoder.getDataBuilder().takeData(), is(new byte[]{0x05}));
+        assertThat(decoder.getDataBuilder().getNumBitsInCurrentByte(), is(3));
+        assertThat(decoder.getMismatchedPairs(), is(new int[]{2, 6}));
+    }
+
+    @Test
+    public void shouldNotMatchPatternsThatAreNotPairs() throws Exception {
+        PulsePairDecoder decoder = PulsePairDecoder.decode(getPulses("01"), singletonList(855L), one);
+
+        assertThat(decoder.getDataBuilder().takeData(), is(new byte[]{0x01}));
+        assertThat(decoder.getMismatchedPairs(), is(new int[]{0}));
+    }
+
+    private PulseList getPulses(String bits) {
+        List<Long> pulses = new ArrayList<>();
+        for (char bit : bits.toCharArray()) {
+            pulses.addAll(bit == '1' ? one : zero);
+        }
+        return new PulseList(pulses, 0, 1);
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2016, Fredrick Meunier
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package xyz.meunier.wav2pzx.generaldecoder;
+
+import org.junit.Test;
+import xyz.meunier.wav2pzx.blocks.PZXBlock;
+import xyz.meunier.wav2pzx.blocks.PZXHeaderBlock;
+import xyz.meunier.wav2pzx.blocks.PZXPulseBlock;
+import xyz.meunier.wav2pzx.pulselist.PulseList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class PulseQuantizerTest {
+
+    private final PulseList jitteryPulses =
+            new PulseList(asList(2160L, 2175L, 2168L, 2161L, 2176L, 667L, 735L, 850L, 860L, 1700L, 1720L), 1, 1);
+
+    @Test
+    public void shouldReplaceSimilarPulsesWithTheirAverage() throws Exception {
+        PulseList quantized = PulseQuantizer.quantize(jitteryPulses, 20);
+
+        assertThat(quantized.getPulseLengths(),
+                is(asList(2168L, 2168L, 2168L, 2168L, 2168L, 667L, 735L, 855L, 855L, 1710L, 1710L)));
+        assertThat(quantized.getFirstPulseLevel(), is(1));
+        assertThat(quantized.getRuns().size(), is(5));
+    }
+
+    @Test
+    public void shouldNotMovePulsesByMoreThanMaxError() throws Exception {
+        List<Long> pulses = new ArrayList<>();
+        for (long pulse = 1000; pulse <= 2000; pulse += 7) {
+            pulses.add(pulse);
+        }
+        PulseList pulseList = new PulseList(pulses, 0, 1);
+
+        PulseList quantized = PulseQuantizer.quantize(pulseList, 30);
+
+        for (int i = 0; i < pulseList.size(); i++) {
+            assertTrue(Math.abs(quantized.get(i) - pulseList.get(i)) <= 30);
+        }
+        assertTrue(quantized.getRuns().size() < pulseList.getRuns().size());
+    }
+
+    @Test
+    public void shouldSplitGroupsThatBreakTheErrorBound() throws Exception {
+        PulseQuantizer.GroupAverages averages =
+                PulseQuantizer.getGroupAverages(new long[]{100L, 110L, 120L, 130L}, 10);
+
+        assertThat(averages.get(100L), is(110L));
+        assertThat(averages.get(110L), is(110L));
+        assertThat(averages.get(120L), is(110L));
+        assertThat(averages.get(130L), is(130L));
+    }
+
+    @Test
+    public void shouldLeavePulsesOutsideTheGroupsUnchanged() throws Exception {
+        PulseQuantizer.GroupAverages averages =
+                PulseQuantizer.getGroupAverages(new long[]{100L, 105L, 105L, 200L, 300L, 310L}, 10);
+
+        assertThat(averages.get(50L), is(50L));
+        assertThat(averages.get(102L), is(103L));
+        assertThat(averages.get(105L), is(103L));
+        assertThat(averages.get(200L), is(200L));
+        assertThat(averages.get(300L), is(305L));
+        assertThat(averages.get(310L), is(305L));
+        assertThat(averages.get(400L), is(400L));
+    }
+
+    @Test
+    public void shouldLeavePulsesUnchangedWithNoError() throws Exception {
+        assertThat(PulseQuantizer.quantize(jitteryPulses, 0), is(sameInstance(jitteryPulses)));
+    }
+
+    @Test
+    public void shouldQuantizeOnlyPulseBlocks() throws Exception {
+        PZXBlock header = new PZXHeaderBlock();
+        assertThat(PulseQuantizer.quantize(header, 20), is(sameInstance(header)));
+
+        PZXBlock block = PulseQuantizer.quantize(new PZXPulseBlock(jitteryPulses), 20);
+        assertThat(block, is(new PZXPulseBlock(PulseQuantizer.quantize(jitteryPulses, 20))));
+        assertTrue(block.getEncodedSize() < new PZXPulseBlock(jitteryPulses).getEncodedSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectNegativeError() throws Exception {
+        PulseQuantizer.quantize(jitteryPulses, -1);
+    }
+}
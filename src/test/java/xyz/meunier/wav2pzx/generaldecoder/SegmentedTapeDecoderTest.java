@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2016, Fredrick Meunier
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package xyz.meunier.wav2pzx.generaldecoder;
+
+import org.junit.Test;
+import xyz.meunier.wav2pzx.blocks.PZXBlock;
+import xyz.meunier.wav2pzx.generator.LoaderTimings;
+import xyz.meunier.wav2pzx.generator.TapeGenerator;
+import xyz.meunier.wav2pzx.pulselist.PulseList;
+import xyz.meunier.wav2pzx.pulselist.PulseListBuilder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+import static xyz.meunier.wav2pzx.generaldecoder.LoaderContext.*;
+
+public class SegmentedTapeDecoderTest {
+
+    @Test
+    public void shouldCutBeforePilotFollowingALongPulse() throws Exception {
+        PulseListBuilder builder = new PulseListBuilder();
+        addPulses(builder, 100, ZERO);
+        builder.withNextPulse(DATA_TOTAL_MAX + 1);
+        addPulses(builder, MIN_PILOT_COUNT, PILOT_LENGTH);
+        addPulses(builder, 100, ZERO);
+        PulseList pulseList = builder.build();
+
+        assertArrayEquals(new int[]{101}, SegmentedTapeDecoder.findCutPoints(pulseList, 1));
+        assertArrayEquals(new int[]{101}, SegmentedTapeDecoder.findCutPoints(pulseList, 101));
+        assertArrayEquals(new int[0], SegmentedTapeDecoder.findCutPoints(pulseList, 102));
+    }
+
+    @Test
+    public void shouldNotCutWithoutEnoughPilotPulses() throws Exception {
+        PulseListBuilder builder = new PulseListBuilder();
+        addPulses(builder, 100, ZERO);
+        builder.withNextPulse(DATA_TOTAL_MAX + 1);
+        addPulses(builder, MIN_PILOT_COUNT - 1, PILOT_LENGTH);
+        addPulses(builder, 100, ZERO);
+
+        assertArrayEquals(new int[0], SegmentedTapeDecoder.findCutPoints(builder.build(), 1));
+    }
+
+    @Test
+    public void shouldNotCutAfterAPulseThatCouldBePartOfADataBit() throws Exception {
+        PulseListBuilder builder = new PulseListBuilder();
+        addPulses(builder, 100, ZERO);
+        builder.withNextPulse(DATA_TOTAL_MAX);
+        addPulses(builder, MIN_PILOT_COUNT, PILOT_LENGTH);
+
+        assertArrayEquals(new int[0], SegmentedTapeDecoder.findCutPoints(builder.build(), 1));
+    }
+
+    @Test
+    public void shouldMatchSerialDecodeOfGeneratedTape() throws Exception {
+        PulseListBuilder builder = new PulseListBuilder();
+        new TapeGenerator().withTimings(LoaderTimings.TURBO).withDataLength(300).withJitter(0.05)
+                .withLength(Duration.ofSeconds(60)).withSeed(22).generate(builder);
+        PulseList pulseList = builder.build();
+
+        assertThat(SegmentedTapeDecoder.findCutPoints(pulseList, 1).length, is(greaterThan(4)));
+        assertMatchesSerialDecode(pulseList);
+    }
+
+    @Test
+    public void shouldMatchSerialDecodeOfRandomPulses() throws Exception {
+        // Runs of pilot candidates, data candidates and long pulses, so cuts follow blocks in every state
+        int numCutPoints = 0;
+        for (long seed = 0; seed < 20; seed++) {
+            Random random = new Random(seed);
+            PulseListBuilder builder = new PulseListBuilder().withFirstPulseLevel(random.nextInt(2));
+            for (int run = 0; run < 400; run++) {
+                int choice = random.nextInt(3);
+                if (choice == 0) {
+                    builder.withNextPulse(MAX_PILOT_LENGTH + 1 + random.nextInt(2000));
+                } else if (choice == 1) {
+                    addRandomPulses(builder, random, 1 + random.nextInt(200), 300, 1900);
+                } else {
+                    addRandomPulses(builder, random, 20 + random.nextInt(30), MIN_PILOT_LENGTH, MAX_PILOT_LENGTH);
+                }
+            }
+            PulseList pulseList = builder.build();
+            numCutPoints += SegmentedTapeDecoder.findCutPoints(pulseList, 1).length;
+            assertMatchesSerialDecode(pulseList);
+        }
+        assertThat(numCutPoints, is(greaterThan(100)));
+    }
+
+    private static void assertMatchesSerialDecode(PulseList pulseList) {
+        List<TapeBlock> serial = LoaderContextImpl.buildTapeBlockList(pulseList);
+        List<TapeBlock> segmented = SegmentedTapeDecoder.buildTapeBlockList(pulseList, 1);
+        assertThat(segmented, is(serial));
+
+        List<PZXBlock> serialTape = PZXBuilder.buildPZXTapeList(serial);
+        List<PZXBlock> segmentedTape = PZXBuilder.buildPZXTapeList(segmented);
+        assertThat(segmentedTape.size(), is(serialTape.size()));
+        for (int i = 0; i < serialTape.size(); i++) {
+            assertArrayEquals(serialTape.get(i).getPZXBlockDiskRepresentation(),
+                    segmentedTape.get(i).getPZXBlockDiskRepresentation());
+        }
+    }
+
+    private static void addRandomPulses(PulseListBuilder builder, Random random, int count, long min, long max) {
+        for (int i = 0; i < count; i++) {
+            builder.withNextPulse(min + random.nextInt((int) (max - min + 1)));
+        }
+    }
+
+    private static void addPulses(PulseListBuilder builder, int count, long pulse) {
+        for (int i = 0; i < count; i++) {
+            builder.withNextPulse(pulse);
+        }
+    }
+}
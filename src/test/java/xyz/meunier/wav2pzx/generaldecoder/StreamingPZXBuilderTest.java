@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2016, Fredrick Meunier
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package xyz.meunier.wav2pzx.generaldecoder;
+
+import org.junit.Test;
+import xyz.meunier.wav2pzx.blocks.PZXBlock;
+import xyz.meunier.wav2pzx.blocks.PZXDataBlock;
+import xyz.meunier.wav2pzx.blocks.PZXHeaderBlock;
+import xyz.meunier.wav2pzx.pulselist.PulseList;
+import xyz.meunier.wav2pzx.pulselist.PulseListBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class StreamingPZXBuilderTest {
+
+    @Test
+    public void headerBlockIsWrittenFirst() {
+        List<PZXBlock> blocks = new ArrayList<>();
+        new StreamingPZXBuilder(blocks::add);
+
+        assertThat(blocks.size(), is(1));
+        assertThat(blocks.get(0), instanceOf(PZXHeaderBlock.class));
+    }
+
+    @Test
+    public void streamedTapeMatchesBatchConversion() {
+        PulseList pulseList = buildTape();
+
+        List<PZXBlock> blocks = new ArrayList<>();
+        StreamingPZXBuilder instance = new StreamingPZXBuilder(blocks::add);
+        instance.withFirstPulseLevel(pulseList.getFirstPulseLevel());
+        pulseList.stream().forEach(instance::withNextPulse);
+        instance.complete();
+
+        List<PZXBlock> expected = PZXBuilder.buildPZXTapeList(pulseList);
+        assertThat(expected.stream().filter(block -> block instanceof PZXDataBlock).count(), is(2L));
+        assertThat(blocks.size(), is(expected.size()));
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(blocks.get(i).getPZXBlockDiskRepresentation(),
+                    is(expected.get(i).getPZXBlockDiskRepresentation()));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void pulsesNeedFirstPulseLevel() {
+        new StreamingPZXBuilder(block -> {}).withNextPulse(100);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void noPulsesAfterComplete() {
+        StreamingPZXBuilder instance = new StreamingPZXBuilder(block -> {}).withFirstPulseLevel(0);
+        instance.withNextPulse(100);
+        instance.complete();
+        instance.withNextPulse(100);
+    }
+
+    // A ROM style header and data block separated by silence, long enough to cycle the pulse buffer
+    private static PulseList buildTape() {
+        PulseListBuilder builder = new PulseListBuilder().withFirstPulseLevel(0);
+        addNoise(builder);
+        addBlock(builder, 8063, 19);
+        builder.withNextPulse(3500000L);
+        addBlock(builder, 3223, 1000);
+        builder.withNextPulse(3500000L);
+        addNoise(builder);
+        return builder.build();
+    }
+
+    private static void addNoise(PulseListBuilder builder) {
+        for (int i = 0; i < 50; i++) {
+            builder.withNextPulse(100 + (i * 37) % 400);
+        }
+    }
+
+    private static void addBlock(PulseListBuilder builder, int pilotLength, int numBytes) {
+        for (int i = 0; i < pilotLength; i++) {
+            builder.withNextPulse(2168);
+        }
+        builder.withNextPulse(667).withNextPulse(735);
+        for (int i = 0; i < numBytes; i++) {
+            int data = (i * 73) & 0xff;
+            for (int bit = 7; bit >= 0; bit--) {
+                long pulse = (data & (1 << bit)) != 0 ? 1710 : 855;
+                builder.withNextPulse(pulse).withNextPulse(pulse);
+            }
+        }
+        builder.withNextPulse(945);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2016, Fredrick Meunier
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package xyz.meunier.wav2pzx.generaldecoder;
+
+import com.google.common.collect.Range;
+import org.junit.Test;
+import xyz.meunier.wav2pzx.pulselist.PulseList;
+
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static xyz.meunier.wav2pzx.generaldecoder.BlockType.DATA;
+
+public class TapeBlockTest {
+
+    private final List<BitData> bitDataList = asList(
+            new BitData(Range.closed(1400L, 1500L), asList(700L, 750L)),
+            new BitData(Range.closed(3300L, 3500L), asList(1700L, 1700L)));
+
+    private final PulseList sourcePulses = new PulseList(asList(710L, 730L, 1650L, 1720L, 690L, 760L), 1, 79);
+
+    @Test
+    public void shouldSubstituteIdealisedPulsesForEachPair() throws Exception {
+        PulseList pulseList = TapeBlock.substitutePulses(bitDataList, sourcePulses);
+
+        assertThat(pulseList.getPulseLengths(), is(asList(700L, 750L, 1700L, 1700L, 700L, 750L)));
+        assertThat(pulseList.getFirstPulseLevel(), is(1));
+        assertThat(pulseList.getResolution(), is(79L));
+    }
+
+    @Test
+    public void shouldBuildSubstitutedPulsesWhenRequested() throws Exception {
+        TapeBlock block = TapeBlock.withSubstitutedPulses(DATA, bitDataList, sourcePulses);
+
+        assertThat(block.getPulseList(), is(TapeBlock.substitutePulses(bitDataList, sourcePulses)));
+        assertThat(block.getPulseList(), is(sameInstance(block.getPulseList())));
+        assertThat(block, is(TapeBlock.withSubstitutedPulses(DATA, bitDataList, sourcePulses)));
+        assertThat(block.hashCode(), is(TapeBlock.withSubstitutedPulses(DATA, bitDataList, sourcePulses).hashCode()));
+        // Blocks compare their source pulses, not the pulses they would be replaced by
+        assertThat(block, is(not(new TapeBlock(DATA, bitDataList, block.getPulseList()))));
+        assertThat(block.getZeroBit(), is(bitDataList.get(0)));
+        assertThat(block.getOneBit(), is(bitDataList.get(1)));
+    }
+
+    @Test
+    public void shouldMatchOpenAndUnboundedRanges() throws Exception {
+        List<BitData> openRanges = asList(
+                new BitData(Range.open(1400L, 1500L), asList(700L, 750L)),
+                new BitData(Range.atLeast(1500L), asList(1700L, 1700L)));
+
+        PulseList pulseList = TapeBlock.substitutePulses(openRanges, new PulseList(asList(700L, 701L, 750L, 750L), 0, 1));
+
+        assertThat(pulseList.getPulseLengths(), is(asList(700L, 750L, 1700L, 1700L)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectPairOnOpenBound() throws Exception {
+        TapeBlock.substitutePulses(asList(new BitData(Range.open(1400L, 1500L), asList(700L, 750L))),
+                new PulseList(asList(700L, 700L), 0, 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectPairMatchingNoBitData() throws Exception {
+        TapeBlock.substitutePulses(bitDataList, new PulseList(asList(100L, 100L), 0, 1));
+    }
+}
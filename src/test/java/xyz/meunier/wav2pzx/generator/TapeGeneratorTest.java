@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2016, Fredrick Meunier
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package xyz.meunier.wav2pzx.generator;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import xyz.meunier.wav2pzx.blocks.PZXBlock;
+import xyz.meunier.wav2pzx.blocks.PZXDataBlock;
+import xyz.meunier.wav2pzx.generaldecoder.PZXBuilder;
+import xyz.meunier.wav2pzx.input.AudioFileTape;
+import xyz.meunier.wav2pzx.input.TextFileTape;
+import xyz.meunier.wav2pzx.input.triggers.AdaptiveSchmittTrigger;
+import xyz.meunier.wav2pzx.input.triggers.SchmittTrigger;
+import xyz.meunier.wav2pzx.pulselist.PulseList;
+import xyz.meunier.wav2pzx.pulselist.PulseListBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+public class TapeGeneratorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final TapeGenerator generator = new TapeGenerator().withDataLength(256);
+
+    @Test
+    public void generatesAHeaderAndDataBlock() {
+        List<byte[]> blocks = generator.generate(new PulseListBuilder());
+
+        assertThat(blocks.size(), is(2));
+        assertThat(blocks.get(0).length, is(19));
+        assertThat(blocks.get(0)[0], is((byte) 0));
+        assertThat(blocks.get(1).length, is(258));
+        assertThat(blocks.get(1)[0], is((byte) 0xff));
+    }
+
+    @Test
+    public void sameConfigurationGeneratesSameTape() {
+        generator.withJitter(0.05).withSpeedDrift(0.02).withSeed(42);
+
+        PulseList first = build(generator);
+        PulseList second = build(generator);
+
+        assertThat(first, is(second));
+    }
+
+    @Test
+    public void differentSeedsGenerateDifferentTapes() {
+        PulseList first = build(generator.withSeed(1));
+        PulseList second = build(generator.withSeed(2));
+
+        assertThat(first.equals(second), is(false));
+    }
+
+    @Test
+    public void blocksAreRecordedUntilLengthIsReached() {
+        PulseListBuilder builder = new PulseListBuilder();
+        List<byte[]> blocks = generator.withLength(Duration.ofSeconds(30)).generate(builder);
+
+        assertThat(blocks.size(), is(greaterThan(2)));
+        assertThat(builder.build().stream().sum(), is(greaterThanOrEqualTo(30L * 3500000)));
+    }
+
+    @Test
+    public void textTapeDecodesToGroundTruth() throws Exception {
+        Path textFile = folder.getRoot().toPath().resolve("tape.txt");
+        List<byte[]> blocks = generator.withJitter(0.01).writeText(textFile);
+
+        assertDecodesTo(TextFileTape.buildPulseList(textFile.toString()), blocks);
+    }
+
+    @Test
+    public void wavTapeDecodesToGroundTruth() throws Exception {
+        Path wavFile = folder.getRoot().toPath().resolve("tape.wav");
+        List<byte[]> blocks = generator.withNoise(8).withDcOffset(5).writeWav(wavFile);
+
+        ByteArrayOutputStream samples = new ByteArrayOutputStream();
+        generator.writeSamples(samples);
+        assertThat(Files.size(wavFile), is(44L + samples.size()));
+
+        assertDecodesTo(AudioFileTape.buildPulseList(wavFile.toString(), 3500000, new SchmittTrigger()), blocks);
+    }
+
+    @Test
+    public void quietOffsetWavTapeDecodesWithAdaptiveTrigger() throws Exception {
+        Path wavFile = folder.getRoot().toPath().resolve("tape.wav");
+        List<byte[]> blocks = generator.withAmplitude(8).withDcOffset(40).withNoise(1).writeWav(wavFile);
+
+        assertDecodesTo(AudioFileTape.buildPulseList(wavFile.toString(), 3500000, new AdaptiveSchmittTrigger()),
+                blocks);
+    }
+
+    @Test
+    public void tapFileHoldsBlocks() throws Exception {
+        Path tapFile = folder.getRoot().toPath().resolve("tape.tap");
+        List<byte[]> blocks = generator.generate(new PulseListBuilder());
+
+        TapeGenerator.writeTap(tapFile, blocks);
+
+        byte[] tap = Files.readAllBytes(tapFile);
+        assertThat(tap.length, is(2 + 19 + 2 + 258));
+        assertThat(tap[0], is((byte) 19));
+        assertThat(tap[21], is((byte) 2));
+        assertThat(tap[22], is((byte) 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void jitterMustBeInRange() {
+        generator.withJitter(-0.1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void amplitudeMustBeInRange() {
+        generator.withAmplitude(0);
+    }
+
+    private static PulseList build(TapeGenerator generator) {
+        PulseListBuilder builder = new PulseListBuilder();
+        generator.generate(builder);
+        return builder.build();
+    }
+
+    private static void assertDecodesTo(PulseList pulseList, List<byte[]> blocks) {
+        List<PZXBlock> dataBlocks = PZXBuilder.buildPZXTapeList(pulseList).stream()
+                .filter(block -> block instanceof PZXDataBlock)
+                .collect(toList());
+
+        assertThat(dataBlocks.size(), is(blocks.size()));
+        for (int i = 0; i < blocks.size(); i++) {
+            assertArrayEquals(blocks.get(i), ((PZXDataBlock) dataBlocks.get(i)).getData());
+        }
+    }
+}
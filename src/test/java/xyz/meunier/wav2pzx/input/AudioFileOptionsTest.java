@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2016, Fredrick Meunier
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package xyz.meunier.wav2pzx.input;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Fredrick Meunier
+ */
+public class AudioFileOptionsTest {
+
+    @Test
+    public void defaultReadsUnfilteredDefaultSizedBuffers() {
+        assertThat(AudioFileOptions.DEFAULT.getBufferSize(), is(AudioFileTape.DEFAULT_BUFFER_SIZE));
+        assertThat(AudioFileOptions.DEFAULT.isFilterSamples(), is(false));
+    }
+
+    @Test
+    public void withChangesOnlyTheSuppliedSetting() {
+        AudioFileOptions options = AudioFileOptions.DEFAULT.withBufferSize(1024).withFilterSamples(true);
+
+        assertThat(options.getBufferSize(), is(1024));
+        assertThat(options.isFilterSamples(), is(true));
+        assertThat(AudioFileOptions.DEFAULT.isFilterSamples(), is(false));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyBuffer() {
+        AudioFileOptions.DEFAULT.withBufferSize(0);
+    }
+}
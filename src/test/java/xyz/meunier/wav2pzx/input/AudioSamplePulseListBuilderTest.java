@@ -29,6 +29,7 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import xyz.meunier.wav2pzx.input.triggers.SchmittTrigger;
+import xyz.meunier.wav2pzx.input.triggers.SimpleBistable;
 import xyz.meunier.wav2pzx.pulselist.PulseList;
 
 import static org.hamcrest.Matchers.is;
@@ -172,4 +173,104 @@ public class AudioSamplePulseListBuilderTest {
         assertThat(instance1.getTStatesPerSample(), is(closeTo(79.365, TOLERANCE)));
     }
 
+    /**
+     * Test of getDuration method, of class AudioSamplePulseListBuilder.
+     */
+    @Test
+    public void testGetDuration() {
+        assertThat(instance1.getDuration(), is(closeTo(7 / 44100.0, 1e-9)));
+    }
+
+    /**
+     * Test of addSamples method with full scale samples, of class AudioSamplePulseListBuilder.
+     */
+    @Test
+    public void testAddFullScaleSamplesMatchesAddSample() {
+        int[] buf = new int[samples1.length];
+        for (int i = 0; i < samples1.length; i++) {
+            buf[i] = (samples1[i] - 128) << 24;
+        }
+        AudioSamplePulseListBuilder instance = new AudioSamplePulseListBuilder(SAMPLE_RATE, MACHINE_HZ, new SchmittTrigger());
+
+        instance.addSamples(buf, 0, buf.length);
+
+        assertThat(instance.build(), is(instance1.build()));
+        assertThat(instance.getDuration(), is(instance1.getDuration()));
+    }
+
+    /**
+     * Test of addSamples method with full scale samples, of class AudioSamplePulseListBuilder.
+     */
+    @Test
+    public void testAddFullScaleSamplesInPiecesMatchesAddSample() {
+        int[] buf = new int[samples1.length + 2];
+        for (int i = 0; i < samples1.length; i++) {
+            buf[i + 1] = (samples1[i] - 128) << 24;
+        }
+        AudioSamplePulseListBuilder instance = new AudioSamplePulseListBuilder(SAMPLE_RATE, MACHINE_HZ, new SchmittTrigger());
+
+        instance.addSamples(buf, 1, 3);
+        instance.addSamples(buf, 4, samples1.length - 3);
+
+        assertThat(instance.build(), is(instance1.build()));
+        assertThat(instance.getDuration(), is(instance1.getDuration()));
+    }
+
+    /**
+     * Test of addSamples method with full scale samples, of class AudioSamplePulseListBuilder.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testAddFullScaleSamplesThrowsExceptionWhenComplete() {
+        instance1.build();
+        instance1.addSamples(new int[4], 0, 4);
+    }
+
+    /**
+     * Test of addSamples method with full scale samples, of class AudioSamplePulseListBuilder.
+     */
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testAddFullScaleSamplesThrowsExceptionForBadRange() {
+        instance1.addSamples(new int[4], -1, 2);
+    }
+
+    /**
+     * Test of addSamples method with a trigger that times edges between samples, of class
+     * AudioSamplePulseListBuilder.
+     */
+    @Test
+    public void testAddFullScaleSamplesInterpolatesEdges() {
+        // 100 T-states per sample, the midpoint crossings are at 0.5, 2.25 and 3.75 samples
+        AudioSamplePulseListBuilder instance =
+                new AudioSamplePulseListBuilder(35000, MACHINE_HZ, new SimpleBistable(true));
+
+        // The edge at the start of the second buffer is timed from the last sample of the first
+        instance.addSamples(new int[]{-100, 100, 100}, 0, 3);
+        instance.addSamples(new int[]{0, -300, 100, 0}, 1, 2);
+
+        PulseList pulseList = instance.build();
+        assertThat(pulseList.getFirstPulseLevel(), is(0));
+        assertThat(pulseList.getPulseLengths(), contains(50L, 175L, 150L, 125L));
+    }
+
+    /**
+     * Test of addSample method with a trigger that times edges between samples, of class
+     * AudioSamplePulseListBuilder.
+     */
+    @Test
+    public void testAddSampleInterpolatesEdgesAsAddSamples() {
+        int[] samples = {0, 32, 224, 255, 192, 96, 0, 0, 160, 255};
+        int[] buf = new int[samples.length];
+        AudioSamplePulseListBuilder instance =
+                new AudioSamplePulseListBuilder(35000, MACHINE_HZ, new SimpleBistable(true));
+        for (int i = 0; i < samples.length; i++) {
+            buf[i] = (samples[i] - 128) << 24;
+            instance.addSample(samples[i]);
+        }
+        AudioSamplePulseListBuilder expected =
+                new AudioSamplePulseListBuilder(35000, MACHINE_HZ, new SimpleBistable(true));
+        expected.addSamples(buf, 0, buf.length);
+
+        assertThat(instance.build(), is(expected.build()));
+    }
+
 }
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2016, Fredrick Meunier
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package xyz.meunier.wav2pzx.input;
+
+import org.junit.Test;
+import xyz.meunier.wav2pzx.input.triggers.SchmittTrigger;
+import xyz.meunier.wav2pzx.pulselist.PulseList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.number.IsCloseTo.closeTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Fredrick Meunier
+ */
+public class BandPassSampleFilterTest {
+
+    private static final float SAMPLE_RATE = 44100;
+    private static final float MACHINE_HZ = 3500000;
+
+    // Collects the filtered samples passed to it
+    private static final class CollectingSink implements SampleSink {
+        private final List<Integer> samples = new ArrayList<>();
+
+        @Override
+        public void addSamples(int[] buf, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                samples.add(buf[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testRemovesDcOffset() {
+        CollectingSink sink = new CollectingSink();
+        BandPassSampleFilter instance = new BandPassSampleFilter(SAMPLE_RATE, sink);
+
+        int[] buf = new int[(int) SAMPLE_RATE];
+        for (int i = 0; i < buf.length; i++) {
+            // Start at 0 then jump to a large offset
+            buf[i] = i < 10 ? 0 : 1 << 30;
+        }
+        instance.addSamples(buf, 0, buf.length);
+
+        assertThat(sink.samples.size(), is(buf.length));
+        assertThat((double) sink.samples.get(buf.length - 1), closeTo(0, 1 << 16));
+    }
+
+    @Test
+    public void testRemovesHighFrequencies() {
+        CollectingSink sink = new CollectingSink();
+        BandPassSampleFilter instance = new BandPassSampleFilter(SAMPLE_RATE, sink);
+
+        // Alternate at half the sample rate, far above the tape band
+        int[] buf = new int[1000];
+        for (int i = 0; i < buf.length; i++) {
+            buf[i] = (i & 1) == 0 ? 1 << 28 : -(1 << 28);
+        }
+        instance.addSamples(buf, 0, buf.length);
+
+        List<Integer> settled = sink.samples.subList(100, buf.length);
+        List<Integer> magnitudes = new ArrayList<>();
+        for (int sample : settled) {
+            magnitudes.add(Math.abs(sample));
+        }
+        assertThat(magnitudes, everyItem(lessThan(1 << 22)));
+    }
+
+    @Test
+    public void testKeepsTapePulses() {
+        // A pilot tone of 2168 T-state pulses with added 19kHz interference that crosses the trigger's threshold
+        // after the first pulse
+        int samplesPerPulse = 27;
+        int numPulses = 200;
+        int[] buf = new int[samplesPerPulse * numPulses];
+        for (int i = 0; i < buf.length; i++) {
+            int noise = i < samplesPerPulse ? 0 : (int) ((1 << 30) * Math.sin(2 * Math.PI * 19000 * i / SAMPLE_RATE));
+            buf[i] = ((i / samplesPerPulse) & 1) == 0 ? (1 << 29) + noise : -(1 << 29) + noise;
+        }
+
+        AudioSamplePulseListBuilder unfiltered =
+                new AudioSamplePulseListBuilder(SAMPLE_RATE, MACHINE_HZ, new SchmittTrigger());
+        unfiltered.addSamples(buf, 0, buf.length);
+        assertThat(unfiltered.build().getPulseLengths().size() > numPulses, is(true));
+
+        AudioSamplePulseListBuilder filtered =
+                new AudioSamplePulseListBuilder(SAMPLE_RATE, MACHINE_HZ, new SchmittTrigger());
+        BandPassSampleFilter instance = new BandPassSampleFilter(SAMPLE_RATE, filtered);
+        // Pass the samples in several buffers to check the filter state is carried between them
+        for (int off = 0; off < buf.length; off += 1000) {
+            instance.addSamples(buf, off, Math.min(1000, buf.length - off));
+        }
+
+        PulseList pulseList = filtered.build();
+        assertThat(pulseList.getPulseLengths().size(), is(numPulses));
+        double pulseLength = samplesPerPulse * MACHINE_HZ / SAMPLE_RATE;
+        // The first and last pulses include the filter's delay
+        for (long pulse : pulseList.getPulseLengths().subList(1, numPulses - 1)) {
+            assertThat((double) pulse, closeTo(pulseLength, 2 * MACHINE_HZ / SAMPLE_RATE));
+        }
+    }
+
+    @Test
+    public void testLowersHighCutoffBelowNyquist() {
+        CollectingSink sink = new CollectingSink();
+        BandPassSampleFilter instance = new BandPassSampleFilter(8000, sink);
+
+        // A 1kHz square wave
+        int[] buf = new int[1000];
+        for (int i = 0; i < buf.length; i++) {
+            buf[i] = ((i / 4) & 1) == 0 ? 1 << 29 : -(1 << 29);
+        }
+        instance.addSamples(buf, 0, buf.length);
+
+        // The filter is stable, the output stays within the range of the input
+        for (int sample : sink.samples) {
+            assertThat(Math.abs((long) sample) < 1L << 31, is(true));
+        }
+        assertThat(Math.abs(sink.samples.get(buf.length - 1)) > 1 << 28, is(true));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorThrowsExceptionForCutoffsOutOfOrder() {
+        new BandPassSampleFilter(SAMPLE_RATE, 8000, 100, new CollectingSink());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testAddSamplesThrowsExceptionForBadRange() {
+        new BandPassSampleFilter(SAMPLE_RATE, new CollectingSink()).addSamples(new int[4], 2, 3);
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2016, Fredrick Meunier
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package xyz.meunier.wav2pzx.input;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ParallelSampleSinkTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void everySinkGetsEverySample() {
+        RecordingSink first = new RecordingSink();
+        RecordingSink second = new RecordingSink();
+        RecordingSink third = new RecordingSink();
+        ParallelSampleSink instance = new ParallelSampleSink(asList(first, second, third), executor);
+
+        int[] buf = {1, 2, 3, 4, 5};
+        instance.addSamples(buf, 1, 3);
+        // Reusing the buffer must not affect the samples already passed on
+        buf[1] = 6;
+        instance.addSamples(buf, 0, 2);
+
+        List<Integer> expected = asList(2, 3, 4, 1, 6);
+        assertThat(first.samples, is(expected));
+        assertThat(second.samples, is(expected));
+        assertThat(third.samples, is(expected));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void failureInAnySinkIsReported() {
+        SampleSink failing = (buf, off, len) -> {
+            throw new IllegalStateException("Pulse length list has already been marked as complete");
+        };
+        ParallelSampleSink instance = new ParallelSampleSink(asList(new RecordingSink(), failing), executor);
+
+        instance.addSamples(new int[4], 0, 4);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sinksAreRequired() {
+        new ParallelSampleSink(new ArrayList<SampleSink>(), executor);
+    }
+
+    private static final class RecordingSink implements SampleSink {
+        private final List<Integer> samples = new ArrayList<>();
+
+        @Override
+        public void addSamples(int[] buf, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                samples.add(buf[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2016, Fredrick Meunier
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package xyz.meunier.wav2pzx.input;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import xyz.meunier.wav2pzx.input.triggers.SchmittTrigger;
+import xyz.meunier.wav2pzx.input.triggers.SimpleBistable;
+import xyz.meunier.wav2pzx.pulselist.PulseList;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Optional;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class PcmWavFileTest {
+
+    private static final float SAMPLE_RATE = 44100;
+    private static final float MACHINE_HZ = 3500000;
+
+    // A square wave as signed values at full scale, with uneven pulse lengths
+    private static final int[] WAVE = {-1, -1, -1, 1, 1, -1, -1, -1, -1, 1, 1, 1, 1, 1, -1};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void reads8BitMono() throws IOException {
+        checkFile(8, 1);
+    }
+
+    @Test
+    public void reads16BitStereo() throws IOException {
+        checkFile(16, 2);
+    }
+
+    @Test
+    public void reads24BitMono() throws IOException {
+        checkFile(24, 1);
+    }
+
+    @Test
+    public void reads24BitStereo() throws IOException {
+        checkFile(24, 2);
+    }
+
+    @Test
+    public void reads32BitMono() throws IOException {
+        checkFile(32, 1);
+    }
+
+    @Test
+    public void getSamplesKeepsFullPrecision() {
+        ByteBuffer src = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        src.putShort((short) 0x1234).putShort((short) -1);
+        src.putShort((short) 0x4000).putShort((short) -0x3fff).flip();
+        int[] samples = new int[3];
+
+        PcmWavFile.getSamples(src, samples, 1, 1, 16);
+        assertThat(samples[0], is(0x12340000));
+        PcmWavFile.getSamples(src, samples, 1, 1, 16);
+        assertThat(samples[0], is(-0x10000));
+
+        PcmWavFile.getSamples(src, samples, 1, 2, 16);
+        assertThat(samples[0], is(0x8000));
+    }
+
+    @Test
+    public void getSamplesReads24BitSamples() {
+        ByteBuffer src = ByteBuffer.wrap(new byte[]{0x56, 0x34, 0x12, (byte) 0xfe, (byte) 0xff, (byte) 0xff})
+                .order(ByteOrder.LITTLE_ENDIAN);
+        int[] samples = new int[2];
+
+        PcmWavFile.getSamples(src, samples, 2, 1, 24);
+
+        assertThat(samples[0], is(0x12345600));
+        assertThat(samples[1], is(-0x200));
+    }
+
+    @Test
+    public void audioFileTapeReadsFloatFilesAtFullPrecision() throws Exception {
+        AudioFormat format = new AudioFormat(AudioFormat.Encoding.PCM_FLOAT, SAMPLE_RATE, 32, 1, 4, SAMPLE_RATE,
+                false);
+        ByteBuffer data = ByteBuffer.allocate(4 * WAVE.length).order(ByteOrder.LITTLE_ENDIAN);
+        for (int level : WAVE) {
+            // Quieter than the smallest step of an 8 bit sample
+            data.putFloat(level * 0.001f);
+        }
+        Path wavFile = writeWav(format, data.array());
+
+        PulseList pulseList = AudioFileTape.buildPulseList(wavFile.toString(), MACHINE_HZ, new SimpleBistable());
+
+        assertThat(pulseList, is(getExpectedPulseList()));
+    }
+
+    @Test
+    public void ignoresFloatFiles() throws IOException {
+        AudioFormat format = new AudioFormat(AudioFormat.Encoding.PCM_FLOAT, SAMPLE_RATE, 32, 1, 4, SAMPLE_RATE,
+                false);
+        Path wavFile = writeWav(format, new byte[4 * WAVE.length]);
+
+        assertThat(open(wavFile).isPresent(), is(false));
+    }
+
+    @Test
+    public void ignoresFilesThatAreNotRiff() throws IOException {
+        Path file = folder.newFile("tape.txt").toPath();
+        Files.write(file, "100 : 0".getBytes());
+
+        assertThat(open(file).isPresent(), is(false));
+    }
+
+    @Test
+    public void audioFileTapeUsesDirectRead() throws Exception {
+        Path wavFile = writeWav(16, 2);
+
+        PulseList pulseList = AudioFileTape.buildPulseList(wavFile.toString(), MACHINE_HZ, new SchmittTrigger());
+
+        assertThat(pulseList, is(getExpectedPulseList()));
+    }
+
+    @Test
+    public void audioFileTapeConvertsWithSeveralTriggers() throws Exception {
+        Path wavFile = writeWav(16, 1);
+
+        List<PulseList> pulseLists = AudioFileTape.buildPulseLists(wavFile.toString(), MACHINE_HZ,
+                asList(new SchmittTrigger(), new SimpleBistable(), new SchmittTrigger(100)), AudioFileOptions.DEFAULT);
+
+        assertThat(pulseLists.size(), is(3));
+        assertThat(pulseLists.get(0), is(getExpectedPulseList()));
+        assertThat(pulseLists.get(1), is(getExpectedPulseList()));
+        assertThat(pulseLists.get(2),
+                is(AudioFileTape.buildPulseList(wavFile.toString(), MACHINE_HZ, new SchmittTrigger(100))));
+    }
+
+    private void checkFile(int bitsPerSample, int channels) throws IOException {
+        Path wavFile = writeWav(bitsPerSample, channels);
+
+        try (FileChannel channel = FileChannel.open(wavFile, StandardOpenOption.READ)) {
+            PcmWavFile pcmWavFile = PcmWavFile.open(channel).get();
+            assertThat(pcmWavFile.getSampleRate(), is(SAMPLE_RATE));
+            assertThat(pcmWavFile.getChannels(), is(channels));
+            assertThat(pcmWavFile.getBitsPerSample(), is(bitsPerSample));
+            assertThat(pcmWavFile.getNumFrames(), is((long) WAVE.length));
+
+            AudioSamplePulseListBuilder builder =
+                    new AudioSamplePulseListBuilder(SAMPLE_RATE, MACHINE_HZ, new SchmittTrigger());
+            // Use a small buffer to check samples are passed on across buffers
+            pcmWavFile.readSamples(channel, builder, 4);
+
+            assertThat(builder.build(), is(getExpectedPulseList()));
+        }
+    }
+
+    private static PulseList getExpectedPulseList() {
+        AudioSamplePulseListBuilder builder =
+                new AudioSamplePulseListBuilder(SAMPLE_RATE, MACHINE_HZ, new SchmittTrigger());
+        for (int level : WAVE) {
+            builder.addSample(level > 0 ? 255 : 0);
+        }
+        return builder.build();
+    }
+
+    private Path writeWav(int bitsPerSample, int channels) throws IOException {
+        int bytesPerSample = bitsPerSample / 8;
+        byte[] data = new byte[WAVE.length * bytesPerSample * channels];
+        int position = 0;
+        for (int level : WAVE) {
+            long sample = level > 0 ? (1L << (bitsPerSample - 1)) - 1 : -(1L << (bitsPerSample - 1));
+            if (bitsPerSample == 8) {
+                sample += 128;
+            }
+            for (int channel = 0; channel < channels; channel++) {
+                for (int i = 0; i < bytesPerSample; i++) {
+                    data[position++] = (byte) (sample >> (8 * i));
+                }
+            }
+        }
+
+        AudioFormat format = new AudioFormat(
+                bitsPerSample == 8 ? AudioFormat.Encoding.PCM_UNSIGNED : AudioFormat.Encoding.PCM_SIGNED,
+                SAMPLE_RATE, bitsPerSample, channels, bytesPerSample * channels, SAMPLE_RATE, false);
+        return writeWav(format, data);
+    }
+
+    private Path writeWav(AudioFormat format, byte[] data) throws IOException {
+        Path wavFile = folder.getRoot().toPath().resolve("tape.wav");
+        try (AudioInputStream stream = new AudioInputStream(new ByteArrayInputStream(data), format,
+                data.length / format.getFrameSize())) {
+            AudioSystem.write(stream, AudioFileFormat.Type.WAVE, wavFile.toFile());
+        }
+        return wavFile;
+    }
+
+    private static Optional<PcmWavFile> open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return PcmWavFile.open(channel);
+        }
+    }
+}
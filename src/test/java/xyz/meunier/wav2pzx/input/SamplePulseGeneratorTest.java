@@ -174,4 +174,34 @@ public class SamplePulseGeneratorTest {
         assertThat(pulseList.getPulseLengths().size(), Matchers.is(3));
     }
 
+    /**
+     * Test of addEdges method, of class SamplePulseGenerator.
+     */
+    @Test
+    public void testAddEdgesMatchesAddSample() {
+        int[] levels = {1, 1, 0, 0, 0, 1, 0, 0, 1, 1, 1, 1};
+        double tStates = 79.365;
+
+        SamplePulseGenerator expected = new SamplePulseGenerator();
+        for (int level : levels) {
+            expected.addSample(level, tStates);
+        }
+
+        // Add the first sample on its own then the rest as two runs of edges, the second run starting with an edge
+        SamplePulseGenerator instance = new SamplePulseGenerator();
+        instance.addSample(levels[0], tStates);
+        instance.addEdges(7, new int[]{1, 4, 5}, 3, tStates);
+        assertThat(instance.getLastSampleLevel(), is(0));
+        instance.addEdges(4, new int[]{0}, 1, tStates);
+        assertThat(instance.getLastSampleLevel(), is(1));
+
+        assertThat(instance.build(), is(expected.build()));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testAddEdgesThrowsExceptionBeforeFirstSample() {
+        SamplePulseGenerator instance = new SamplePulseGenerator();
+        instance.addEdges(2, new int[]{1}, 1, 1.0);
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2016, Fredrick Meunier
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package xyz.meunier.wav2pzx.input.triggers;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Fredrick Meunier
+ *
+ */
+public class AdaptiveSchmittTriggerTest {
+
+	// A quiet square wave well away from the centre of the sample range
+	private static final int OFFSET = 20000 << 16;
+	private static final int AMPLITUDE = 2000 << 16;
+	private static final int HALF_PERIOD = 20;
+
+	/**
+	 * Test method for {@link AdaptiveSchmittTrigger#getNewLevelFullScale(int)}.
+	 */
+	@Test
+	public final void testFollowsQuietOffsetSignal() {
+		Bistable instance = new AdaptiveSchmittTrigger();
+		// Let the DC level settle on the signal
+		for (int i = 0; i < 20000; i++) {
+			instance.getNewLevelFullScale(squareWave(i));
+		}
+
+		for (int i = 0; i < 10 * HALF_PERIOD; i++) {
+			int expected = (i / HALF_PERIOD) % 2 == 0 ? 1 : 0;
+			assertEquals(expected, instance.getNewLevelFullScale(squareWave(i)));
+		}
+	}
+
+	/**
+	 * Test method for {@link AdaptiveSchmittTrigger#getNewLevelFullScale(int)}.
+	 */
+	@Test
+	public final void testFixedTriggerMissesQuietOffsetSignal() {
+		Bistable instance = new SchmittTrigger();
+		for (int i = 0; i < 10 * HALF_PERIOD; i++) {
+			assertEquals(1, instance.getNewLevelFullScale(squareWave(i)));
+		}
+	}
+
+	/**
+	 * Test method for {@link AdaptiveSchmittTrigger#getNewLevelFullScale(int)}.
+	 */
+	@Test
+	public final void testHysteresisScalesWithSignal() {
+		Bistable instance = new AdaptiveSchmittTrigger();
+		for (int i = 0; i < 20000; i++) {
+			instance.getNewLevelFullScale(squareWave(i));
+		}
+
+		// Wobbles of a few percent of the amplitude around the DC level do not change the level
+		assertEquals(1, instance.getNewLevelFullScale(OFFSET + AMPLITUDE));
+		assertEquals(1, instance.getNewLevelFullScale(OFFSET - AMPLITUDE / 50));
+		assertEquals(1, instance.getNewLevelFullScale(OFFSET + AMPLITUDE / 50));
+		assertEquals(0, instance.getNewLevelFullScale(OFFSET - AMPLITUDE / 2));
+		assertEquals(0, instance.getNewLevelFullScale(OFFSET + AMPLITUDE / 50));
+		assertEquals(1, instance.getNewLevelFullScale(OFFSET + AMPLITUDE / 2));
+	}
+
+	/**
+	 * Test method for {@link AdaptiveSchmittTrigger#getNewLevelFullScale(int)}.
+	 */
+	@Test
+	public final void testIgnoresHissAfterLoudBlock() {
+		Bistable instance = new AdaptiveSchmittTrigger();
+		for (int i = 0; i < 20000; i++) {
+			instance.getNewLevelFullScale((i / HALF_PERIOD) % 2 == 0 ? 100 << 24 : -100 << 24);
+		}
+
+		// Two seconds of up to 2 LSBs of 8 bit hiss at 44.1kHz, long enough for the envelope to decay to the floor
+		Random random = new Random(1);
+		int level = instance.getNewLevelFullScale(0);
+		for (int i = 0; i < 88200; i++) {
+			assertEquals("Level changed at hiss sample " + i, level,
+					instance.getNewLevelFullScale((random.nextInt(5) - 2) << 24));
+		}
+	}
+
+	private static int squareWave(int i) {
+		return (i / HALF_PERIOD) % 2 == 0 ? OFFSET + AMPLITUDE : OFFSET - AMPLITUDE;
+	}
+
+}
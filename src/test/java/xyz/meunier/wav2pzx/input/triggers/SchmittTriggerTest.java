@@ -67,4 +67,87 @@ public class SchmittTriggerTest {
 		assertEquals(0, instance.getNewLevel(98));
 	}
 
+	/**
+	 * Test method for {@link SchmittTrigger#getNewLevelFullScale(int)}.
+	 */
+	@Test
+	public final void testGetNewLevelFullScale() {
+		Bistable instance = new SchmittTrigger();
+		assertEquals(1, instance.getNewLevelFullScale(Integer.MAX_VALUE));
+		assertEquals(0, instance.getNewLevelFullScale(Integer.MIN_VALUE));
+		assertEquals(0, instance.getNewLevelFullScale((12 << 24) - 1));
+		assertEquals(1, instance.getNewLevelFullScale(12 << 24));
+		assertEquals(1, instance.getNewLevelFullScale(-12 << 24));
+		assertEquals(0, instance.getNewLevelFullScale((-12 << 24) - 1));
+	}
+
+	/**
+	 * Test method for {@link SchmittTrigger#findEdges(int[], int, int, int, int[])}.
+	 */
+	@Test
+	public final void testFindEdgesMatchesGetNewLevelFullScale() {
+		int[] samples = new int[1000];
+		long seed = 12345;
+		for (int i = 0; i < samples.length; i++) {
+			seed = seed * 6364136223846793005L + 1442695040888963407L;
+			// Keep the samples close to the thresholds so the hysteresis matters
+			samples[i] = (int) (seed >> 40) << 6;
+		}
+
+		Bistable reference = new SchmittTrigger();
+		int level = 0;
+		int[] expected = new int[samples.length];
+		int numExpected = 0;
+		for (int i = 3; i < samples.length; i++) {
+			int newLevel = reference.getNewLevelFullScale(samples[i]);
+			if (newLevel != level) {
+				expected[numExpected++] = i - 3;
+				level = newLevel;
+			}
+		}
+
+		// Split the samples across two calls to check the level is carried between buffers
+		Bistable instance = new SchmittTrigger();
+		int[] edges = new int[samples.length];
+		int numFirst = instance.findEdges(samples, 3, 500, 0, edges);
+		int[] secondEdges = new int[samples.length];
+		int numSecond = instance.findEdges(samples, 503, samples.length - 503, 0, secondEdges);
+		for (int i = 0; i < numSecond; i++) {
+			edges[numFirst + i] = secondEdges[i] + 500;
+		}
+
+		assertEquals(true, numExpected > 50);
+		assertEquals(numExpected, numFirst + numSecond);
+		for (int i = 0; i < numExpected; i++) {
+			assertEquals(expected[i], edges[i]);
+		}
+		assertEquals(level, instance.getNewLevelFullScale(0));
+	}
+
+	/**
+	 * Test method for {@link SchmittTrigger#getEdgeOffset(int, int, int)}.
+	 */
+	@Test
+	public final void testGetEdgeOffset() {
+		assertEquals(0.0, new SchmittTrigger().getEdgeOffset(0, 24 << 24, 1), 0.0);
+
+		Bistable instance = new SchmittTrigger(SchmittTrigger.DEFAULT_THRESHOLD, true);
+		// Rising edges cross the positive threshold and falling edges the negative one
+		assertEquals(0.5, instance.getEdgeOffset(0, 24 << 24, 1), 0.0);
+		assertEquals(0.25, instance.getEdgeOffset(0, -16 << 24, 0), 0.0);
+		// Extreme samples do not overflow
+		assertEquals(0.5 - 12.0 / 256, instance.getEdgeOffset(Integer.MIN_VALUE, Integer.MAX_VALUE, 1), 1e-9);
+	}
+
+	/**
+	 * Test method for {@link Bistable#getCrossingOffset(int, int, int)}.
+	 */
+	@Test
+	public final void testGetCrossingOffset() {
+		assertEquals(0.25, Bistable.getCrossingOffset(0, 400, 300), 0.0);
+		assertEquals(0.0, Bistable.getCrossingOffset(500, 500, 300), 0.0);
+		// Samples on the same side of the threshold are timed at the sample
+		assertEquals(0.0, Bistable.getCrossingOffset(350, 400, 300), 0.0);
+	}
+
 }
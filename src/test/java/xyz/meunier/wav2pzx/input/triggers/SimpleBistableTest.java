@@ -47,4 +47,36 @@ public class SimpleBistableTest {
 		assertEquals(0, instance.getNewLevel(127));
 	}
 
+	/**
+	 * Test method for {@link SimpleBistable#findEdges(int[], int, int, int, int[])}.
+	 */
+	@Test
+	public final void testFindEdges() {
+		Bistable instance = new SimpleBistable();
+		int[] samples = {5, -1, -7, 0, 3, -2, -2, 9};
+		int[] edges = new int[samples.length];
+
+		int numEdges = instance.findEdges(samples, 1, 7, 1, edges);
+		assertEquals(4, numEdges);
+		assertEquals(0, edges[0]);
+		assertEquals(2, edges[1]);
+		assertEquals(4, edges[2]);
+		assertEquals(6, edges[3]);
+
+		assertEquals(0, instance.findEdges(samples, 1, 2, 0, edges));
+	}
+
+	/**
+	 * Test method for {@link SimpleBistable#getEdgeOffset(int, int, int)}.
+	 */
+	@Test
+	public final void testGetEdgeOffset() {
+		assertEquals(0.0, new SimpleBistable().getEdgeOffset(-100, 300, 1), 0.0);
+
+		Bistable instance = new SimpleBistable(true);
+		assertEquals(0.75, instance.getEdgeOffset(-100, 300, 1), 0.0);
+		assertEquals(0.5, instance.getEdgeOffset(200, -200, 0), 0.0);
+		assertEquals(0.0, instance.getEdgeOffset(-100, 0, 1), 0.0);
+	}
+
 }
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2016, Fredrick Meunier
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package xyz.meunier.wav2pzx.pulselist;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class PulseBufferTest {
+
+    private PulseBuffer instance;
+
+    @Before
+    public void setUp() {
+        instance = new PulseBuffer(1);
+    }
+
+    @Test
+    public void testAddAndGet() {
+        instance.add(200L);
+        instance.add(300L);
+
+        assertThat(instance.size(), is(2));
+        assertThat(instance.get(0), is(200L));
+        assertThat(instance.get(1), is(300L));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetOutOfRange() {
+        instance.add(200L);
+        instance.get(1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddNegativePulse() {
+        instance.add(-1L);
+    }
+
+    @Test
+    public void testOfSharesPulseList() {
+        PulseList pulseList = new PulseList(Arrays.asList(100L, 200L, 300L), 1, 1);
+        instance = PulseBuffer.of(pulseList.subList(1, 3));
+
+        assertThat(instance.size(), is(2));
+        assertThat(instance.subList(0, 2, 0), is(pulseList.subList(1, 3)));
+
+        // Adding to the buffer must not affect the source list
+        instance.add(400L);
+        assertThat(instance.get(2), is(400L));
+        assertThat(pulseList.getPulseLengths(), is(Arrays.asList(100L, 200L, 300L)));
+    }
+
+    @Test
+    public void testDiscardedPulsesAreDroppedAndSubListsRemainValid() {
+        for (long i = 0; i < 10000; i++) {
+            instance.add(i);
+        }
+        PulseList early = instance.subList(10, 20, 0);
+
+        instance.discardBefore(9000);
+        for (long i = 10000; i < 20000; i++) {
+            instance.add(i);
+        }
+
+        assertThat(instance.size(), is(20000));
+        assertThat(instance.get(9000), is(9000L));
+        assertThat(instance.get(19999), is(19999L));
+        assertThat(instance.subList(9500, 10500, 1).get(0), is(9500L));
+        assertThat(early.get(0), is(10L));
+        assertThat(early.size(), is(10));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testDiscardedPulsesCannotBeRetrieved() {
+        for (long i = 0; i < 10000; i++) {
+            instance.add(i);
+        }
+        instance.discardBefore(9000);
+        // Discarded pulses are dropped once the buffer needs more space
+        for (long i = 10000; i < 20000; i++) {
+            instance.add(i);
+        }
+        instance.get(8999);
+    }
+}
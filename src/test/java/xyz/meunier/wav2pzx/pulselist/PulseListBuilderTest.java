@@ -96,6 +96,18 @@ public class PulseListBuilderTest {
         assertThat(pulseList.getPulseLengths(), is(asList(1L, 2L, 3L)));
     }
 
+    @Test
+    public void buildManyPulses() throws Exception {
+        for (long i = 0; i < 5000; i++) {
+            builder.withNextPulse(i);
+        }
+
+        PulseList pulseList = builder.build();
+
+        assertThat(pulseList.size(), is(5000));
+        assertThat(pulseList.get(4999), is(4999L));
+    }
+
     @Test
     public void isEmpty() throws Exception {
         assertThat(builder.isEmpty(), is(true));
@@ -62,6 +62,55 @@ public class PulseListTest {
         assertThat(instance3.getPulseLengths(), is(Arrays.asList(200L, 300L, 100L)));
     }
 
+    @Test
+    public void testConcatenationConstructorMergesPulsesWhenTheLevelIsHeld() {
+        // instance ends low, so a list starting low continues the last pulse
+        PulseList instance2 = new PulseList(Arrays.asList(100L, 50L), 0, 1);
+        PulseList instance3 = new PulseList(instance, instance2);
+
+        assertThat(instance3.getPulseLengths(), is(Arrays.asList(200L, 400L, 50L)));
+        assertThat(instance3.getFirstPulseLevel(), is(1));
+        assertThat(instance3.size(), is(instance.size() + instance2.size() - 1));
+    }
+
+    @Test
+    public void testConcatenationConstructorOfConsecutiveSubListsSharesPulses() {
+        PulseList source = new PulseList(new long[]{100L, 200L, 300L}, 0, 1);
+        PulseList joined = new PulseList(source.subList(0, 1), source.subList(1, 3));
+
+        assertThat(joined, is(source));
+        assertThat(joined.backingArray() == source.backingArray(), is(true));
+    }
+
+    @Test
+    public void testConcatOfConsecutiveSubListsSharesPulses() {
+        PulseList source = new PulseList(new long[]{100L, 200L, 300L, 400L, 500L}, 0, 1);
+        PulseList joined = PulseList.concat(
+                Arrays.asList(source.subList(0, 1), source.subList(1, 3), source.subList(3, 5)));
+
+        assertThat(joined, is(source));
+        assertThat(joined.backingArray() == source.backingArray(), is(true));
+    }
+
+    @Test
+    public void testConcatOfSubListsWithAGapCopiesPulses() {
+        PulseList source = new PulseList(new long[]{100L, 200L, 300L, 400L}, 0, 1);
+        PulseList joined = PulseList.concat(Arrays.asList(source.subList(0, 1), source.subList(3, 4)));
+
+        assertThat(joined.getPulseLengths(), is(Arrays.asList(100L, 400L)));
+        assertThat(joined.backingArray() == source.backingArray(), is(false));
+    }
+
+    @Test
+    public void testConcatOfOneListReturnsIt() {
+        assertThat(PulseList.concat(singletonList(instance)) == instance, is(true));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConcatRejectsDifferentResolutions() {
+        PulseList.concat(Arrays.asList(instance, new PulseList(singletonList(100L), 0, 2)));
+    }
+
     /**
      * Test of getPulseLengths method, of class PulseList.
      */
@@ -81,6 +130,81 @@ public class PulseListTest {
         assertThat(instance.getFirstPulseLevel(), is(0));
     }
 
+    @Test
+    public void testGetAndSize() {
+        assertThat(instance.size(), is(2));
+        assertThat(instance.get(0), is(200L));
+        assertThat(instance.get(1), is(300L));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetOutOfRange() {
+        instance.get(2);
+    }
+
+    @Test
+    public void testStream() {
+        assertThat(instance.stream().sum(), is(500L));
+    }
+
+    @Test
+    public void testPrimitiveArrayConstructorCopiesArray() {
+        long[] source = {200L, 300L};
+        PulseList pulseList = new PulseList(source, 1, 1);
+        source[0] = 100L;
+
+        assertThat(pulseList, is(instance));
+        assertThat(pulseList.toArray(), is(new long[]{200L, 300L}));
+    }
+
+    @Test
+    public void testSubList() {
+        PulseList source = new PulseList(Arrays.asList(100L, 200L, 300L, 400L), 0, 1);
+
+        PulseList subList = source.subList(1, 3);
+
+        assertThat(subList.getPulseLengths(), is(Arrays.asList(200L, 300L)));
+        assertThat(subList.getFirstPulseLevel(), is(1));
+        assertThat(subList.getResolution(), is(1L));
+        assertThat(subList, is(instance));
+        assertThat(subList.hashCode(), is(instance.hashCode()));
+        assertThat(source.subList(2, 4).getFirstPulseLevel(), is(0));
+        assertThat(source.subList(1, 3, 0).getFirstPulseLevel(), is(0));
+    }
+
+    @Test
+    public void testGetRunsIsCached() {
+        PulseRuns runs = instance.getRuns();
+
+        assertThat(runs.size(), is(2));
+        assertThat(instance.getRuns() == runs, is(true));
+    }
+
+    @Test
+    public void testGetRunsOfSubList() {
+        PulseList source = new PulseList(Arrays.asList(100L, 200L, 200L, 200L, 300L), 0, 1);
+
+        PulseRuns runs = source.subList(2, 5).getRuns();
+
+        assertThat(runs.size(), is(2));
+        assertThat(runs.getStart(0), is(0));
+        assertThat(runs.getDuration(0), is(200L));
+        assertThat(runs.getCount(0), is(2));
+        assertThat(runs.getStart(1), is(2));
+        assertThat(runs.getDuration(1), is(300L));
+        assertThat(runs.getCount(1), is(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptySubList() {
+        instance.subList(1, 1);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testGetPulseLengthsIsUnmodifiable() {
+        instance.getPulseLengths().set(0, 100L);
+    }
+
     /**
      * Test of getPulseLengths method, of class PulseList.
      */
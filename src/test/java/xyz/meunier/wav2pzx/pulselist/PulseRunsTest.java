@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2016, Fredrick Meunier
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package xyz.meunier.wav2pzx.pulselist;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Fredrick Meunier
+ */
+public class PulseRunsTest {
+
+    private final PulseRuns instance = PulseRuns.of(Arrays.asList(855L, 855L, 855L, 1710L, 855L, 1000L, 1000L));
+
+    @Test
+    public void testRunsOfEqualPulses() {
+        assertThat(instance.size(), is(4));
+
+        int[] starts = {0, 3, 4, 5};
+        long[] durations = {855L, 1710L, 855L, 1000L};
+        int[] counts = {3, 1, 1, 2};
+        for (int i = 0; i < instance.size(); i++) {
+            assertThat(instance.getStart(i), is(starts[i]));
+            assertThat(instance.getDuration(i), is(durations[i]));
+            assertThat(instance.getCount(i), is(counts[i]));
+        }
+    }
+
+    @Test
+    public void testLargePulsesAreComparedByValue() {
+        // Values outside the Long cache must still be found equal
+        PulseRuns runs = PulseRuns.of(Arrays.asList(Long.valueOf(100000L), Long.valueOf(100000L)));
+
+        assertThat(runs.size(), is(1));
+        assertThat(runs.getCount(0), is(2));
+    }
+
+    @Test
+    public void testGetTotalDuration() {
+        assertThat(instance.getTotalDuration(), is(855L * 4 + 1710L + 2000L));
+    }
+
+    @Test
+    public void testRangeOfArray() {
+        long[] pulses = {1L, 2L, 2L, 3L};
+
+        PulseRuns runs = PulseRuns.of(pulses, 1, 2);
+
+        assertThat(runs.size(), is(1));
+        assertThat(runs.getStart(0), is(0));
+        assertThat(runs.getDuration(0), is(2L));
+        assertThat(runs.getCount(0), is(2));
+    }
+
+    @Test
+    public void testEmpty() {
+        assertThat(PulseRuns.of(Collections.emptyList()), is(PulseRuns.EMPTY));
+        assertThat(PulseRuns.EMPTY.size(), is(0));
+        assertThat(PulseRuns.EMPTY.getTotalDuration(), is(0L));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetDurationChecksIndex() {
+        instance.getDuration(4);
+    }
+}
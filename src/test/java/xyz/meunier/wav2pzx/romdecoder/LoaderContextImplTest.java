@@ -391,6 +391,74 @@ public class LoaderContextImplTest {
         assertThat("Check we get a pulse block when zero pulse lengths are implausible", pzxBlock, instanceOf(PZXPulseBlock.class));
     }
 
+    /**
+     * Test of isDataBlockComplete method, of class LoaderContextImpl.
+     */
+    @Test
+    public void testIsDataBlockComplete() {
+        PulseList pulseList = new PulseList(Collections.singletonList(200L), 1, 1);
+        LoaderContextImpl instance = new LoaderContextImpl(pulseList);
+
+        // Without a header the length of the block is not known
+        addBytes(instance, 0xff, 0x01, 0xfe);
+        assertThat(instance.isDataBlockComplete(), is(false));
+        instance.completeDataBlock();
+
+        // Header for a 2 byte block
+        addBytes(instance, 0x00, 0x03, 't', 'e', 's', 't', ' ', ' ', ' ', ' ', ' ', ' ', 0x02, 0x00, 0x00, 0x40,
+                0x00, 0x80, 0x00 ^ 0x03 ^ 't' ^ 'e' ^ 's' ^ 't' ^ 0x02 ^ 0x40 ^ 0x80);
+        assertThat(instance.isDataBlockComplete(), is(false));
+        instance.completeDataBlock();
+
+        addBytes(instance, 0xff, 0x01, 0x02);
+        assertThat("Check block is not complete before its checksum", instance.isDataBlockComplete(), is(false));
+        addBytes(instance, 0xff ^ 0x01 ^ 0x02);
+        assertThat(instance.isDataBlockComplete(), is(true));
+        instance.addZeroPulse((long)LoaderContext.ZERO, (long)LoaderContext.ZERO);
+        assertThat("Check block with extra bits is not complete", instance.isDataBlockComplete(), is(false));
+        instance.completeDataBlock();
+
+        // The expected length only applies to the block following the header
+        addBytes(instance, 0xff, 0x01, 0x02, 0xff ^ 0x01 ^ 0x02);
+        assertThat(instance.isDataBlockComplete(), is(false));
+    }
+
+    /**
+     * Test of isDataBlockComplete method after a rejected data block, of class LoaderContextImpl.
+     */
+    @Test
+    public void testIsDataBlockCompleteAfterRejectedBlock() {
+        PulseList pulseList = new PulseList(Collections.singletonList(200L), 1, 1);
+        LoaderContextImpl instance = new LoaderContextImpl(pulseList);
+
+        // Header for a 2 byte block
+        addBytes(instance, 0x00, 0x03, 't', 'e', 's', 't', ' ', ' ', ' ', ' ', ' ', ' ', 0x02, 0x00, 0x00, 0x40,
+                0x00, 0x80, 0x00 ^ 0x03 ^ 't' ^ 'e' ^ 's' ^ 't' ^ 0x02 ^ 0x40 ^ 0x80);
+        instance.completeDataBlock();
+
+        // The block after the header doesn't have standard zero pulses so it is recorded as a pulse block
+        instance.addZeroPulse(2L * LoaderContext.ZERO, 2L * LoaderContext.ZERO);
+        instance.completeDataBlock();
+        List<PZXBlock> blockList = instance.getPZXTapeList();
+        assertThat(blockList.get(blockList.size() - 1), instanceOf(PZXPulseBlock.class));
+
+        // The expected length was for the rejected block, not this one
+        addBytes(instance, 0xff, 0x01, 0x02, 0xff ^ 0x01 ^ 0x02);
+        assertThat(instance.isDataBlockComplete(), is(false));
+    }
+
+    private void addBytes(LoaderContextImpl instance, int... bytes) {
+        for(int b : bytes) {
+            for(int bit = 7; bit >= 0; bit--) {
+                if((b >> bit & 1) == 0) {
+                    instance.addZeroPulse((long)LoaderContext.ZERO, (long)LoaderContext.ZERO);
+                } else {
+                    instance.addOnePulse((long)LoaderContext.ONE, (long)LoaderContext.ONE);
+                }
+            }
+        }
+    }
+
 	private void checkBlockIsReset(LoaderContextImpl instance) {
         assertThat("Check sync1 has been reset", instance.getSync1Length(), is(0L));
         assertThat("Check sync2 has been reset", instance.getSync2Length(), is(0L));
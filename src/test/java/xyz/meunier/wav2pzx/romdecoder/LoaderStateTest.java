@@ -195,7 +195,7 @@ public class LoaderStateTest {
         assertEquals(context.getCurrentPulse(), context.getLastUnclassifiedPulse().longValue());
 
         //logTransition(pulseLength, GET_DATA, GET_DATA);
-        // Seven cases:
+        // Eight cases:
         // 1: the current pulse was not a tail pulse and there is no next pulse
         context.resetFields();
         context.setCurrentPulse(LoaderContext.PILOT_MAX + 1);
@@ -277,6 +277,17 @@ public class LoaderStateTest {
         assertEquals(expResult, result);
         assertEquals(context.getCurrentPulse(), context.getTailLength());
         assertTrue(context.isCalledCompleteDataBlock());
+
+        // 8: the block described by the header is complete so a following zero bit is not added to it
+        context.resetFields();
+        context.setNextPulse((long)LoaderContext.ZERO);
+        context.setHasNextPulse(true);
+        context.setCurrentPulse((long)LoaderContext.ZERO);
+        context.setDataBlockComplete(true);
+        instance = LoaderState.GET_DATA;
+        result = instance.nextState(context);
+        assertEquals(Long.MIN_VALUE, context.getLastFirstZeroPulse().longValue());
+        assertTrue(context.isCalledCompleteDataBlock());
     }
 
     /**
@@ -50,6 +50,7 @@ public final class MockLoaderContext implements LoaderContext {
     private boolean hasNextPulse;
     private Long lastFirstZeroPulse;
     private Long lastFirstOnePulse;
+    private boolean dataBlockComplete;
 
     public MockLoaderContext() {
         resetFields();
@@ -75,6 +76,7 @@ public final class MockLoaderContext implements LoaderContext {
         this.currentPulseLevel = Integer.MIN_VALUE;
         this.nextPulseLevel = Long.MIN_VALUE;
         this.hasNextPulse = false;
+        this.dataBlockComplete = false;
     }
 
     public Long getLastFirstOnePulse() {
@@ -165,6 +167,15 @@ public final class MockLoaderContext implements LoaderContext {
         this.calledCompleteDataBlock = true;
     }
 
+    @Override
+    public boolean isDataBlockComplete() {
+        return dataBlockComplete;
+    }
+
+    public void setDataBlockComplete(boolean dataBlockComplete) {
+        this.dataBlockComplete = dataBlockComplete;
+    }
+
     @Override
     public void completePulseBlock(boolean isPilot) {
         this.lastIsPilot = isPilot;